@@ -0,0 +1,135 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts a corpus made by CorpusGenerator and checks every line against its expected output, reporting how many
+ * lines of each variant were converted correctly and how many lines were converted per second.
+ * <p>
+ * A line is correct if it converts to within a millionth of a degree of the expected latitude and longitude, with the
+ * expected label. Only the time spent converting is counted towards lines per second, not reading the files or
+ * checking the results. Both files are read one line at a time, so corpora of any size can be checked.
+ * <p>
+ * Run with the input file, the expected output file, and optionally the number of lines to sniff before locking onto a
+ * format. Up to 5 wrong lines of each variant are printed as examples.
+ */
+public class AccuracyHarness {
+    /**
+     * How far a converted coordinate can be from the expected one and still count as correct, in degrees.
+     */
+    public static final double TOLERANCE = 1.0000001e-6;
+
+    private static final int EXAMPLES = 5;
+
+    private final Map<CorpusGenerator.Variant, long[]> counts = new EnumMap<>(CorpusGenerator.Variant.class);
+    private long lines;
+    private long nanos;
+
+    /**
+     * Indexes into the counts kept for each variant.
+     */
+    private static final int TOTAL = 0;
+    private static final int CORRECT = 1;
+    private static final int WRONG = 2;
+    private static final int REJECTED = 3;
+    private static final int ACCEPTED = 4;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AccuracyHarness <input file> <expected file> [sniff lines]");
+            System.exit(1);
+            return;
+        }
+        int sniffLines = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        AccuracyHarness harness = new AccuracyHarness();
+        harness.check(Path.of(args[0]), Path.of(args[1]), sniffLines);
+        System.out.print(harness.report());
+    }
+
+    /**
+     * Converts every line of a corpus and checks it against its expected output.
+     *
+     * @param input      the generated lines.
+     * @param expected   the expected output of each line.
+     * @param sniffLines the number of lines to sniff before locking onto a format, or 0 to scan every line in full.
+     * @throws IOException if either file could not be read.
+     */
+    public void check(Path input, Path expected, int sniffLines) throws IOException {
+        // rejected lines are only counted, not echoed
+        RejectSink rejects = new RejectSink(null, null, 0, 1);
+        CoordinateJSONConverter converter = new CoordinateJSONConverter(null, sniffLines,
+                CoordinateRounder.DEFAULT_DECIMALS, null, rejects);
+        CoordinateBuffer point = new CoordinateBuffer(1);
+        try (BufferedReader lineReader = Files.newBufferedReader(input);
+             BufferedReader expectedReader = Files.newBufferedReader(expected)) {
+            String line;
+            while ((line = lineReader.readLine()) != null) {
+                String row = expectedReader.readLine();
+                if (row == null) {
+                    throw new IOException("The expected output ends before line " + (lines + 1));
+                }
+                lines++;
+                String[] fields = row.split("\t", -1);
+                CorpusGenerator.Variant variant = CorpusGenerator.Variant.valueOf(fields[0]);
+                long[] count = counts.computeIfAbsent(variant, v -> new long[5]);
+                count[TOTAL]++;
+
+                long start = System.nanoTime();
+                boolean converted = converter.convert(line, point);
+                nanos += System.nanoTime() - start;
+
+                boolean correct;
+                if (!converted) {
+                    correct = false;
+                    count[REJECTED]++;
+                } else {
+                    correct = Math.abs(point.getLatitude(0) - Double.parseDouble(fields[1])) <= TOLERANCE
+                            && Math.abs(point.getLongitude(0) - Double.parseDouble(fields[2])) <= TOLERANCE
+                            && point.getLabel(0).strip().equals(fields[3]);
+                    if (!correct) {
+                        count[ACCEPTED]++;
+                    }
+                }
+                if (correct) {
+                    count[CORRECT]++;
+                } else if (++count[WRONG] <= EXAMPLES) {
+                    System.out.println("Wrong " + variant + " at line " + lines + ": " + line + " -> "
+                            + (converted ? point.getLatitude(0) + ", " + point.getLongitude(0) + " "
+                            + point.getLabel(0) : "rejected") + ", expected " + row.substring(fields[0].length() + 1)
+                            .replace('\t', ' '));
+                }
+                point.clear();
+            }
+        } finally {
+            rejects.close();
+        }
+    }
+
+    /**
+     * @return the accuracy of each variant and overall, and the lines converted per second.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-18s %12s %12s %9s %12s %12s%n", "variant", "lines", "correct",
+                "accuracy", "rejected", "accepted"));
+        long total = 0;
+        long correct = 0;
+        for (Map.Entry<CorpusGenerator.Variant, long[]> entry : counts.entrySet()) {
+            long[] count = entry.getValue();
+            total += count[TOTAL];
+            correct += count[CORRECT];
+            report.append(String.format(Locale.ROOT, "%-18s %12d %12d %8.3f%% %12d %12d%n", entry.getKey(),
+                    count[TOTAL], count[CORRECT], 100.0 * count[CORRECT] / count[TOTAL], count[REJECTED],
+                    count[ACCEPTED]));
+        }
+        report.append(String.format(Locale.ROOT, "%-18s %12d %12d %8.3f%%%n", "all", total, correct,
+                total > 0 ? 100.0 * correct / total : 0));
+        report.append(String.format(Locale.ROOT, "%d lines in %.3f s of conversion, %.0f lines/s%n", lines,
+                nanos / 1e9, nanos > 0 ? lines / (nanos / 1e9) : 0));
+        return report.toString();
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads another stream ahead on a thread of its own, so slow reading, such as inflating a gzip file, overlaps with
+ * whatever is done with the bytes. The reading thread fills buffers from a small fixed pool and hands them over
+ * through a bounded queue, and each buffer goes back to the pool once it has been read, so no buffers are made after
+ * the stream is created and memory use does not grow with the input.
+ * <p>
+ * The stream itself is meant to be read from one thread.
+ */
+public class AsyncInputStream extends InputStream {
+    /**
+     * The default size of each buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The default number of buffers, so the reading thread can be that many buffers ahead.
+     */
+    public static final int DEFAULT_BUFFERS = 4;
+
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<Chunk> empty;
+    private final Thread reader;
+    private final InputStream in;
+
+    private Chunk current;
+    private int position;
+
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Creates a stream with the default buffers and starts reading ahead.
+     *
+     * @param in   the stream to read ahead. It is closed once it ends or this stream is closed.
+     * @param name the name of the reading thread.
+     */
+    public AsyncInputStream(InputStream in, String name) {
+        this(in, name, DEFAULT_BUFFERS, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream and starts reading ahead.
+     *
+     * @param in         the stream to read ahead. It is closed once it ends or this stream is closed.
+     * @param name       the name of the reading thread.
+     * @param buffers    the number of buffers, at least 2.
+     * @param bufferSize the size of each buffer.
+     */
+    public AsyncInputStream(InputStream in, String name, int buffers, int bufferSize) {
+        if (buffers < 2 || bufferSize < 1) {
+            throw new IllegalArgumentException("At least 2 buffers of at least 1 byte are needed");
+        }
+        this.in = in;
+        this.filled = new ArrayBlockingQueue<>(buffers);
+        this.empty = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            empty.add(new Chunk(bufferSize));
+        }
+        this.reader = new Thread(this::fill, name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!next()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.data, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * @return the bytes which can be read without waiting for the reading thread.
+     */
+    @Override
+    public int available() {
+        if (current != null && position < current.length) {
+            return current.length - position;
+        }
+        Chunk waiting = filled.peek();
+        return waiting != null ? Math.max(waiting.length, 0) : 0;
+    }
+
+    /**
+     * Stops reading ahead and closes the underlying stream.
+     *
+     * @throws IOException if the underlying stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        in.close();
+    }
+
+    /**
+     * Makes sure the current buffer has bytes left, swapping it for the next filled one if not.
+     *
+     * @return false at the end of the stream.
+     */
+    private boolean next() throws IOException {
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null && current.length < 0) {
+            return false;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try {
+            if (current != null) {
+                empty.put(current);
+            }
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        position = 0;
+        if (current.length < 0) {
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fills buffers until the underlying stream ends or fails, then hands over a buffer marking the end.
+     */
+    private void fill() {
+        try {
+            while (true) {
+                Chunk chunk = empty.take();
+                int length = 0;
+                try {
+                    // fill the buffer up, so each hand over carries as much as it can
+                    while (length < chunk.data.length) {
+                        int count = in.read(chunk.data, length, chunk.data.length - length);
+                        if (count < 0) {
+                            break;
+                        }
+                        length += count;
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                    length = 0;
+                }
+                if (length == 0) {
+                    chunk.length = -1;
+                    filled.put(chunk);
+                    return;
+                }
+                chunk.length = length;
+                filled.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            // closed before the end of the stream
+        }
+    }
+
+    /**
+     * A buffer and how much of it holds bytes, or -1 to mark the end of the stream.
+     */
+    private static class Chunk {
+        private final byte[] data;
+        private int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
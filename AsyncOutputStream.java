@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes to another stream on a thread of its own, so slow writing, such as deflating into a gzip file, overlaps with
+ * whatever produces the bytes. Bytes are collected into buffers from a small fixed pool, and each full buffer is
+ * handed over through a bounded queue and goes back to the pool once written, so no buffers are made after the stream
+ * is created. If the writing thread falls behind, the writer waits for a free buffer rather than memory growing.
+ * <p>
+ * The stream itself is meant to be written from one thread.
+ */
+public class AsyncOutputStream extends OutputStream {
+    /**
+     * The default size of each buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The default number of buffers, so the writer can be that many buffers ahead of the writing thread.
+     */
+    public static final int DEFAULT_BUFFERS = 4;
+
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<Chunk> empty;
+    private final Thread writer;
+    private final OutputStream out;
+
+    private Chunk current;
+
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Creates a stream with the default buffers and starts its writing thread.
+     *
+     * @param out  the stream to write to. It is closed when this stream is closed.
+     * @param name the name of the writing thread.
+     */
+    public AsyncOutputStream(OutputStream out, String name) {
+        this(out, name, DEFAULT_BUFFERS, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a stream and starts its writing thread.
+     *
+     * @param out        the stream to write to. It is closed when this stream is closed.
+     * @param name       the name of the writing thread.
+     * @param buffers    the number of buffers, at least 2.
+     * @param bufferSize the size of each buffer.
+     */
+    public AsyncOutputStream(OutputStream out, String name, int buffers, int bufferSize) {
+        if (buffers < 2 || bufferSize < 1) {
+            throw new IllegalArgumentException("At least 2 buffers of at least 1 byte are needed");
+        }
+        this.out = out;
+        this.filled = new ArrayBlockingQueue<>(buffers);
+        this.empty = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            empty.add(new Chunk(bufferSize));
+        }
+        this.writer = new Thread(this::drain, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current == null || current.length == current.data.length) {
+            handOver(false);
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (current == null || current.length == current.data.length) {
+                handOver(false);
+            }
+            int count = Math.min(length, current.data.length - current.length);
+            System.arraycopy(buffer, offset, current.data, current.length, count);
+            current.length += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Hands over the bytes written so far and has the writing thread flush the underlying stream once it has written
+     * them. This does not wait for them to be written.
+     *
+     * @throws IOException if the writing thread has failed.
+     */
+    @Override
+    public void flush() throws IOException {
+        handOver(true);
+    }
+
+    /**
+     * Waits for every byte to be written, then closes the underlying stream.
+     *
+     * @throws IOException if the bytes could not be written or the underlying stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            handOver(true);
+            put(Chunk.END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            closed = true;
+            out.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Hands the current buffer, if it holds anything, to the writing thread and takes a free one in its place.
+     */
+    private void handOver(boolean flush) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try {
+            if (current != null && (current.length > 0 || flush)) {
+                current.flush = flush;
+                put(current);
+                current = null;
+            }
+            if (current == null) {
+                while ((current = empty.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    checkWriter();
+                }
+                current.length = 0;
+                current.flush = false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void put(Chunk chunk) throws IOException, InterruptedException {
+        while (!filled.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            checkWriter();
+        }
+    }
+
+    private void checkWriter() throws IOException {
+        if (!writer.isAlive()) {
+            throw failure != null ? failure : new IOException("The writing thread has stopped");
+        }
+    }
+
+    /**
+     * Writes buffers as they arrive and returns them to the pool, until the end is handed over or writing fails.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                Chunk chunk = filled.take();
+                if (chunk == Chunk.END) {
+                    out.flush();
+                    return;
+                }
+                out.write(chunk.data, 0, chunk.length);
+                if (chunk.flush) {
+                    out.flush();
+                }
+                empty.put(chunk);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A buffer, how much of it holds bytes, and whether to flush once they are written.
+     */
+    private static class Chunk {
+        private static final Chunk END = new Chunk(0);
+
+        private final byte[] data;
+        private int length;
+        private boolean flush;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
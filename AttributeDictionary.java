@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Turns the text of an attribute column into values, keeping one value for each distinct text so a column which
+ * repeats the same few values over millions of rows holds only a few objects. Text is looked up straight from the
+ * characters it was read into, so a repeated value creates nothing at all.
+ * <p>
+ * Values are typed from their text: a whole number which fits is a Long, any other JSON number a Double, true or
+ * false in any case a Boolean, and anything else a String. Text which a JSON number can not start with, such as a zip
+ * code with a leading zero, stays a String. Empty text has no value.
+ * <p>
+ * A column of mostly distinct values, such as an identifier, would make the dictionary grow with the input, so once it
+ * holds its limit of distinct values it stops remembering new ones and makes a fresh value each time instead.
+ */
+public class AttributeDictionary {
+    /**
+     * The default number of distinct values remembered for each column.
+     */
+    public static final int DEFAULT_LIMIT = 1 << 16;
+
+    private final int limit;
+    private final boolean typed;
+
+    /**
+     * Each slot holds the index of a value plus one, or 0 if empty.
+     */
+    private int[] slots = new int[64];
+    private String[] texts = new String[32];
+    private Object[] values = new Object[32];
+    private int size;
+    private long misses;
+
+    /**
+     * Creates an empty dictionary.
+     *
+     * @param limit the most distinct values to remember.
+     * @param typed true to type values from their text, false to keep every value as a String.
+     */
+    public AttributeDictionary(int limit, boolean typed) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        this.limit = limit;
+        this.typed = typed;
+    }
+
+    /**
+     * Gets the value of some text, the same instance every time for the same text while the dictionary is not full.
+     *
+     * @param chars holds the text.
+     * @param start the index of the text's first character.
+     * @param end   the index after the text's last character.
+     * @return the value, or null if the text is empty.
+     */
+    public Object valueOf(CharSequence chars, int start, int end) {
+        if (start == end) {
+            return null;
+        }
+        int hash = hash(chars, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (matches(texts[index], chars, start, end)) {
+                return values[index];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String text = chars.subSequence(start, end).toString();
+        Object value = typed ? parse(text) : text;
+        if (size == limit) {
+            misses++;
+            return value;
+        }
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        texts[size] = text;
+        values[size] = value;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of distinct values remembered.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of values made after the dictionary was full.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Types a value from its text. Whole numbers which do not fit in a long are kept as text rather than rounded to
+     * a double.
+     *
+     * @param text the text, which must not be empty.
+     * @return a Long, Double, Boolean, or the text itself.
+     */
+    public static Object parse(String text) {
+        if (text.equalsIgnoreCase("true")) {
+            return Boolean.TRUE;
+        }
+        if (text.equalsIgnoreCase("false")) {
+            return Boolean.FALSE;
+        }
+        int wholeEnd = numberEnd(text);
+        if (wholeEnd < 0) {
+            return text;
+        }
+        if (wholeEnd == text.length()) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                // too big for a long, and a double would lose digits of what is likely an identifier
+                return text;
+            }
+        }
+        // only a number with a fraction or an exponent is read as a double
+        double value = Double.parseDouble(text);
+        return Double.isFinite(value) ? (Object) value : text;
+    }
+
+    /**
+     * Checks text against the JSON number grammar.
+     *
+     * @return the index after the whole number part, or -1 if the text is not a JSON number.
+     */
+    private static int numberEnd(String text) {
+        int i = 0;
+        int length = text.length();
+        if (text.charAt(0) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == digits || (text.charAt(digits) == '0' && i - digits > 1)) {
+            return -1;
+        }
+        int wholeEnd = i;
+        if (i < length && text.charAt(i) == '.') {
+            int fraction = ++i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == fraction) {
+                return -1;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return -1;
+            }
+        }
+        return i == length ? wholeEnd : -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int index = 0; index < size; index++) {
+            String text = texts[index];
+            int slot = hash(text, 0, text.length()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    private static boolean matches(String text, CharSequence chars, int start, int end) {
+        if (text.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        // spread the bits, as the low ones pick the slot
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
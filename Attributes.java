@@ -0,0 +1,88 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The extra properties of a point, such as the attribute columns of a CSV row. The keys are fixed when it is created,
+ * and the values are set for each point in turn, so one instance can be reused for every row of a file. Values are
+ * Long, Double, Boolean, or String, and a null value leaves its key out of the output.
+ */
+public class Attributes {
+    private final String[] keys;
+    private final Object[] values;
+
+    /**
+     * Creates attributes with every value null.
+     *
+     * @param keys the name of each attribute, in the order they are written.
+     */
+    public Attributes(String... keys) {
+        this.keys = keys.clone();
+        this.values = new Object[keys.length];
+    }
+
+    /**
+     * @return the number of attributes, including those with a null value.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param index the attribute.
+     * @return the attribute's name.
+     */
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @param index the attribute.
+     * @return the attribute's value, or null if it has none.
+     */
+    public Object getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets an attribute's value.
+     *
+     * @param index the attribute.
+     * @param value a Long, Double, Boolean, or String, or null for no value.
+     */
+    public void setValue(int index, Object value) {
+        values[index] = value;
+    }
+
+    /**
+     * Sets every value back to null.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Tells whether these attributes have the same keys as others, in the same order.
+     *
+     * @param other the other attributes.
+     * @return true if the keys are the same.
+     */
+    public boolean sameKeys(Attributes other) {
+        return other != null && (other.keys == keys || Arrays.equals(other.keys, keys));
+    }
+
+    /**
+     * Copies the attributes which have a value into a map, in order, as held by Properties.
+     *
+     * @return the attributes with a value.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                map.put(keys[i], values[i]);
+            }
+        }
+        return map;
+    }
+}
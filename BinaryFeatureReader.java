@@ -0,0 +1,241 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a stream written by BinaryFeatureWriter one point at a time. Each point's values are read back as exactly the
+ * doubles which were written, so writing them out as GeoJSON gives the same text as converting the original input.
+ * <p>
+ * The stream is read through a buffer of its own, so there is no need to wrap the input stream in a buffered one.
+ */
+public class BinaryFeatureReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final int decimals;
+    private final double scale;
+
+    /**
+     * Points left in the current block, or -1 once the end of the stream has been read.
+     */
+    private long remaining;
+
+    private long longitudeUnits;
+    private long latitudeUnits;
+    private double longitude;
+    private double latitude;
+    private String label;
+
+    private final List<String> labels = new ArrayList<>();
+
+    /**
+     * Creates a reader and reads the start of the stream.
+     *
+     * @param in the stream to read.
+     * @throws IOException if the stream could not be read or was not written by BinaryFeatureWriter.
+     */
+    public BinaryFeatureReader(InputStream in) throws IOException {
+        this.in = in;
+        byte[] magic = BinaryFeatureWriter.MAGIC;
+        for (byte expected : magic) {
+            if (readByte() != expected) {
+                throw new IOException("Not a binary feature stream");
+            }
+        }
+        int version = readByte();
+        if (version != BinaryFeatureWriter.VERSION) {
+            throw new IOException("Unsupported binary feature stream version: " + version);
+        }
+        decimals = readByte();
+        if (decimals < 0 || decimals > CoordinateRounder.MAX_DECIMALS) {
+            throw new IOException("Unsupported number of decimal places: " + decimals);
+        }
+        scale = Math.pow(10, decimals);
+    }
+
+    /**
+     * Moves on to the next point, whose values can then be read with the getters.
+     *
+     * @return true if there was another point, false at the end of the stream.
+     * @throws IOException if the stream could not be read or ended too soon.
+     */
+    public boolean next() throws IOException {
+        while (remaining == 0) {
+            remaining = readVarint();
+            if (remaining == 0) {
+                remaining = -1;
+            }
+        }
+        if (remaining < 0) {
+            return false;
+        }
+        remaining--;
+
+        longitudeUnits += unZigZag(readVarint());
+        latitudeUnits += unZigZag(readVarint());
+        long labelField = readVarint();
+        longitude = (labelField & 2) != 0 ? -0.0 : longitudeUnits / scale;
+        latitude = (labelField & 1) != 0 ? -0.0 : latitudeUnits / scale;
+
+        long code = labelField >>> 2;
+        if (code == 0) {
+            label = null;
+        } else if (code <= labels.size()) {
+            label = labels.get((int) code - 1);
+        } else if (code == labels.size() + 1) {
+            label = readString();
+            labels.add(label);
+        } else {
+            throw new IOException("Label " + code + " used before it was defined");
+        }
+        return true;
+    }
+
+    /**
+     * @return the current point's longitude.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the current point's latitude.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the current point's label, or null if it has none.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the number of decimal places the stream keeps coordinates to.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * Reads every remaining point into a buffer.
+     *
+     * @param points the buffer to add the points to.
+     * @throws IOException if the stream could not be read.
+     */
+    public void readInto(CoordinateBuffer points) throws IOException {
+        while (next()) {
+            points.add(latitude, longitude, label);
+        }
+    }
+
+    /**
+     * Reads every remaining point into a feature collection.
+     *
+     * @return a feature collection holding the points.
+     * @throws IOException if the stream could not be read.
+     */
+    public FeatureCollection readFeatureCollection() throws IOException {
+        FeatureCollection collection = new FeatureCollection();
+        while (next()) {
+            Feature feature = new Feature();
+            // geoJSON takes the longitude first
+            feature.getGeometry().setCoordinates(new double[]{longitude, latitude});
+            feature.getProperties().setName(label);
+            collection.addFeature(feature);
+        }
+        return collection;
+    }
+
+    /**
+     * Writes every remaining point to another writer, for example to turn the stream back into GeoJSON with a
+     * GeoJsonStreamWriter. Only one point is held at a time. The writer is not finished.
+     *
+     * @param out the writer to write to.
+     * @throws IOException if the stream could not be read or the points could not be written.
+     */
+    public void writeTo(PointWriter out) throws IOException {
+        while (next()) {
+            out.writePoint(longitude, latitude, label);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private long readVarint() throws IOException {
+        if (limit - position >= 10) {
+            // enough bytes buffered for the longest varint, so no need to check on every byte
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private String readString() throws IOException {
+        long length = readVarint();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Label too long: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        int copied = 0;
+        while (copied < bytes.length) {
+            if (position == limit) {
+                fill();
+            }
+            int chunk = Math.min(bytes.length - copied, limit - position);
+            System.arraycopy(buffer, position, bytes, copied, chunk);
+            position += chunk;
+            copied += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private void fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            throw new EOFException("Binary feature stream ended before its end marker");
+        }
+        position = 0;
+        limit = read;
+    }
+
+    private static long unZigZag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes points in a compact binary form, for passing converted coordinates between services without the size of
+ * GeoJSON or the cost of parsing it. BinaryFeatureReader reads it back.
+ * <p>
+ * The stream starts with the bytes {@code GEOB}, a version byte, and the number of decimal places coordinates are
+ * kept to. Points follow in blocks, each block being a varint count and then that many points, with a count of zero
+ * ending the stream. Each point is:
+ * <ul>
+ *     <li>its longitude and then its latitude, as fixed point units of the stream's decimal places, each stored as the
+ *     zig-zag varint difference from the previous point's, so nearby points take a byte or two;</li>
+ *     <li>a varint holding its label in all but the lowest two bits, which mark a longitude or latitude of -0.0. The
+ *     label is 0 for no label, the id plus one of a label seen before, or the next unused id plus one for a new label,
+ *     in which case its UTF-8 length and bytes follow.</li>
+ * </ul>
+ * Every value written is read back as exactly the same double, so a coordinate with more decimal places than the
+ * stream keeps is refused rather than rounded.
+ */
+public class BinaryFeatureWriter implements PointWriter {
+    /**
+     * The first bytes of every binary stream.
+     */
+    static final byte[] MAGIC = {'G', 'E', 'O', 'B'};
+    static final int VERSION = 1;
+
+    /**
+     * Points are sent to the output stream this many at a time, or sooner on flush.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    private final OutputStream out;
+    private final int decimals;
+    private final double scale;
+
+    /**
+     * Points encoded but not yet sent to the output stream.
+     */
+    private byte[] block = new byte[BLOCK_SIZE * 8];
+    private int blockLength;
+    private int blockCount;
+
+    /**
+     * What the next point's values are stored relative to.
+     */
+    private long previousLongitude;
+    private long previousLatitude;
+
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    /**
+     * Creates a binary writer and writes the start of the stream.
+     *
+     * @param out      where the stream is written to.
+     * @param decimals the number of decimal places coordinates are kept to, from 0 to CoordinateRounder.MAX_DECIMALS.
+     * @throws IOException if the header could not be written.
+     */
+    public BinaryFeatureWriter(OutputStream out, int decimals) throws IOException {
+        if (decimals < 0 || decimals > CoordinateRounder.MAX_DECIMALS) {
+            throw new IllegalArgumentException("Decimal places must be between 0 and " + CoordinateRounder.MAX_DECIMALS);
+        }
+        this.out = out;
+        this.decimals = decimals;
+        this.scale = Math.pow(10, decimals);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(decimals);
+    }
+
+    /**
+     * Writes a point as the next element of the stream.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException              if a full block could not be written.
+     * @throws IllegalArgumentException if a coordinate is not finite or has more decimal places than the stream keeps.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        long longitudeUnits = toUnits(longitude);
+        long latitudeUnits = toUnits(latitude);
+        // room for two ten byte varints and the label's varint, before any new label text
+        ensureCapacity(30);
+        writeVarint(zigZag(longitudeUnits - previousLongitude));
+        writeVarint(zigZag(latitudeUnits - previousLatitude));
+        previousLongitude = longitudeUnits;
+        previousLatitude = latitudeUnits;
+
+        long signs = (isNegativeZero(longitude) ? 2 : 0) | (isNegativeZero(latitude) ? 1 : 0);
+        if (name == null) {
+            writeVarint(signs);
+        } else {
+            Integer id = labels.get(name);
+            if (id != null) {
+                writeVarint((long) (id + 1) << 2 | signs);
+            } else {
+                id = labels.size();
+                labels.put(name, id);
+                writeVarint((long) (id + 1) << 2 | signs);
+                byte[] text = name.getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(10 + text.length);
+                writeVarint(text.length);
+                System.arraycopy(text, 0, block, blockLength, text.length);
+                blockLength += text.length;
+            }
+        }
+        if (++blockCount == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes any points held back and flushes the output stream.
+     *
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes any points held back and the end of the stream, and flushes the output stream. The output stream is left
+     * open for the caller to close.
+     *
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void finish() throws IOException {
+        writeBlock();
+        out.write(0);
+        out.flush();
+    }
+
+    /**
+     * @return the number of decimal places coordinates are kept to.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    private long toUnits(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException(value + " can not be stored as a coordinate");
+        }
+        double units = Math.rint(value * scale);
+        if (units / scale != value) {
+            throw new IllegalArgumentException(value + " has more than " + decimals + " decimal places");
+        }
+        return (long) units;
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+        byte[] count = new byte[10];
+        int length = 0;
+        long value = blockCount;
+        while ((value & ~0x7fL) != 0) {
+            count[length++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        count[length++] = (byte) value;
+        out.write(count, 0, length);
+        out.write(block, 0, blockLength);
+        blockLength = 0;
+        blockCount = 0;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (blockLength + bytes > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + bytes));
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            block[blockLength++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        block[blockLength++] = (byte) value;
+    }
+
+    private static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static boolean isNegativeZero(double value) {
+        return value == 0 && Double.doubleToRawLongBits(value) != 0;
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache of converted lines, keyed on the raw input line. Feeds often repeat the same coordinates, and a
+ * cached line costs a hash lookup instead of a full conversion.
+ * <p>
+ * In concurrent mode the cache is split into segments which are locked separately, so it can be shared by every worker
+ * of a ParallelConverter. Otherwise there is a single segment and no locking.
+ */
+public class ConversionCache {
+    /**
+     * Segments used in concurrent mode.
+     */
+    private static final int CONCURRENT_SEGMENTS = 16;
+
+    /**
+     * Predefined constants for which entry is removed once the cache is full.
+     */
+    public enum Eviction {
+        /** Removes the entry which was used least recently. */
+        LRU,
+        /** Removes the entry which was added first, even if it is still being used. Lookups never reorder entries. */
+        FIFO
+    }
+
+    /**
+     * A converted line.
+     */
+    public static class Entry {
+        private final double latitude;
+        private final double longitude;
+        private final String label;
+
+        public Entry(double latitude, double longitude, String label) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.label = label;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Segment[] segments;
+    private final boolean concurrent;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity   the most lines the cache holds.
+     * @param eviction   which entry is removed once the cache is full.
+     * @param concurrent true if the cache will be used by several threads at once.
+     */
+    public ConversionCache(int capacity, Eviction eviction, boolean concurrent) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.concurrent = concurrent;
+        int count = concurrent ? Math.min(CONCURRENT_SEGMENTS, capacity) : 1;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // share the capacity out so the segments add up to exactly the capacity asked for
+            int segmentCapacity = capacity / count + (i < capacity % count ? 1 : 0);
+            segments[i] = new Segment(segmentCapacity, eviction == Eviction.LRU);
+        }
+    }
+
+    /**
+     * Looks up a line.
+     *
+     * @param line the raw input line.
+     * @return the converted line, or null if it is not cached.
+     */
+    public Entry get(String line) {
+        Segment segment = segmentFor(line);
+        Entry entry;
+        if (concurrent) {
+            synchronized (segment) {
+                entry = segment.get(line);
+            }
+        } else {
+            entry = segment.get(line);
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a converted line, evicting another entry if the cache is full.
+     *
+     * @param line  the raw input line.
+     * @param entry the converted line.
+     */
+    public void put(String line, Entry entry) {
+        Segment segment = segmentFor(line);
+        if (concurrent) {
+            synchronized (segment) {
+                segment.put(line, entry);
+            }
+        } else {
+            segment.put(line, entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionCache{" +
+                "hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+
+    private Segment segmentFor(String line) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int hash = line.hashCode();
+        // spread the high bits down, as String hashes of similar lines differ mostly in the low bits
+        hash ^= hash >>> 16;
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * One part of the cache, with its own capacity. Access order gives LRU eviction and insertion order gives FIFO.
+     */
+    private class Segment extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity, boolean accessOrder) {
+            super(Math.min(capacity, 1 << 16) * 4 / 3 + 1, 0.75f, accessOrder);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts what the converter does: lines by the format they were read as, failures by why they failed, how long
+ * parsing and serializing took, and how many bytes were read and written. One instance is shared by every thread, and
+ * every counter can be updated from any number of threads at once without locking.
+ * <p>
+ * Metrics are off unless asked for. Converters are given null instead of an instance, so all they pay when metrics are
+ * off is a null check.
+ */
+public class ConversionMetrics implements ConversionMetricsMXBean {
+    /**
+     * The name the metrics are registered under with JMX.
+     */
+    public static final String OBJECT_NAME = "CoordinateConverter:type=ConversionMetrics";
+
+    /**
+     * The key lines answered from the cache are counted under, as their format is not kept.
+     */
+    private static final String CACHED = "CACHED";
+
+    private final LongAdder[] formats = adders(CoordinateScanner.Format.values().length);
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder[] failures = adders(CoordinateScanner.Failure.values().length);
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * Where bytes read from a source which counts its own position come from, such as a memory mapped file.
+     */
+    private volatile LongSupplier inputPosition;
+
+    /**
+     * Counts a line converted after being read as the given format.
+     *
+     * @param format the line's format.
+     */
+    public void recordFormat(CoordinateScanner.Format format) {
+        formats[format.ordinal()].increment();
+    }
+
+    /**
+     * Counts a line answered from the conversion cache.
+     */
+    public void recordCacheHit() {
+        cached.increment();
+    }
+
+    /**
+     * Counts a line which could not be converted.
+     *
+     * @param reason why the line could not be converted.
+     */
+    public void recordFailure(CoordinateScanner.Failure reason) {
+        failures[reason.ordinal()].increment();
+    }
+
+    /**
+     * @return the histogram of how long each line took to parse, including cache lookups.
+     */
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    /**
+     * @return the histogram of how long each point took to write.
+     */
+    public LatencyHistogram getSerialize() {
+        return serialize;
+    }
+
+    /**
+     * Counts bytes read.
+     *
+     * @param bytes the number of bytes read.
+     */
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    /**
+     * Counts bytes written.
+     *
+     * @param bytes the number of bytes written.
+     */
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * Counts the bytes read by a source which keeps track of its own position, on top of any added with addBytesIn.
+     *
+     * @param position gives the number of bytes the source has read so far.
+     */
+    public void countInput(LongSupplier position) {
+        this.inputPosition = position;
+    }
+
+    @Override
+    public Map<String, Long> getFormatCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CoordinateScanner.Format format : CoordinateScanner.Format.values()) {
+            counts.put(format.name(), formats[format.ordinal()].sum());
+        }
+        counts.put(CACHED, cached.sum());
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CoordinateScanner.Failure failure : CoordinateScanner.Failure.values()) {
+            counts.put(failure.name(), failures[failure.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getLines() {
+        long lines = cached.sum();
+        for (LongAdder format : formats) {
+            lines += format.sum();
+        }
+        for (LongAdder failure : failures) {
+            lines += failure.sum();
+        }
+        return lines;
+    }
+
+    @Override
+    public long getParseCount() {
+        return parse.getCount();
+    }
+
+    @Override
+    public double getParseMean() {
+        return parse.getMean();
+    }
+
+    @Override
+    public long getParseP50() {
+        return parse.getPercentile(50);
+    }
+
+    @Override
+    public long getParseP99() {
+        return parse.getPercentile(99);
+    }
+
+    @Override
+    public long getParseMax() {
+        return parse.getMax();
+    }
+
+    @Override
+    public long getSerializeCount() {
+        return serialize.getCount();
+    }
+
+    @Override
+    public double getSerializeMean() {
+        return serialize.getMean();
+    }
+
+    @Override
+    public long getSerializeP50() {
+        return serialize.getPercentile(50);
+    }
+
+    @Override
+    public long getSerializeP99() {
+        return serialize.getPercentile(99);
+    }
+
+    @Override
+    public long getSerializeMax() {
+        return serialize.getMax();
+    }
+
+    @Override
+    public long getBytesIn() {
+        LongSupplier position = inputPosition;
+        return bytesIn.sum() + (position != null ? position.getAsLong() : 0);
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public String getSummary() {
+        return toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder format : formats) {
+            format.reset();
+        }
+        cached.reset();
+        for (LongAdder failure : failures) {
+            failure.reset();
+        }
+        parse.reset();
+        serialize.reset();
+        bytesIn.reset();
+        bytesOut.reset();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, so they can be watched with JConsole or any other JMX
+     * client.
+     *
+     * @throws JMException if the metrics could not be registered, for example because another instance already is.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Prints the summary at a fixed rate on a background thread, which does not keep the application running.
+     *
+     * @param out     where the summary is printed.
+     * @param seconds how often to print it.
+     * @return the executor printing the summary, to be shut down once it is no longer wanted.
+     */
+    public ScheduledExecutorService printPeriodically(PrintStream out, long seconds) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> out.println(this), seconds, seconds, TimeUnit.SECONDS);
+        return timer;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionMetrics{" +
+                "lines=" + getLines() +
+                ", formats=" + nonZero(getFormatCounts()) +
+                ", failures=" + nonZero(getFailureCounts()) +
+                ", parseNanos={" + parse + "}" +
+                ", serializeNanos={" + serialize + "}" +
+                ", bytesIn=" + getBytesIn() +
+                ", bytesOut=" + getBytesOut() +
+                '}';
+    }
+
+    private static Map<String, Long> nonZero(Map<String, Long> counts) {
+        counts.values().removeIf(count -> count == 0);
+        return counts;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
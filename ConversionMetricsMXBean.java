@@ -0,0 +1,57 @@
+import java.util.Map;
+
+/**
+ * What ConversionMetrics shows over JMX, for example in JConsole under {@code CoordinateConverter}. Latencies are in
+ * nanoseconds.
+ */
+public interface ConversionMetricsMXBean {
+    /**
+     * @return the number of lines converted, by the format each was read as. Lines answered from the cache are counted
+     * under CACHED.
+     */
+    Map<String, Long> getFormatCounts();
+
+    /**
+     * @return the number of lines which could not be converted, by the reason why.
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * @return the number of lines converted or failed, not counting empty lines.
+     */
+    long getLines();
+
+    long getParseCount();
+
+    double getParseMean();
+
+    long getParseP50();
+
+    long getParseP99();
+
+    long getParseMax();
+
+    long getSerializeCount();
+
+    double getSerializeMean();
+
+    long getSerializeP50();
+
+    long getSerializeP99();
+
+    long getSerializeMax();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    /**
+     * @return every metric on one line, as printed in the periodic summary.
+     */
+    String getSummary();
+
+    /**
+     * Sets every metric back to zero.
+     */
+    void reset();
+}
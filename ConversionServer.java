@@ -0,0 +1,217 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves conversions over HTTP, so callers can keep one warm JVM instead of starting a new one for every few lines.
+ * It runs on the HTTP server built into the JDK and has three endpoints:
+ * <ul>
+ *     <li>{@code /point} converts a single line, given as the {@code q} query parameter of a GET or as the body of a
+ *     POST, and returns the feature, or 422 if the line could not be converted;</li>
+ *     <li>{@code /features} converts a POST body of one coordinate per line and streams back a feature collection,
+ *     the same as the command line's output;</li>
+ *     <li>{@code /seq} converts a POST body the same way and streams back a GeoJSON text sequence, one feature per
+ *     line.</li>
+ * </ul>
+ * Lines in a batch which can not be converted are left out and reported on the error stream, as on the command line.
+ * <p>
+ * Requests are handled on a fixed pool of threads, each keeping its own converter, so a converter is never shared and
+ * stays warm between requests. Given metrics, the server also counts the bytes of each request and response and how
+ * long each feature in a batch takes to write.
+ */
+public class ConversionServer implements Closeable {
+    /**
+     * The media type of GeoJSON.
+     */
+    public static final String GEOJSON_TYPE = "application/geo+json";
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final ThreadLocal<CoordinateJSONConverter> converters;
+    private final GeoJsonSerializer serializer;
+    private final ConversionMetrics metrics;
+
+    /**
+     * Creates a server. It does not accept requests until started.
+     *
+     * @param address    the address to listen on. Port 0 picks any free port.
+     * @param converters creates the converter for each thread handling requests.
+     * @param serializer formats features, except in sequences which are always compact.
+     * @param threads    the number of requests handled at once.
+     * @throws IOException if the address could not be bound.
+     */
+    public ConversionServer(InetSocketAddress address, Supplier<CoordinateJSONConverter> converters,
+                            GeoJsonSerializer serializer, int threads) throws IOException {
+        this(address, converters, serializer, threads, null);
+    }
+
+    /**
+     * Creates a server which counts bytes and serialize times in a set of metrics, usually the same metrics its
+     * converters record to. It does not accept requests until started.
+     *
+     * @param address    the address to listen on. Port 0 picks any free port.
+     * @param converters creates the converter for each thread handling requests.
+     * @param serializer formats features, except in sequences which are always compact.
+     * @param threads    the number of requests handled at once.
+     * @param metrics    where to count bytes and serialize times, or null to count nothing.
+     * @throws IOException if the address could not be bound.
+     */
+    public ConversionServer(InetSocketAddress address, Supplier<CoordinateJSONConverter> converters,
+                            GeoJsonSerializer serializer, int threads, ConversionMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.converters = ThreadLocal.withInitial(converters);
+        this.serializer = serializer;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(workers);
+        server.createContext("/point", this::handlePoint);
+        server.createContext("/features", exchange -> handleBatch(exchange, false));
+        server.createContext("/seq", exchange -> handleBatch(exchange, true));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the address the server is listening on, with the port it was given if it was started on port 0.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and stops the server once the requests being handled have finished.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        workers.shutdown();
+    }
+
+    private void handlePoint(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String line;
+            if ("GET".equals(exchange.getRequestMethod())) {
+                line = queryParameter(exchange.getRequestURI().getRawQuery(), "q");
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                line = firstLine(new String(requestBody(exchange).readAllBytes(), StandardCharsets.UTF_8));
+            } else {
+                sendText(exchange, 405, "Use GET or POST");
+                return;
+            }
+            if (line == null || line.isEmpty()) {
+                sendText(exchange, 400, "No coordinate given");
+                return;
+            }
+
+            CoordinateJSONConverter converter = converters.get();
+            converter.setNextLineNumber(1);
+            Feature feature = converter.convert(line);
+            if (feature == null) {
+                sendText(exchange, 422, "Unable to process: " + line);
+                return;
+            }
+            byte[] body = serializer.toJson(feature).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", GEOJSON_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            responseBody(exchange).write(body);
+        }
+    }
+
+    /**
+     * Converts the body line by line, streaming the features back as they are converted.
+     */
+    private void handleBatch(HttpExchange exchange, boolean sequence) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "Use POST");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", sequence ? GeoJsonSeqWriter.MEDIA_TYPE : GEOJSON_TYPE);
+            // a length of 0 sends the body in chunks, so it can be written before its length is known
+            exchange.sendResponseHeaders(200, 0);
+            try (LineSource input = new ReaderLineSource(new BufferedReader(
+                    new InputStreamReader(requestBody(exchange), StandardCharsets.UTF_8)));
+                 Writer body = new BufferedWriter(
+                         new OutputStreamWriter(responseBody(exchange), StandardCharsets.UTF_8))) {
+                PointWriter out = sequence
+                        ? new GeoJsonSeqWriter(GeoJsonSerializer.COMPACT, body)
+                        : new GeoJsonStreamWriter(serializer, body);
+                if (metrics != null) {
+                    out = new MeteredPointWriter(out, metrics.getSerialize());
+                }
+                // line numbers of rejected lines count from the start of each request
+                CoordinateJSONConverter converter = converters.get();
+                converter.setNextLineNumber(1);
+                CoordinateJSONConverter.convertStreaming(input, out, converter);
+                out.finish();
+            }
+        }
+    }
+
+    private InputStream requestBody(HttpExchange exchange) {
+        InputStream in = exchange.getRequestBody();
+        return metrics != null ? new CountingInputStream(in, metrics::addBytesIn) : in;
+    }
+
+    private OutputStream responseBody(HttpExchange exchange) {
+        OutputStream out = exchange.getResponseBody();
+        return metrics != null ? new CountingOutputStream(out, metrics::addBytesOut) : out;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Finds a parameter in a raw query string and decodes it, or returns null if it is not there.
+     */
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String firstLine(String text) {
+        int end = text.indexOf('\n');
+        if (end < 0) {
+            end = text.length();
+        }
+        if (end > 0 && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+}
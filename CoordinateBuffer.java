@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A compact store of converted points. Rather than a Feature, Geometry, Properties, and coordinate array for every
+ * point, latitudes and longitudes are kept in growable primitive arrays, and each distinct label is stored once with
+ * every point holding the id of its label. A point costs 20 bytes instead of well over a hundred.
+ * <p>
+ * Points can be written to GeoJSON straight from the buffer, or read as a FeatureCollection by callers who still want
+ * objects.
+ */
+public class CoordinateBuffer {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] labelIds;
+    private int size;
+
+    /**
+     * Each distinct label, looked up by its id or by itself.
+     */
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+
+    /**
+     * Creates an empty buffer.
+     */
+    public CoordinateBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty buffer with room for the given number of points before it has to grow.
+     *
+     * @param capacity the initial number of points.
+     */
+    public CoordinateBuffer(int capacity) {
+        latitudes = new double[Math.max(capacity, 1)];
+        longitudes = new double[latitudes.length];
+        labelIds = new int[latitudes.length];
+    }
+
+    /**
+     * Adds a point to the end of the buffer.
+     *
+     * @param latitude  latitude in decimal degrees.
+     * @param longitude longitude in decimal degrees.
+     * @param label     extra words found with the point, which may be null.
+     */
+    public void add(double latitude, double longitude, String label) {
+        if (size == latitudes.length) {
+            int capacity = size + (size >> 1);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            labelIds = Arrays.copyOf(labelIds, capacity);
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        labelIds[size] = labelId(label);
+        size++;
+    }
+
+    /**
+     * @return the number of points in the buffer.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every point and label, keeping the arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+        labels.clear();
+        labelIndex.clear();
+    }
+
+    public double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    public String getLabel(int index) {
+        checkIndex(index);
+        return labels.get(labelIds[index]);
+    }
+
+    /**
+     * Gets the id of a point's label. Points with equal labels have the same id.
+     *
+     * @param index the point.
+     * @return an id between 0 and the number of distinct labels.
+     */
+    public int getLabelId(int index) {
+        checkIndex(index);
+        return labelIds[index];
+    }
+
+    /**
+     * @return the number of distinct labels.
+     */
+    public int getLabelCount() {
+        return labels.size();
+    }
+
+    /**
+     * Writes every point as a feature. The output is the same as writing the features from asFeatures.
+     *
+     * @param out the writer to write to.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(PointWriter out) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writePoint(longitudes[i], latitudes[i], labels.get(labelIds[i]));
+        }
+    }
+
+    /**
+     * Gets a read only view of the points as features. Each feature is created when it is read and is not kept, so
+     * changes to a feature are not stored.
+     *
+     * @return a list of features backed by this buffer.
+     */
+    public List<Feature> asFeatures() {
+        return new FeatureView();
+    }
+
+    /**
+     * Gets a feature collection whose features are a view of this buffer.
+     *
+     * @return a feature collection backed by this buffer.
+     */
+    public FeatureCollection asFeatureCollection() {
+        FeatureCollection collection = new FeatureCollection();
+        collection.setFeatures(asFeatures());
+        return collection;
+    }
+
+    private int labelId(String label) {
+        Integer id = labelIndex.get(label);
+        if (id == null) {
+            id = labels.size();
+            labels.add(label);
+            labelIndex.put(label, id);
+        }
+        return id;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private class FeatureView extends AbstractList<Feature> implements RandomAccess {
+        @Override
+        public Feature get(int index) {
+            Feature feature = new Feature();
+            // geoJSON takes the longitude first
+            feature.getGeometry().setCoordinates(new double[]{getLongitude(index), getLatitude(index)});
+            feature.getProperties().setName(getLabel(index));
+            return feature;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,13 +1,27 @@
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.io.FileWriter;
+import javax.management.JMException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * An application that can take a variety of different geographic coordinate protocols and converts them
@@ -16,9 +30,25 @@ import java.util.regex.Pattern;
  */
 public class CoordinateJSONConverter {
     /**
-     * Used to make coordinates 8 significant figures long.
+     * The most points held by streaming mode before they are written.
+     */
+    private static final int STREAM_BUFFER_SIZE = 256;
+
+    /**
+     * The first two bytes of every gzip file.
+     */
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    /**
+     * The size of the buffers gzip input is inflated through and output deflated through.
+     */
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Rounds coordinates up to a fixed number of decimal places.
      */
-    private static final DecimalFormat df = new DecimalFormat("###.######");
+    private final CoordinateRounder rounder;
 
     /**
      * Container for any extra text contained in the input.
@@ -26,484 +56,600 @@ public class CoordinateJSONConverter {
     private String optionalInfo = "";
 
     /**
-     * Entry point for the application. Google's gson library is used to format the output into JSON.
-     *
-     * @param args none
+     * Breaks each line into numbers, unit markers, and cardinal letters.
      */
-    public static void main(String[] args) throws IOException {
-        CoordinateJSONConverter CoordinateJSONConverter = new CoordinateJSONConverter();
-        Scanner scan = new Scanner(System.in);
-        FeatureCollection collection = new FeatureCollection();
-        FileWriter fw = new FileWriter("output.GeoJson");
-        df.setRoundingMode(RoundingMode.CEILING);
-
-        // Creating gson
-        GsonBuilder builder = new GsonBuilder();
-        // To make the output look nice
-        Gson gson = builder.setPrettyPrinting().create();
-
-        while (scan.hasNextLine()) {
-            double[] factoryResult;
-            CoordinateJSONConverter.optionalInfo = "";
-            String input = scan.nextLine();
-            if (input.equals("")) {
-                continue;
-            }
-            Feature feature = new Feature();
+    private final CoordinateScanner scanner = new CoordinateScanner();
 
-            try {
-                factoryResult = CoordinateJSONConverter.factory(input);
-            } catch (IndexOutOfBoundsException e) {
-                System.err.print("Unable to process: ");
-                System.err.print(input + "\n");
-                continue;
-            }
-            if (factoryResult == null) {
-                System.err.print("Unable to process: ");
-                System.err.print(input + "\n");
-                continue;
-            }
-            for (int i = 0; i < factoryResult.length; i++) {
-                factoryResult[i] = Double.parseDouble(df.format(factoryResult[i]));
-            }
+    /**
+     * Remembers the conversion of repeated lines, or null to convert every line.
+     */
+    private final ConversionCache cache;
+
+    /**
+     * Learns the input's format to parse later lines faster, or null to scan every line in full.
+     */
+    private final FormatSniffer sniffer;
+
+    /**
+     * Counts formats, failures, and parse times, or null to count nothing.
+     */
+    private final ConversionMetrics metrics;
 
-            // swapping around decimals since geoJSON takes first number as a longitude.
-            double[] swap = factoryResult;
-            double temp = swap[0];
-            swap[0] = swap[1];
-            swap[1] = temp;
-            feature.getGeometry().setCoordinates(swap);
-            feature.getGeometry().setCoordinates(factoryResult);
-            feature.getProperties().setName(CoordinateJSONConverter.optionalInfo);
-            collection.addFeature(feature);
-        }
-        fw.write(gson.toJson(collection));
-        fw.close();
-        scan.close();
-        // also prints to console
-        System.out.println(gson.toJson(collection));
+    /**
+     * Where lines which can not be converted are sent, or null to report them on the console straight away.
+     */
+    private final RejectSink rejects;
+
+    /**
+     * The number of the next line given to the converter, counting empty lines.
+     */
+    private long nextLineNumber = 1;
 
+    /**
+     * Creates a converter. A converter keeps state for the line it is converting, so each thread needs its own.
+     */
+    public CoordinateJSONConverter() {
+        this(null, 0, CoordinateRounder.DEFAULT_DECIMALS);
     }
 
     /**
-     * This is the main method of the program. It takes the user's input and does a variety of checks using regex to
-     * estimate what type of format the user has written the coordinates in. Once estimated, it will then send the input
-     * to the appropriate method for conversion.
+     * Creates a converter which looks lines up in a cache before converting them. A cache in concurrent mode can be
+     * shared by converters on different threads.
      *
-     * @param input the user's input
-     * @return the user's input converted to decimal form.
+     * @param cache      the cache to use, or null to convert every line.
+     * @param sniffLines the number of lines to sample before locking onto the input's format, or 0 to scan every line
+     *                   in full.
+     * @param decimals   the number of decimal places coordinates are rounded up to.
      */
-    private double[] factory(String input) {
-        String pure = input;
-        if (!input.matches(".*\\d.*")) {
-            return null;
-        }
-        // check for words in input
-        if (input.matches(".*[a-zA-Z]{2,}.*")) {
-            input = extractInfo(input);
-        }
-        input = input.replaceAll("d", "°");
-        input = input.replaceAll("m", "'");
-        input = input.replaceAll("s", "\"");
+    public CoordinateJSONConverter(ConversionCache cache, int sniffLines, int decimals) {
+        this(cache, sniffLines, decimals, null);
+    }
+
+    /**
+     * Creates a converter which also records what it does in a set of metrics, which can be shared by converters on
+     * different threads.
+     *
+     * @param cache      the cache to use, or null to convert every line.
+     * @param sniffLines the number of lines to sample before locking onto the input's format, or 0 to scan every line
+     *                   in full.
+     * @param decimals   the number of decimal places coordinates are rounded up to.
+     * @param metrics    where to record formats, failures, and parse times, or null to record nothing.
+     */
+    public CoordinateJSONConverter(ConversionCache cache, int sniffLines, int decimals, ConversionMetrics metrics) {
+        this(cache, sniffLines, decimals, metrics, null);
+    }
+
+    /**
+     * Creates a converter which sends lines it can not convert to a reject sink, along with their line number and the
+     * reason, instead of reporting them on the console itself. A sink can be shared by converters on different
+     * threads.
+     *
+     * @param cache      the cache to use, or null to convert every line.
+     * @param sniffLines the number of lines to sample before locking onto the input's format, or 0 to scan every line
+     *                   in full.
+     * @param decimals   the number of decimal places coordinates are rounded up to.
+     * @param metrics    where to record formats, failures, and parse times, or null to record nothing.
+     * @param rejects    where to send lines which can not be converted, or null to report them on the console.
+     */
+    public CoordinateJSONConverter(ConversionCache cache, int sniffLines, int decimals, ConversionMetrics metrics,
+                                   RejectSink rejects) {
+        this.cache = cache;
+        this.sniffer = sniffLines > 0 ? new FormatSniffer(scanner, sniffLines) : null;
+        this.rounder = new CoordinateRounder(decimals);
+        this.metrics = metrics;
+        this.rejects = rejects;
+    }
 
-        // if input doesn't contain any normal symbols to derive coordinate values then assume it is the dreaded space
+    /**
+     * Entry point for the application. GeoJsonSerializer formats the output into the same JSON Google's gson library
+     * would, without gson having to look the output classes up by reflection first.
+     *
+     * @param args --stream to write each feature as soon as it is converted instead of at the end of the input,
+     *             --threads followed by a number to convert on that many threads, which implies --stream,
+     *             --cache followed by a number of lines to remember the conversion of repeated lines,
+     *             --cache-policy followed by lru or fifo to choose which line the cache forgets first,
+     *             --sniff followed by a number of lines to sample before locking onto the input's format,
+     *             --input followed by a file to read instead of the console,
+     *             --decimals followed by the number of decimal places to round coordinates up to,
+     *             --compact to write GeoJSON on a single line instead of pretty printing it,
+     *             --binary to write the compact binary form to output.geobin instead of GeoJSON,
+     *             --decode followed by a binary file to turn back into GeoJSON instead of reading coordinates,
+     *             --dedupe followed by a distance in metres within which points are treated as duplicates,
+     *             --dedupe-window followed by the number of distinct points to remember, or 0 for all, and
+     *             --dedupe-mode followed by drop to drop duplicates or merge to add their names to the first point,
+     *             --rejects followed by a file to write lines which can not be converted to, with their line number
+     *             and the reason,
+     *             --reject-echo followed by the most lines which can not be converted to echo on the console,
+     *             --reject-sample followed by a number to only echo every so many of those lines,
+     *             --geometry followed by linestring, polygon, multipoint, multilinestring, or multipolygon to group
+     *             points into geometries of that type instead of writing each as a feature of its own,
+     *             --group-by followed by label, blank, or marker to choose what ends one geometry and starts the next,
+     *             --marker followed by the line which ends a geometry, which implies --group-by marker,
+     *             --csv or --tsv to read comma or tab separated input with a header row, carrying the columns which
+     *             are not coordinates into each feature's properties,
+     *             --columns followed by the coordinate column, or the latitude and longitude columns separated by a
+     *             comma, of delimited input, by name or by number,
+     *             --gzip to compress the output file, adding .gz to its name, on a thread of its own,
+     *             --metrics followed by how many seconds apart to print a summary of what was converted, or 0 to only
+     *             print it at the end, which also makes the metrics available over JMX,
+     *             --follow followed by a file to keep converting as lines are appended to it, appending each new
+     *             feature to output.geojsons and keeping a checkpoint beside it so a restart carries on where it
+     *             stopped,
+     *             --segments to write each batch of a followed file's new features to a numbered output file instead,
+     *             --poll followed by the most milliseconds to wait between checking a followed file for new lines,
+     *             --project followed by mercator, utm, or ecef to write coordinates projected to Web Mercator, the UTM
+     *             zone of the first point, or earth centred, earth fixed coordinates, naming the system in the output,
+     *             --tiles followed by zoom levels, such as 0-14 or 4,8,12, to count the points in each Web Mercator
+     *             tile at those levels, writing the counts to output.tiles.tsv,
+     *             --bbox to write the bounding box of every position into the feature collection,
+     *             and --serve followed by a port to serve conversions over HTTP on the loopback address instead of
+     *             reading input, handling as many requests at once as --threads, or one per processor by default.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
         try {
-            if (!(input.contains(".") || input.contains("\"") || input.contains("'") || input.contains("°"))) {
-                int counter = 0;
-                String[] dms = {"°", "'", "\"", "°", "'", "\""};
-                String input2 = "";
-                for (int i = 0; i < input.length(); i++) {
-                    if (input.charAt(i) == ' ' && Character.isDigit(input.charAt(i - 1))) {
-                        input2 += dms[counter];
-                        counter++;
-                    } else {
-                        input2 += input.charAt(i);
-                    }
-                }
-                input = input2;
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        ConversionCache cache = null;
+        if (options.getCacheSize() > 0) {
+            cache = new ConversionCache(options.getCacheSize(), options.getCachePolicy(),
+                    options.getThreads() > 1 || options.isServe());
+        }
+        ConversionCache converterCache = cache;
+        ConversionMetrics metrics = null;
+        ScheduledExecutorService summaries = null;
+        if (options.isMetrics()) {
+            metrics = new ConversionMetrics();
+            try {
+                metrics.register();
+            } catch (JMException e) {
+                System.err.println("Metrics are not available over JMX: " + e.getMessage());
+            }
+            if (options.getMetricsPeriod() > 0) {
+                summaries = metrics.printPeriodically(System.err, options.getMetricsPeriod());
             }
-        } catch (IndexOutOfBoundsException e) {
-            return null;
         }
-        // If input doesn't contain any char a-z, assume it is a number (decimal degrees with no cardinal).
-        if (!(input.matches(".*[NESWnesw].*"))) {
-            // Check if degree decimal minutes.
-            String ddmCheck = input.replaceAll(",", " ");
-            ddmCheck = ddmCheck.replaceAll("°", " ");
-            String[] ddmSplit = ddmCheck.split(" ");
-            List<String> temp = new ArrayList<>();
-            for (String s : ddmSplit) {
-                if (!s.equals("")) {
-                    temp.add(s);
+        ConversionMetrics converterMetrics = metrics;
+        // lines which can not be converted are reported from a thread of their own
+        RejectSink rejects = new RejectSink(
+                options.getRejects() != null ? Files.newBufferedWriter(Path.of(options.getRejects())) : null,
+                System.err, options.getRejectEcho(), options.getRejectSample());
+        // keep hold of every converter so their statistics can be reported at the end
+        Queue<CoordinateJSONConverter> created = new ConcurrentLinkedQueue<>();
+        Supplier<CoordinateJSONConverter> converters = () -> {
+            CoordinateJSONConverter converter = new CoordinateJSONConverter(converterCache, options.getSniffLines(),
+                    options.getDecimals(), converterMetrics, rejects);
+            created.add(converter);
+            return converter;
+        };
+
+        // To make the output look nice, unless it is wanted small
+        GeoJsonSerializer serializer = options.isCompact() ? GeoJsonSerializer.COMPACT : GeoJsonSerializer.PRETTY;
+
+        if (options.isServe()) {
+            int threads = options.getThreads() > 1 ? options.getThreads() : Runtime.getRuntime().availableProcessors();
+            ConversionServer server = new ConversionServer(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), options.getPort()), converters, serializer,
+                    threads, metrics);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                try {
+                    rejects.close();
+                } catch (IOException e) {
+                    System.err.println("Unable to write rejected lines: " + e.getMessage());
                 }
-            }
-            if (temp.size() == 4) {
-                return ddmProcess(ddmSplit);
-            } else {
-                input = input.replaceAll("°", "");
-                if (input.contains(":")) {
-                    return AlternateDmsProcess(input);
+                if (converterMetrics != null) {
+                    System.err.println(converterMetrics);
                 }
-
-                return decDegProcess(input);
+            }));
+            server.start();
+            System.err.println("Serving on http://" + server.getAddress().getHostString() + ":"
+                    + server.getAddress().getPort());
+            return;
+        }
+
+        if (options.getFollow() != null) {
+            // a sequence holds one feature per line, so only segments are pretty printed
+            FileFollower follower = options.isSegments()
+                    ? new FileFollower(Path.of(options.getFollow()), Path.of("output.GeoJson"),
+                    FileFollower.Output.SEGMENTS, serializer, converters.get(), options.getPollMillis())
+                    : new FileFollower(Path.of(options.getFollow()), Path.of("output.geojsons"),
+                    FileFollower.Output.SEQUENCE, GeoJsonSerializer.COMPACT, converters.get(), options.getPollMillis());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    rejects.close();
+                } catch (IOException e) {
+                    System.err.println("Unable to write rejected lines: " + e.getMessage());
+                }
+                if (converterMetrics != null) {
+                    System.err.println(converterMetrics);
+                }
+            }));
+            System.err.println("Following " + options.getFollow() + " from byte " + follower.getOffset());
+            follower.run();
+            return;
+        }
+
+        // GeoJSON goes to both the output file and the console, binary output only to its file
+        BufferedWriter file = null;
+        BufferedWriter console = null;
+        OutputStream binaryFile = null;
+        PointWriter out;
+        GeoJsonStreamWriter collection = null;
+        if (options.isBinary()) {
+            binaryFile = new BufferedOutputStream(outputFile("output.geobin", metrics, options.isGzip()));
+            out = new BinaryFeatureWriter(binaryFile, options.getDecimals());
+        } else {
+            // only the file is counted as bytes out, the console gets the same text
+            file = new BufferedWriter(
+                    new OutputStreamWriter(outputFile("output.GeoJson", metrics, options.isGzip())));
+            console = new BufferedWriter(new OutputStreamWriter(System.out));
+            collection = new GeoJsonStreamWriter(serializer, new TeeWriter(file, console));
+            out = options.getProjection() != null
+                    ? new ProjectingPointWriter(collection, options.getProjection())
+                    : collection;
+        }
+        TileAggregator tiles = null;
+        if (options.getTileZooms() != null || options.isBbox()) {
+            // in front of any projection, so tiles and the bounding box are worked out from longitudes and latitudes
+            int[] zooms = options.getTileZooms() != null ? options.getTileZooms() : new int[0];
+            tiles = new TileAggregator(out, zooms, options.isBbox() ? collection : null);
+            out = tiles;
+        }
+        if (metrics != null) {
+            out = new MeteredPointWriter(out, metrics.getSerialize());
+        }
+        DuplicateFilter duplicates = null;
+        if (options.getDedupeTolerance() > 0) {
+            duplicates = new DuplicateFilter(out, options.getDedupeTolerance(), options.getDedupeMode(),
+                    options.getDedupeWindow());
+            out = duplicates;
+        }
+
+        GeometryAssembler assembler = null;
+        DelimitedConverter delimited = null;
+        if (options.getDecode() != null) {
+            InputStream in = new FileInputStream(options.getDecode());
+            if (metrics != null) {
+                in = new CountingInputStream(in, metrics::addBytesIn);
+            }
+            try (BinaryFeatureReader reader = new BinaryFeatureReader(decompressed(in))) {
+                reader.writeTo(out);
             }
-            // If using an alternate symbol...
-        } else if (input.contains(":") || input.contains("'") || input.contains("′")) {
-            return AlternateDmsProcess(input);
-        }
-
-        // Decimal degrees with cardinal check.
-        // Else assume there is a cardinal letter.
-        else {
-            List<String> coordsWithNum = new ArrayList<>();
-            String[] splitContainer;
-            String spacesRemoved = input.replaceAll(" ", "");
-            // If there is a comma.
-            if (spacesRemoved.contains(",")) {
-                splitContainer = spacesRemoved.split("(?<=,)", 2);
-                // Else if there is a letter at the start.
-            } else if (Character.isLetter(spacesRemoved.charAt(0))) {
-                splitContainer = spacesRemoved.split("(?<=[\"″]|[0-9])(?=[NESWnesw])", 2);
-                // Else assume the letter is after the coordinate.
+        } else {
+            LineSource input;
+            if (options.getInput() != null && !isGzip(Path.of(options.getInput()))) {
+                MappedLineReader reader = new MappedLineReader(Path.of(options.getInput()));
+                if (metrics != null) {
+                    metrics.countInput(reader::getPosition);
+                }
+                input = reader;
             } else {
-                splitContainer = spacesRemoved.split("(?<=[NESWnesw])", 2);
+                // a gzip file can not be mapped, so it is read as a stream like the console
+                InputStream in = options.getInput() != null ? new FileInputStream(options.getInput()) : System.in;
+                if (metrics != null) {
+                    in = new CountingInputStream(in, metrics::addBytesIn);
+                }
+                input = new ReaderLineSource(new BufferedReader(new InputStreamReader(decompressed(in))));
             }
-            Collections.addAll(coordsWithNum, splitContainer);
-
-            // if both elements do not have a cardinal...
-            if (!(coordsWithNum.get(0).matches(".*[NESWnesw].*") && coordsWithNum.get(1).matches(".*[NESWnesw].*"))) {
-                for (String s : coordsWithNum) {
-                    if (!(s.contains("N") && s.contains("n") && s.contains("S") && s.contains("s"))) {
-                        coordsWithNum.remove(s);
-                        String temp = coordsWithNum.get(0);
-                        if (Double.parseDouble(temp) > 0) {
-                            temp += "N";
-                        } else {
-                            temp += "S";
-                        }
-                        coordsWithNum.set(0, temp);
-                        coordsWithNum.add(1, s);
-                    }
-                    break;
+            try {
+                if (options.isDelimited()) {
+                    delimited = new DelimitedConverter(options.getDelimiter(), options.getColumns(),
+                            AttributeDictionary.DEFAULT_LIMIT);
+                    delimited.convert(input, out, converters.get());
+                } else if (options.getGeometry() != null) {
+                    assembler = new GeometryAssembler(out, options.getGeometry(), options.getGroupBy(),
+                            options.getMarker());
+                    convertGeometries(input, assembler, converters.get());
+                } else if (options.getThreads() > 1) {
+                    convertParallel(input, out, converters, options.getThreads());
+                } else if (options.isStream()) {
+                    convertStreaming(input, out, converters.get());
+                } else {
+                    convertAll(input, out, converters.get());
                 }
+            } finally {
+                input.close();
             }
-            return decimalCardinal(coordsWithNum);
         }
-    }
 
-    /**
-     * This method is invoked when the factory estimates that the user's input contains a cardinal direction identifier.
-     *
-     * @param preprocessed the user's un-perverted input.
-     * @return the final product of the conversion presented in a double array format for gson to use.
-     */
-    private double[] decimalCardinal(List<String> preprocessed) {
-        List<String> coordsArrayList = new ArrayList<>();
-        double[] coords = new double[2];
-        char latCard;
-        char longCard;
-
-        // Check if there is only one element that represents a longitude and latitude. if there is more than one, fail.
-        if (longLatAmount(preprocessed)) {
-            return null;
-        }
-
-        // Putting north as first coordinate
-        for (int i = 0; i < preprocessed.size(); i++) {
-            String str = preprocessed.get(i).replaceAll(" ", "");
-            if (str.contains("N") || str.contains("n") || str.contains("S") || str.contains("s")) {
-                coordsArrayList.add(str);
-                preprocessed.remove(i);
-                break;
+        out.finish();
+        rejects.close();
+        if (binaryFile != null) {
+            binaryFile.close();
+        } else {
+            file.close();
+            console.newLine();
+            console.flush();
+        }
+        if (tiles != null) {
+            if (options.getTileZooms() != null) {
+                try (Writer histogram = Files.newBufferedWriter(Path.of("output.tiles.tsv"))) {
+                    tiles.writeTiles(histogram);
+                }
             }
+            System.err.println(tiles);
         }
-        // Adding the other coordinate
-        coordsArrayList.add(preprocessed.get(0));
-
-        if (coordsArrayList.get(0).contains("S") || coordsArrayList.get(0).contains("s")) {
-            latCard = 's';
-        } else {
-            latCard = 'n';
+        if (options.getRejects() != null) {
+            System.err.println(rejects);
         }
-
-        if (coordsArrayList.get(1).contains("E") || coordsArrayList.get(1).contains("e")) {
-            longCard = 'e';
-        } else {
-            longCard = 'w';
+        if (cache != null) {
+            System.err.println(cache);
         }
-
-        // Removing the letter in each element and parsing as double so the method can return a double[].
-        for (int i = 0; i < coordsArrayList.size(); i++) {
-            coords[i] = Double.parseDouble(coordsArrayList.get(i).replaceAll("[^\\d.-]", ""));
+        if (duplicates != null) {
+            System.err.println(duplicates);
+        }
+        if (assembler != null) {
+            System.err.println(assembler);
+        }
+        if (delimited != null) {
+            System.err.println(delimited);
+        }
+        if (options.getSniffLines() > 0) {
+            long fastPath = 0;
+            long fallbacks = 0;
+            for (CoordinateJSONConverter converter : created) {
+                fastPath += converter.sniffer.getFastPath();
+                fallbacks += converter.sniffer.getFallbacks();
+            }
+            System.err.println("FormatSniffer{fastPath=" + fastPath + ", fallbacks=" + fallbacks + "}");
+        }
+        if (metrics != null) {
+            if (summaries != null) {
+                summaries.shutdown();
+            }
+            System.err.println(metrics);
         }
-        positiveOrNegative(latCard, longCard, coords);
-        return coords;
     }
 
     /**
-     * This method is used if the program identifies the user's input using typical symbols used for the degree, minute,
-     * and seconds format. It is a long process with the majority of the code used for cleaning the input, so it can be
-     * presented in a uniform format for the conversion to take place.
-     *
-     * @param preprocessed the user's input.
-     * @return the final product in degree decimal format.
+     * Opens an output file, counting the bytes written to it if there are metrics. A compressed file is deflated on a
+     * thread of its own, and the compressed bytes are what is counted.
      */
-    private double[] AlternateDmsProcess(String preprocessed) {
-        double[] coords = new double[2];
-        char latCard;
-        char longCard;
-        String[] splitContainer;
-        Pattern p = Pattern.compile("[0-9.]+");
-        Matcher m;
-        String spacesRemoved = preprocessed.replaceAll(" ", "");
-        if (spacesRemoved.contains(",")) {
-            splitContainer = spacesRemoved.split("(?<=,)", 2);
-        } else if (Character.isLetter(spacesRemoved.charAt(0))) {
-            splitContainer = spacesRemoved.split("(?<=[0-9])(?=[NESWnesw])|(?<=[\"″])(?=[NESWnesw])", 2);
-        } else {
-            splitContainer = spacesRemoved.split("(?<=[NESWnesw])(?=[0-9])", 2);
-        }
-        List<String> coordsArrayList = new ArrayList<>(List.of(splitContainer));
-
-        // Removes commas.
-        for (int i = 0; i < coordsArrayList.size(); i++) {
-            String str = coordsArrayList.get(i).replaceAll(",", "");
-            coordsArrayList.remove(i);
-            coordsArrayList.add(i, str);
+    private static OutputStream outputFile(String name, ConversionMetrics metrics, boolean gzip) throws IOException {
+        OutputStream stream = new FileOutputStream(gzip ? name + ".gz" : name);
+        if (metrics != null) {
+            stream = new CountingOutputStream(stream, metrics::addBytesOut);
         }
-        // Checks if long and lat are at least one coordinate each.
-        if (longLatAmount(coordsArrayList)) {
-            return null;
+        if (gzip) {
+            stream = new AsyncOutputStream(new GZIPOutputStream(stream, GZIP_BUFFER_SIZE), "gzip");
         }
+        return stream;
+    }
 
-        // Put latitude as first coordinate for easier use.
-        for (int i = 0; i < coordsArrayList.size(); i++) {
-            if (coordsArrayList.get(i).contains("N") || coordsArrayList.get(i).contains("n") || coordsArrayList.get(i).contains("S") || coordsArrayList.get(i).contains("s")) {
-                String str = coordsArrayList.get(i);
-                coordsArrayList.remove(i);
-                coordsArrayList.add(0, str);
-                break;
-            }
-        }
+    /**
+     * Looks at the start of a stream and, if it is gzip, inflates it on a thread of its own so inflating overlaps with
+     * converting. Other streams are read as they are.
+     */
+    private static InputStream decompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        boolean gzip = buffered.read() == GZIP_MAGIC_1 && buffered.read() == GZIP_MAGIC_2;
+        buffered.reset();
+        if (!gzip) {
+            return buffered;
+        }
+        return new AsyncInputStream(new GZIPInputStream(buffered, GZIP_BUFFER_SIZE), "gunzip");
+    }
 
-        // remember what the cardinal letter is
-        if (coordsArrayList.get(0).contains("S") || coordsArrayList.get(0).contains("s")) {
-            latCard = 's';
-        } else {
-            latCard = 'n';
+    /**
+     * Tells whether a file starts like a gzip file.
+     */
+    private static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
         }
+    }
 
-        if (coordsArrayList.get(1).contains("E") || coordsArrayList.get(1).contains("e")) {
-            longCard = 'e';
-        } else {
-            longCard = 'w';
-        }
-
-        // Removing cardinal letters
-        for (int i = 0; i < coordsArrayList.size(); i++) {
-            String str = coordsArrayList.get(i).replaceAll("[NESWnesw]", "");
-            coordsArrayList.remove(i);
-            coordsArrayList.add(i, str);
-        }
-
-        String latitude = coordsArrayList.get(0);
-        String longitude = coordsArrayList.get(1);
-        m = p.matcher(latitude);
-        long count = m.results().count();
-
-        // If there is three digits in the array
-        if (count == 3) {
-            splitContainer = latitude.split("[^0-9^.-]");
-            coords[0] = dmsConverter(splitContainer);
-            // else if there is two assume degree-minute format and process
-        } else if (count == 2) {
-            latitude = latitude.replaceAll("'", "");
-            splitContainer = latitude.split("[^0-9^.-]");
-            coords[0] = Double.parseDouble(splitContainer[0]) + (Double.parseDouble(splitContainer[1]) / 60);
-        } else {
-            splitContainer = latitude.split("[^0-9^.-]");
-            for (int i = 0; i < splitContainer.length; i++) {
-                if (splitContainer[i].contains("-")) {
-                    splitContainer[i] = splitContainer[i].replaceAll("-", "");
-                }
-            }
-            coords[0] = dmsConverter(splitContainer);
-        }
+    /**
+     * Reads every line into one coordinate buffer and writes it out once the input has ended.
+     *
+     * @param input                   where lines are read from.
+     * @param out                     where points are written to.
+     * @param CoordinateJSONConverter the converter to use.
+     */
+    private static void convertAll(LineSource input, PointWriter out, CoordinateJSONConverter CoordinateJSONConverter)
+            throws IOException {
+        CoordinateBuffer buffer = new CoordinateBuffer();
 
-        // Removes commas.
-        for (int i = 0; i < splitContainer.length; i++) {
-            splitContainer[i] = splitContainer[i].replaceAll(",", "");
+        CharSequence line;
+        while ((line = input.readLine()) != null) {
+            CoordinateJSONConverter.convert(line, buffer);
         }
+        buffer.writeTo(out);
+    }
 
-        m = p.matcher(longitude);
-        count = m.results().count();
-        // If there is three digits in the array
-        if (count == 3) {
-            splitContainer = longitude.split("[^0-9^.-]");
-            coords[1] = dmsConverter(splitContainer);
-            // else if there is two assume degree-minute format and process
-        } else if (count == 2) {
-            longitude = longitude.replaceAll("'", "");
-            splitContainer = longitude.split("[^0-9^.-]");
-            coords[1] = Double.parseDouble(splitContainer[0]) + (Double.parseDouble(splitContainer[1]) / 60);
-        } else {
-            splitContainer = longitude.split("[^0-9^.-]");
-            for (int i = 0; i < splitContainer.length; i++) {
-                if (splitContainer[i].contains("-")) {
-                    splitContainer[i] = splitContainer[i].replaceAll("-", "");
-                }
+    /**
+     * Reads lines and writes each point out as soon as it has been converted, so memory use does not grow with the
+     * size of the input. The output is the same as convertAll.
+     *
+     * @param input                   where lines are read from.
+     * @param out                     where points are written to.
+     * @param CoordinateJSONConverter the converter to use.
+     */
+    static void convertStreaming(LineSource input, PointWriter out,
+                                         CoordinateJSONConverter CoordinateJSONConverter) throws IOException {
+        // points are held briefly in a small buffer so they can be written without making a feature for each one
+        CoordinateBuffer buffer = new CoordinateBuffer(STREAM_BUFFER_SIZE);
+        CharSequence line;
+        while ((line = input.readLine()) != null) {
+            CoordinateJSONConverter.convert(line, buffer);
+            // only flush when the next read would block, so piped input is not flushed line by line
+            boolean waiting = !input.ready();
+            if (waiting || buffer.size() == STREAM_BUFFER_SIZE) {
+                buffer.writeTo(out);
+                buffer.clear();
+            }
+            if (waiting) {
+                out.flush();
             }
-            coords[1] = dmsConverter(splitContainer);
         }
-        positiveOrNegative(latCard, longCard, coords);
-        return coords;
+        buffer.writeTo(out);
     }
 
     /**
-     * A simple check to see if two coordinates with cardinal letters are represented properly with either
-     * N || S && E || W. If the input doesn't conform, it will output an error and kill the program.
+     * Reads lines and groups the converted points into geometries, writing each geometry out as soon as its last line
+     * has been read. Blank and marker lines are handed to the assembler as separators instead of being converted.
      *
-     * @param list the list to check for validity.
+     * @param input                   where lines are read from.
+     * @param assembler               groups points into geometries and writes them out.
+     * @param CoordinateJSONConverter the converter to use.
      */
-    private boolean longLatAmount(List<String> list) {
-        // Check if there is only one element that represents a longitude and latitude. if there is more than one, fail.
-        int latitude = 0;
-        int longitude = 0;
-        for (String s : list) {
-            if (s.contains("N") || s.contains("n") || s.contains("S") || s.contains("s")) {
-                latitude++;
-            } else if (s.contains("E") || s.contains("e") || s.contains("W") || s.contains("w")) {
-                longitude++;
+    private static void convertGeometries(LineSource input, GeometryAssembler assembler,
+                                          CoordinateJSONConverter CoordinateJSONConverter) throws IOException {
+        CoordinateBuffer point = new CoordinateBuffer(1);
+        long lineNumber = 0;
+        CharSequence line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            if (assembler.separator(line)) {
+                continue;
+            }
+            CoordinateJSONConverter.setNextLineNumber(lineNumber);
+            if (CoordinateJSONConverter.convert(line, point)) {
+                assembler.add(point.getLongitude(0), point.getLatitude(0), point.getLabel(0));
+                point.clear();
             }
         }
-        if (!(longitude == 1 && latitude == 1)) {
-            return true;
-        }
-        return false;
+        assembler.finish();
     }
 
     /**
-     * This method takes a degree, minute, and second coordinate represented as a string list and converts it to the
-     * degree-decimal format. The String should be represented as pure numbers without any symbols.
+     * Converts lines on several threads, writing points out in the same order as the input.
      *
-     * @param preprocessed a list of three numbers represented in string format.
-     * @return a double which has been converted using the dms conversion formula.
+     * @param input      where lines are read from.
+     * @param out        where points are written to.
+     * @param converters creates a converter for each worker thread.
+     * @param threads    the number of worker threads.
      */
-    private double dmsConverter(String[] preprocessed) {
-        double decimalDegree;
-        double[] decimalDegreeArray = Arrays.stream(preprocessed).mapToDouble(Double::valueOf).toArray();
-        if (preprocessed[0].contains("-")) {
-            decimalDegree = decimalDegreeArray[0] - ((decimalDegreeArray[1] / 60) + (decimalDegreeArray[2] / 3600));
-        } else {
-            decimalDegree = decimalDegreeArray[0] + ((decimalDegreeArray[1] / 60) + (decimalDegreeArray[2] / 3600));
+    private static void convertParallel(LineSource input, PointWriter out, Supplier<CoordinateJSONConverter> converters,
+                                        int threads) throws IOException, InterruptedException {
+        ForkJoinPool workers = new ForkJoinPool(threads);
+        try {
+            new ParallelConverter(converters, workers, ParallelConverter.DEFAULT_BATCH_SIZE, threads * 2)
+                    .convert(input, out);
+        } finally {
+            workers.shutdown();
         }
-        return decimalDegree;
     }
 
     /**
-     * A method used to extract words from the user's input. The words extracted will be used as optional info in the
-     * geo-JSON format.
+     * Sets the number the next line given to the converter is reported under if it can not be converted. Each line
+     * given to the converter, empty or not, counts as the next line after that.
      *
-     * @param input the user's input.
-     * @return extra words in the user's input.
+     * @param lineNumber the number of the next line, counting from 1.
      */
-    private String extractInfo(String input) {
-        Pattern p = Pattern.compile("([a-zA-Z]{2,})");
-        Matcher m = p.matcher(input);
-        while (m.find()) {
-            for (int i = 0; i < m.groupCount(); i++) {
-                optionalInfo += m.group(i) + " ";
-                input = input.replace(m.group(i), "");
-            }
-        }
-        return input;
+    void setNextLineNumber(long lineNumber) {
+        nextLineNumber = lineNumber;
     }
 
     /**
-     * This method runs when the factory process estimates the user's input as being simple decimal-degrees. It will
-     * scrub any commas from the input and split the input into a list of doubles.
+     * Converts a single line of input into a feature. Lines which can not be converted are reported on the console.
      *
      * @param input the user's input.
-     * @return a list of doubles representing decimal-degrees.
+     * @return the converted feature, or null if the line was empty or could not be processed.
      */
-    private double[] decDegProcess(String input) {
-        double[] coords = new double[2];
-        input = input.replaceAll(",", " ");
-        String[] splitContainer = input.split(" ");
-        List<String> splitted = new ArrayList<>(List.of(splitContainer));
-
-        // Removing empty strings.
-        while (splitted.contains("")) {
-            splitted.remove("");
-        }
-        for (int i = 0; i < splitted.size(); i++) {
-            coords[i] = Double.parseDouble(splitted.get(i));
+    Feature convert(CharSequence input) {
+        double[] coordinates = convertPoint(input);
+        if (coordinates == null) {
+            return null;
         }
-        return coords;
+        Feature feature = new Feature();
+        feature.getGeometry().setCoordinates(coordinates);
+        feature.getProperties().setName(optionalInfo);
+        return feature;
     }
 
     /**
-     * A method that is invoked when the user's input is estimated to be in the decimal-degree and minutes format.
-     * The method remove empty strings from the input, removes any symbols and then processes the cleansed list
-     * into a converted double array.
+     * Converts a single line of input and adds it to a coordinate buffer. Lines which can not be converted are
+     * reported on the console.
      *
-     * @param input the user's input.
-     * @return a double array that has been converted to decimal degrees.
+     * @param input  the user's input.
+     * @param buffer the buffer to add the converted point to.
+     * @return true if a point was added, false if the line was empty or could not be processed.
      */
-    private double[] ddmProcess(String[] input) {
-
-        double[] coords = new double[2];
-        List<String> removedEmpties = new ArrayList<>();
-        int count = 0;
+    boolean convert(CharSequence input, CoordinateBuffer buffer) {
+        double[] coordinates = convertPoint(input);
+        if (coordinates == null) {
+            return false;
+        }
+        buffer.add(coordinates[1], coordinates[0], optionalInfo);
+        return true;
+    }
 
-        // Removing empty strings.
-        for (int i = 0; i < input.length; i++) {
-            if (input[i].equals("")) {
-            } else {
-                removedEmpties.add(input[i]);
-            }
+    /**
+     * Converts a single line of input into rounded coordinates, longitude first.
+     */
+    private double[] convertPoint(CharSequence input) {
+        long lineNumber = nextLineNumber++;
+        optionalInfo = "";
+        if (input.length() == 0) {
+            return null;
         }
-        double[] atomicCoords = new double[removedEmpties.size()];
-        try {
-            for (String s : removedEmpties) {
-                String[] split = s.split("[^0-9^.-]");
-                for (String value : split) {
-                    atomicCoords[count] = Double.parseDouble(value);
-                    count++;
-                }
+        long start = metrics != null ? System.nanoTime() : 0;
+        double[] factoryResult = factory(input);
+        if (metrics != null) {
+            metrics.getParse().record(System.nanoTime() - start);
+        }
+        if (factoryResult == null) {
+            if (rejects != null) {
+                rejects.reject(lineNumber, input, scanner.getFailure());
+            } else {
+                System.err.print("Unable to process: ");
+                System.err.print(input + "\n");
             }
-        } catch (NumberFormatException e) {
             return null;
         }
-        if (atomicCoords[0] >= 0) {
-            coords[0] = atomicCoords[0] + atomicCoords[1] / 60.0;
-        } else {
-            coords[0] = atomicCoords[0] - atomicCoords[1] / 60.0;
+        for (int i = 0; i < factoryResult.length; i++) {
+            factoryResult[i] = rounder.round(factoryResult[i]);
         }
-        if (atomicCoords[2] >= 0) {
-            coords[1] = atomicCoords[2] + (atomicCoords[3] / 60.0);
-        } else {
-            coords[1] = atomicCoords[2] - (atomicCoords[3] / 60.0);
-        }
-        return coords;
+
+        // swapping around decimals since geoJSON takes first number as a longitude.
+        double temp = factoryResult[0];
+        factoryResult[0] = factoryResult[1];
+        factoryResult[1] = temp;
+        return factoryResult;
     }
 
     /**
-     * Business logic to check if the final result of the processed coordinate should be positive or negative depending
-     * on the cardinal.
+     * This is the main method of the program. It takes the user's input and scans it once to estimate what type of
+     * format the user has written the coordinates in, converting it to decimal form in the same pass. Any extra words
+     * in the input are kept as optional info. Lines already in the cache are not scanned again.
      *
-     * @param latCard       latitude cardinal letter placeholder
-     * @param longCard      longitude cardinal letter placeholder
-     * @param longLatCoords the preprocessed coordinates
-     * @return the converted result
+     * @param input the user's input
+     * @return the user's input converted to decimal form, or null if it could not be recognised.
      */
-    private double[] positiveOrNegative(char latCard, char longCard, double[] longLatCoords) {
-        if ((latCard == 's' && longLatCoords[0] > 0) || (longLatCoords[0] < 0 && latCard == 'n')) {
-            longLatCoords[0] *= -1;
+    private double[] factory(CharSequence input) {
+        // the cache is keyed on strings, so a line which may be reused by its source has to be copied
+        String key = cache != null ? input.toString() : null;
+        if (cache != null) {
+            ConversionCache.Entry cached = cache.get(key);
+            if (cached != null) {
+                if (metrics != null) {
+                    metrics.recordCacheHit();
+                }
+                optionalInfo = cached.getLabel();
+                return new double[]{cached.getLatitude(), cached.getLongitude()};
+            }
+        }
+        boolean scanned = sniffer != null ? sniffer.scan(input) : scanner.scan(input);
+        if (!scanned) {
+            if (metrics != null) {
+                metrics.recordFailure(scanner.getFailure());
+            }
+            return null;
+        }
+        if (metrics != null) {
+            metrics.recordFormat(scanner.getFormat());
         }
-        if ((longCard == 'w' && longLatCoords[1] > 0) || (longLatCoords[1] < 0 && longCard == 'e')) {
-            longLatCoords[1] *= -1;
+        optionalInfo = scanner.getLabel();
+        if (cache != null) {
+            cache.put(key, new ConversionCache.Entry(scanner.getLatitude(), scanner.getLongitude(), optionalInfo));
         }
-        return longLatCoords;
+        return new double[]{scanner.getLatitude(), scanner.getLongitude()};
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,368 @@
+/**
+ * Parses coordinates for other programs, in any format the converter reads, without going through the converter's
+ * input and output. Each call reports how it went as a status code rather than by throwing, and writes the longitude
+ * and latitude into an array the caller owns, with the position of the label in the line, so a line which parses
+ * allocates nothing. Coordinates are rounded up in the same way as the converter's.
+ * <p>
+ * A parser can be shared between threads. Each thread is given a scanner of its own the first time it parses, which
+ * is kept for that thread's later calls.
+ */
+public class CoordinateParser {
+    /**
+     * The line was parsed.
+     */
+    public static final int OK = 0;
+    /**
+     * The line was empty.
+     */
+    public static final int EMPTY = 1;
+    /**
+     * The line could not be parsed, for each reason in CoordinateScanner.Failure.
+     */
+    public static final int UNEXPECTED_CHARACTER = 2;
+    public static final int MALFORMED_NUMBER = 3;
+    public static final int TOO_MANY_NUMBERS = 4;
+    public static final int MISPLACED_UNIT = 5;
+    public static final int CARDINAL_CONFLICT = 6;
+    public static final int NO_NUMBERS = 7;
+    public static final int UNPAIRED = 8;
+    public static final int MALFORMED_VALUE = 9;
+
+    private final CoordinateRounder rounder;
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Creates a parser which rounds coordinates up to the converter's default number of decimal places.
+     */
+    public CoordinateParser() {
+        this(CoordinateRounder.DEFAULT_DECIMALS);
+    }
+
+    /**
+     * Creates a parser.
+     *
+     * @param decimals the number of decimal places coordinates are rounded up to.
+     */
+    public CoordinateParser(int decimals) {
+        this.rounder = new CoordinateRounder(decimals);
+    }
+
+    /**
+     * Parses a line.
+     *
+     * @param line        the line to parse.
+     * @param coordinates where the longitude and then the latitude are written, in decimal degrees. It is left as it
+     *                    was if the line could not be parsed.
+     * @param offset      where in coordinates the longitude goes.
+     * @param labels      where the label's start and end are written as indexes into the line, or null if the label
+     *                    is not needed. The label runs from its first word to the end of its last, and both are 0 if
+     *                    there is no label.
+     * @param labelOffset where in labels the start goes.
+     * @return OK, EMPTY, or why the line could not be parsed.
+     */
+    public int parse(CharSequence line, double[] coordinates, int offset, int[] labels, int labelOffset) {
+        return parse(workspaces.get(), line, coordinates, offset, labels, labelOffset);
+    }
+
+    /**
+     * Parses a line held in part of a character array.
+     *
+     * @param chars       the array holding the line.
+     * @param from        the index of the line's first character.
+     * @param to          the index after the line's last character.
+     * @param coordinates where the longitude and then the latitude are written, in decimal degrees. It is left as it
+     *                    was if the line could not be parsed.
+     * @param offset      where in coordinates the longitude goes.
+     * @param labels      where the label's start and end are written as indexes into chars, or null if the label is
+     *                    not needed. Both are from if there is no label.
+     * @param labelOffset where in labels the start goes.
+     * @return OK, EMPTY, or why the line could not be parsed.
+     */
+    public int parse(char[] chars, int from, int to, double[] coordinates, int offset, int[] labels,
+                     int labelOffset) {
+        Workspace workspace = workspaces.get();
+        workspace.view.wrap(chars, from, to);
+        int status = parse(workspace, workspace.view, coordinates, offset, labels, labelOffset);
+        if (labels != null) {
+            labels[labelOffset] += from;
+            labels[labelOffset + 1] += from;
+        }
+        return status;
+    }
+
+    /**
+     * Parses a line of UTF-8 held in part of a byte array. Malformed bytes are read as the replacement character.
+     *
+     * @param bytes       the array holding the line.
+     * @param from        the index of the line's first byte.
+     * @param to          the index after the line's last byte.
+     * @param coordinates where the longitude and then the latitude are written, in decimal degrees. It is left as it
+     *                    was if the line could not be parsed.
+     * @param offset      where in coordinates the longitude goes.
+     * @param labels      where the label's start and end are written as indexes into bytes, or null if the label is
+     *                    not needed. Both are from if there is no label.
+     * @param labelOffset where in labels the start goes.
+     * @return OK, EMPTY, or why the line could not be parsed.
+     */
+    public int parse(byte[] bytes, int from, int to, double[] coordinates, int offset, int[] labels,
+                     int labelOffset) {
+        Workspace workspace = workspaces.get();
+        workspace.view.decode(bytes, from, to);
+        int status = parse(workspace, workspace.view, coordinates, offset, labels, labelOffset);
+        if (labels != null) {
+            labels[labelOffset] = from + workspace.view.byteOffset(labels[labelOffset]);
+            labels[labelOffset + 1] = from + workspace.view.byteOffset(labels[labelOffset + 1]);
+        }
+        return status;
+    }
+
+    /**
+     * Parses many lines at once. Lines which can not be parsed have NaN written in place of their coordinates, so
+     * the coordinates of each line are always at twice its index.
+     *
+     * @param lines       the lines to parse.
+     * @param from        the index of the first line to parse.
+     * @param to          the index after the last line to parse.
+     * @param coordinates where the longitude and then the latitude of each line are written, starting from 0 for the
+     *                    line at from. It must hold two values for each line.
+     * @param statuses    where the status of each line is written, starting from 0, or null if they are not needed.
+     * @param labels      where the label's start and end of each line are written, starting from 0, or null if they
+     *                    are not needed. It must hold two values for each line.
+     * @return the number of lines which were parsed.
+     */
+    public int parseAll(CharSequence[] lines, int from, int to, double[] coordinates, int[] statuses, int[] labels) {
+        Workspace workspace = workspaces.get();
+        int parsed = 0;
+        for (int i = from; i < to; i++) {
+            int slot = i - from;
+            int status = parse(workspace, lines[i], coordinates, slot * 2, labels, slot * 2);
+            if (status == OK) {
+                parsed++;
+            } else {
+                coordinates[slot * 2] = Double.NaN;
+                coordinates[slot * 2 + 1] = Double.NaN;
+            }
+            if (statuses != null) {
+                statuses[slot] = status;
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Tells what a status code stands for.
+     *
+     * @param status a status returned by this class.
+     * @return OK, EMPTY, or the name of the CoordinateScanner.Failure it stands for.
+     */
+    public static String describe(int status) {
+        if (status == OK) {
+            return "OK";
+        } else if (status == EMPTY) {
+            return "EMPTY";
+        } else if (status >= UNEXPECTED_CHARACTER && status <= MALFORMED_VALUE) {
+            return failure(status).name();
+        }
+        return "UNKNOWN";
+    }
+
+    /**
+     * Turns a status code back into the reason a line could not be parsed.
+     *
+     * @param status a status returned by this class.
+     * @return the reason, or null for OK, EMPTY, or a status this class does not return.
+     */
+    public static CoordinateScanner.Failure failure(int status) {
+        switch (status) {
+            case UNEXPECTED_CHARACTER:
+                return CoordinateScanner.Failure.UNEXPECTED_CHARACTER;
+            case MALFORMED_NUMBER:
+                return CoordinateScanner.Failure.MALFORMED_NUMBER;
+            case TOO_MANY_NUMBERS:
+                return CoordinateScanner.Failure.TOO_MANY_NUMBERS;
+            case MISPLACED_UNIT:
+                return CoordinateScanner.Failure.MISPLACED_UNIT;
+            case CARDINAL_CONFLICT:
+                return CoordinateScanner.Failure.CARDINAL_CONFLICT;
+            case NO_NUMBERS:
+                return CoordinateScanner.Failure.NO_NUMBERS;
+            case UNPAIRED:
+                return CoordinateScanner.Failure.UNPAIRED;
+            case MALFORMED_VALUE:
+                return CoordinateScanner.Failure.MALFORMED_VALUE;
+            default:
+                return null;
+        }
+    }
+
+    private int parse(Workspace workspace, CharSequence line, double[] coordinates, int offset, int[] labels,
+                      int labelOffset) {
+        if (labels != null) {
+            labels[labelOffset] = 0;
+            labels[labelOffset + 1] = 0;
+        }
+        if (line.length() == 0) {
+            return EMPTY;
+        }
+        CoordinateScanner scanner = workspace.scanner;
+        if (!scanner.scan(line)) {
+            return status(scanner.getFailure());
+        }
+        coordinates[offset] = rounder.round(scanner.getLongitude());
+        coordinates[offset + 1] = rounder.round(scanner.getLatitude());
+        if (labels != null && scanner.getLabelStart() >= 0) {
+            labels[labelOffset] = scanner.getLabelStart();
+            labels[labelOffset + 1] = scanner.getLabelEnd();
+        }
+        return OK;
+    }
+
+    private static int status(CoordinateScanner.Failure failure) {
+        switch (failure) {
+            case UNEXPECTED_CHARACTER:
+                return UNEXPECTED_CHARACTER;
+            case MALFORMED_NUMBER:
+                return MALFORMED_NUMBER;
+            case TOO_MANY_NUMBERS:
+                return TOO_MANY_NUMBERS;
+            case MISPLACED_UNIT:
+                return MISPLACED_UNIT;
+            case CARDINAL_CONFLICT:
+                return CARDINAL_CONFLICT;
+            case NO_NUMBERS:
+                return NO_NUMBERS;
+            case UNPAIRED:
+                return UNPAIRED;
+            default:
+                return MALFORMED_VALUE;
+        }
+    }
+
+    /**
+     * What one thread parses with.
+     */
+    private static class Workspace {
+        private final CoordinateScanner scanner = new CoordinateScanner();
+        private final ArrayView view = new ArrayView();
+    }
+
+    /**
+     * A line held in part of a caller's character array, or decoded from part of a byte array into characters of
+     * its own, seen as a CharSequence without copying it into a string.
+     */
+    private static class ArrayView implements CharSequence {
+        private char[] chars;
+        private int start;
+        private int length;
+
+        private char[] decoded = new char[256];
+        /**
+         * The offset from the first byte of each decoded character, and of the end of the line after the last.
+         */
+        private int[] byteOffsets = new int[257];
+
+        void wrap(char[] chars, int from, int to) {
+            if (from < 0 || to > chars.length || from > to) {
+                throw new IndexOutOfBoundsException("Range " + from + " to " + to + " of " + chars.length);
+            }
+            this.chars = chars;
+            this.start = from;
+            this.length = to - from;
+        }
+
+        /**
+         * Decodes UTF-8 bytes into the view's own characters, noting where each one came from.
+         */
+        void decode(byte[] bytes, int from, int to) {
+            if (from < 0 || to > bytes.length || from > to) {
+                throw new IndexOutOfBoundsException("Range " + from + " to " + to + " of " + bytes.length);
+            }
+            // every byte decodes to at most one character
+            if (decoded.length < to - from) {
+                decoded = new char[Math.max(to - from, decoded.length * 2)];
+                byteOffsets = new int[decoded.length + 1];
+            }
+            int count = 0;
+            int i = from;
+            while (i < to) {
+                int first = i;
+                int b = bytes[i++];
+                if (b >= 0) {
+                    byteOffsets[count] = first - from;
+                    decoded[count++] = (char) b;
+                    continue;
+                }
+                int extra;
+                int codePoint;
+                if ((b & 0xe0) == 0xc0) {
+                    extra = 1;
+                    codePoint = b & 0x1f;
+                } else if ((b & 0xf0) == 0xe0) {
+                    extra = 2;
+                    codePoint = b & 0x0f;
+                } else if ((b & 0xf8) == 0xf0) {
+                    extra = 3;
+                    codePoint = b & 0x07;
+                } else {
+                    extra = 0;
+                    codePoint = -1;
+                }
+                for (int k = 0; k < extra && codePoint >= 0; k++) {
+                    if (i + k >= to || (bytes[i + k] & 0xc0) != 0x80) {
+                        codePoint = -1;
+                    } else {
+                        codePoint = codePoint << 6 | (bytes[i + k] & 0x3f);
+                    }
+                }
+                byteOffsets[count] = first - from;
+                if (codePoint < 0) {
+                    decoded[count++] = '\ufffd';
+                    continue;
+                }
+                i += extra;
+                if (codePoint >= 0x10000) {
+                    decoded[count++] = Character.highSurrogate(codePoint);
+                    byteOffsets[count] = first - from;
+                    decoded[count++] = Character.lowSurrogate(codePoint);
+                } else {
+                    decoded[count++] = (char) codePoint;
+                }
+            }
+            byteOffsets[count] = to - from;
+            chars = decoded;
+            start = 0;
+            length = count;
+        }
+
+        /**
+         * @return how far from the first byte the character at an index of the last decoded line starts.
+         */
+        int byteOffset(int index) {
+            return byteOffsets[index];
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(chars, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, length);
+        }
+    }
+}
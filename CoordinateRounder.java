@@ -0,0 +1,76 @@
+/**
+ * Rounds coordinates up to a fixed number of decimal places using arithmetic only. The result is the same as formatting
+ * the value with a DecimalFormat of that many places and RoundingMode.CEILING and parsing it back, including negative
+ * values which round up to -0.0 and tiny values which DecimalFormat writes as 0, but no text is created along the way.
+ * <p>
+ * A rounder holds no state besides its precision, so one can be shared between threads.
+ */
+public class CoordinateRounder {
+    /**
+     * Decimal places used when none are given, which keeps coordinates to within about 10cm.
+     */
+    public static final int DEFAULT_DECIMALS = 6;
+
+    /**
+     * The most decimal places supported. Scaling a coordinate by more than this could lose whole units.
+     */
+    public static final int MAX_DECIMALS = 9;
+
+    private final int decimals;
+    private final double scale;
+
+    /**
+     * The closest double to a unit one place beyond the last kept. Anything smaller is written by DecimalFormat as 0.
+     */
+    private final double underflow;
+
+    /**
+     * Creates a rounder.
+     *
+     * @param decimals the number of decimal places to keep, from 0 to MAX_DECIMALS.
+     */
+    public CoordinateRounder(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Decimal places must be between 0 and " + MAX_DECIMALS);
+        }
+        this.decimals = decimals;
+        this.scale = Math.pow(10, decimals);
+        this.underflow = Double.parseDouble("1e-" + (decimals + 1));
+    }
+
+    /**
+     * Rounds a value towards positive infinity, keeping this rounder's number of decimal places.
+     * <p>
+     * DecimalFormat rounds the shortest decimal which parses back to the value, not the value's exact binary
+     * expansion. So a value which is already the closest double to a number with few enough places is kept as it is,
+     * and any other value is rounded up from whichever side of that nearby number it lies on. A value whose shortest
+     * decimal has more leading zeros after the point than the places kept, such as 0.00000005 kept to 6 places, has
+     * no digit left to round up, so DecimalFormat writes it as 0 rather than rounding it up to the last place.
+     *
+     * @param value the value to round.
+     * @return the rounded value.
+     */
+    public double round(double value) {
+        if (!Double.isFinite(value)) {
+            return value;
+        }
+        if (Math.abs(value) < underflow) {
+            return Math.copySign(0.0, value);
+        }
+        double units = Math.rint(value * scale);
+        double nearest = units / scale;
+        if (nearest == value) {
+            return value;
+        }
+        double rounded = value > nearest ? (units + 1) / scale : nearest;
+        // anything negative which rounds up to zero keeps its sign, as DecimalFormat writes it as -0
+        return rounded == 0 ? Math.copySign(0.0, value) : rounded;
+    }
+
+    /**
+     * @return the number of decimal places kept.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+}
@@ -0,0 +1,870 @@
+/**
+ * A hand-written, single pass scanner which breaks a line of input into numbers, unit markers, cardinal letters and
+ * label words. Once scanned, the line is classified as one of the supported formats and converted straight to decimal
+ * degrees from the scanned values, so no intermediate strings are created while a coordinate is being converted.
+ * <p>
+ * Lines starting with a UTM, MGRS, or geohash reference are converted by GridReferenceParser instead, before their
+ * letters could be taken for unit markers or cardinals.
+ * <p>
+ * A scanner keeps its working state between calls to avoid allocating per line, so an instance must not be shared
+ * between threads.
+ */
+public class CoordinateScanner {
+    /**
+     * The most numbers a line can hold, being three for each half of a degree, minute, and seconds pair.
+     */
+    private static final int MAX_NUMBERS = 6;
+
+    /**
+     * Packed values longer than this cannot be decoded exactly using long arithmetic.
+     */
+    private static final int MAX_PACKED_DIGITS = 18;
+
+    private static final byte UNIT_NONE = 0;
+    private static final byte UNIT_DEGREE = 1;
+    private static final byte UNIT_MINUTE = 2;
+    private static final byte UNIT_SECOND = 3;
+    private static final byte UNIT_COLON = 4;
+
+    /**
+     * Codes for each token of a line's layout. Whitespace and label words are not part of the layout.
+     */
+    private static final int TOKEN_NUMBER = 1;
+    private static final int TOKEN_DEGREE = 2;
+    private static final int TOKEN_MINUTE = 3;
+    private static final int TOKEN_SECOND = 4;
+    private static final int TOKEN_COLON = 5;
+    private static final int TOKEN_LATITUDE_CARDINAL = 6;
+    private static final int TOKEN_LONGITUDE_CARDINAL = 7;
+    private static final int TOKEN_COMMA = 8;
+
+    /**
+     * A layout is packed four bits per token into a long, so longer lines have no layout.
+     */
+    private static final int MAX_LAYOUT_TOKENS = 15;
+
+    /**
+     * Powers of ten which are exactly representable as a double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The formats a line can be classified as.
+     */
+    public enum Format {
+        DECIMAL_DEGREES("Decimal degrees"),
+        DECIMAL_CARDINAL("Decimal degrees with cardinal"),
+        DEGREE_DECIMAL_MINUTES("Degree decimal minutes"),
+        DEGREES_MINUTES_SECONDS("Degrees, minutes, and seconds"),
+        PACKED_DMS("Packed degrees, minutes, and seconds"),
+        UTM("UTM"),
+        MGRS("MGRS"),
+        GEOHASH("Geohash");
+
+        public final String value;
+
+        Format(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Why a line could not be converted.
+     */
+    public enum Failure {
+        /**
+         * A character which is not part of any coordinate format.
+         */
+        UNEXPECTED_CHARACTER,
+        /**
+         * A number with no digits or more than one decimal point.
+         */
+        MALFORMED_NUMBER,
+        /**
+         * More numbers than a degrees, minutes, and seconds pair holds.
+         */
+        TOO_MANY_NUMBERS,
+        /**
+         * A unit marker which does not follow a number, or a second marker after the same number.
+         */
+        MISPLACED_UNIT,
+        /**
+         * More than two cardinal letters, or two in the same half or on the same axis.
+         */
+        CARDINAL_CONFLICT,
+        /**
+         * No numbers at all.
+         */
+        NO_NUMBERS,
+        /**
+         * Numbers which can not be split into a latitude and a longitude of up to three parts each.
+         */
+        UNPAIRED,
+        /**
+         * A minute or second which is negative, or a packed value with too many digits.
+         */
+        MALFORMED_VALUE
+    }
+
+    /**
+     * The sequence of tokens making up a line, along with how that sequence was arranged into a latitude and
+     * longitude. Every line with the same layout is arranged the same way, so once a layout is known a line can be
+     * parsed against it directly, skipping classification.
+     */
+    public static class Layout {
+        private final long code;
+        private final int split;
+        private final int firstCardinal;
+        private final int secondCardinal;
+        private final boolean firstIsLatitude;
+
+        private Layout(long code, int split, int firstCardinal, int secondCardinal, boolean firstIsLatitude) {
+            this.code = code;
+            this.split = split;
+            this.firstCardinal = firstCardinal;
+            this.secondCardinal = secondCardinal;
+            this.firstIsLatitude = firstIsLatitude;
+        }
+
+        /**
+         * Gets a number which identifies the layout. Lines with equal codes have the same layout.
+         *
+         * @return the layout's code.
+         */
+        public long getCode() {
+            return code;
+        }
+    }
+
+    private final double[] values = new double[MAX_NUMBERS];
+    private final boolean[] negative = new boolean[MAX_NUMBERS];
+    private final boolean[] integral = new boolean[MAX_NUMBERS];
+    private final int[] digitStarts = new int[MAX_NUMBERS];
+    private final int[] digitEnds = new int[MAX_NUMBERS];
+    private final byte[] units = new byte[MAX_NUMBERS];
+    private int numberCount;
+
+    private final char[] cardinals = new char[2];
+    private final int[] cardinalPositions = new int[2];
+    private int cardinalCount;
+
+    private int commaPosition;
+    private boolean colons;
+    private final StringBuilder label = new StringBuilder();
+
+    /**
+     * Where the first label word starts and the last one ends in the line, or -1 for no label.
+     */
+    private int labelStart;
+    private int labelEnd;
+
+    /**
+     * Recognises UTM, MGRS, and geohash references, which are tried before the line is broken into tokens.
+     */
+    private final GridReferenceParser grid = new GridReferenceParser();
+
+    private long layout;
+    private int layoutTokens;
+
+    /**
+     * How the last line was arranged. The cardinals are indexes into the cardinals array, or -1 for none.
+     */
+    private int split;
+    private int firstCardinal;
+    private int secondCardinal;
+    private boolean firstIsLatitude;
+
+    private CharSequence line;
+    private double latitude;
+    private double longitude;
+    private Format format;
+    private Failure failure;
+
+    /**
+     * Scans a single line of input and converts it to decimal degrees. The results can be read back using the getters
+     * until the next line is scanned.
+     *
+     * @param input the user's input.
+     * @return true if the line was recognised as a coordinate, false otherwise.
+     */
+    public boolean scan(CharSequence input) {
+        reset(input);
+        try {
+            if (grid.parse(input, label)) {
+                latitude = grid.getLatitude();
+                longitude = grid.getLongitude();
+                format = grid.getFormat();
+                labelStart = grid.getLabelStart();
+                labelEnd = grid.getLabelEnd();
+                // a grid reference has no layout for the sniffer to lock onto
+                layoutTokens = MAX_LAYOUT_TOKENS + 1;
+                return true;
+            }
+            return tokenize() && arrange() && convert();
+        } finally {
+            line = null;
+        }
+    }
+
+    /**
+     * Scans a line which is expected to have the given layout, taken from an earlier line. Each token is only checked
+     * against what the layout expects in its place, and the line is arranged the same way as the earlier line. Label
+     * words are only accepted after the coordinate.
+     *
+     * @param input  the user's input.
+     * @param layout the expected layout.
+     * @return true if the line has the layout and was converted, false if it needs to be scanned in full.
+     */
+    public boolean scan(CharSequence input, Layout layout) {
+        reset(input);
+        try {
+            if (!matchLayout(layout.code)) {
+                return false;
+            }
+            split = layout.split;
+            firstCardinal = layout.firstCardinal;
+            secondCardinal = layout.secondCardinal;
+            firstIsLatitude = layout.firstIsLatitude;
+            return convert();
+        } finally {
+            line = null;
+        }
+    }
+
+    /**
+     * Gets the layout of the last successfully scanned line, which can be used to scan similar lines faster.
+     *
+     * @return the layout, or null if the line had too many tokens to have one.
+     */
+    public Layout getLayout() {
+        if (layoutTokens > MAX_LAYOUT_TOKENS) {
+            return null;
+        }
+        return new Layout(layout, split, firstCardinal, secondCardinal, firstIsLatitude);
+    }
+
+    /**
+     * Gets the latitude of the last successfully scanned line.
+     *
+     * @return latitude in decimal degrees.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Gets the longitude of the last successfully scanned line.
+     *
+     * @return longitude in decimal degrees.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Gets the format the last successfully scanned line was classified as.
+     *
+     * @return the format of the line.
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets why the last line scanned in full could not be converted.
+     *
+     * @return the reason, or null if the line was converted or only failed to match a layout.
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the words found in the last scanned line which do not belong to the coordinate. Each word is followed by a
+     * single space.
+     *
+     * @return the extra words in the line, or an empty string if there were none.
+     */
+    public String getLabel() {
+        return label.length() == 0 ? "" : label.toString();
+    }
+
+    /**
+     * Gets where the label words of the last scanned line start, so the label can be taken from the line itself
+     * rather than copied. The label runs from the start of its first word to the end of its last, so it includes
+     * anything between the words.
+     *
+     * @return the index of the first character of the first label word, or -1 if there were no words.
+     */
+    public int getLabelStart() {
+        return labelStart;
+    }
+
+    /**
+     * Gets where the label words of the last scanned line end.
+     *
+     * @return the index after the last character of the last label word, or -1 if there were no words.
+     */
+    public int getLabelEnd() {
+        return labelEnd;
+    }
+
+    private void reset(CharSequence input) {
+        line = input;
+        numberCount = 0;
+        cardinalCount = 0;
+        commaPosition = -1;
+        colons = false;
+        label.setLength(0);
+        labelStart = -1;
+        labelEnd = -1;
+        format = null;
+        failure = null;
+        layout = 0;
+        layoutTokens = 0;
+    }
+
+    private void appendLabel(int start, int end) {
+        if (labelStart < 0) {
+            labelStart = start;
+        }
+        labelEnd = end;
+        label.append(line, start, end).append(' ');
+    }
+
+    private void addToken(int token) {
+        layout = layout << 4 | token;
+        layoutTokens++;
+    }
+
+    /**
+     * Walks the line once, recording numbers, the unit marker following each number, cardinal letters, the first
+     * comma, and label words.
+     *
+     * @return false if the line contains something which can not be part of a coordinate.
+     */
+    private boolean tokenize() {
+        int length = line.length();
+        boolean afterNumber = false;
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (isDigit(c) || c == '.' || ((c == '-' || c == '+') && i + 1 < length
+                    && (isDigit(line.charAt(i + 1)) || line.charAt(i + 1) == '.'))) {
+                if (numberCount == MAX_NUMBERS) {
+                    return fail(Failure.TOO_MANY_NUMBERS);
+                }
+                i = scanNumber(i, length);
+                if (i < 0) {
+                    return fail(Failure.MALFORMED_NUMBER);
+                }
+                addToken(TOKEN_NUMBER);
+                afterNumber = true;
+                continue;
+            }
+            int wordEnd = labelWordEnd(i);
+            if (wordEnd >= 0) {
+                // words are removed from the coordinate and kept as the label
+                appendLabel(i, wordEnd);
+                i = wordEnd;
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\u00a0':
+                    // whitespace only separates tokens
+                    break;
+                case ',':
+                    if (commaPosition < 0 && numberCount > 0) {
+                        commaPosition = numberCount;
+                    }
+                    addToken(TOKEN_COMMA);
+                    afterNumber = false;
+                    break;
+                case '°':
+                case 'd':
+                    if (!setUnit(afterNumber, UNIT_DEGREE)) {
+                        return fail(Failure.MISPLACED_UNIT);
+                    }
+                    break;
+                case '\'':
+                case '′':
+                case 'm':
+                    if (!setUnit(afterNumber, UNIT_MINUTE)) {
+                        return fail(Failure.MISPLACED_UNIT);
+                    }
+                    break;
+                case '"':
+                case '″':
+                case 's':
+                    if (!setUnit(afterNumber, UNIT_SECOND)) {
+                        return fail(Failure.MISPLACED_UNIT);
+                    }
+                    break;
+                case ':':
+                    if (!setUnit(afterNumber, UNIT_COLON)) {
+                        return fail(Failure.MISPLACED_UNIT);
+                    }
+                    colons = true;
+                    break;
+                case 'N':
+                case 'S':
+                case 'E':
+                case 'W':
+                case 'n':
+                case 'e':
+                case 'w':
+                    if (cardinalCount == cardinals.length) {
+                        return fail(Failure.CARDINAL_CONFLICT);
+                    }
+                    addCardinal(c);
+                    afterNumber = false;
+                    break;
+                default:
+                    return fail(Failure.UNEXPECTED_CHARACTER);
+            }
+            i++;
+        }
+        return numberCount > 0 || fail(Failure.NO_NUMBERS);
+    }
+
+    /**
+     * Reads a number starting at the given index. Values are computed as an exact mantissa divided by an exact power
+     * of ten, which gives the same correctly rounded result as Double.parseDouble without creating a string.
+     *
+     * @return the index after the number, or -1 if the number is malformed.
+     */
+    private int scanNumber(int start, int length) {
+        int i = start;
+        boolean minus = false;
+        char c = line.charAt(i);
+        if (c == '-' || c == '+') {
+            minus = c == '-';
+            i++;
+        }
+        int digitStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        while (i < length) {
+            c = line.charAt(i);
+            if (isDigit(c)) {
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                digits++;
+                if (point) {
+                    fractionDigits++;
+                }
+            } else if (c == '.') {
+                if (point) {
+                    return -1;
+                }
+                point = true;
+            } else {
+                break;
+            }
+            i++;
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        double value;
+        if (digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        } else {
+            // too many digits to be exact, so let the JDK do the rounding
+            value = Double.parseDouble(line.subSequence(digitStart, i).toString());
+        }
+        int n = numberCount++;
+        values[n] = minus ? -value : value;
+        negative[n] = minus;
+        integral[n] = !point;
+        digitStarts[n] = digitStart;
+        digitEnds[n] = i;
+        units[n] = UNIT_NONE;
+        return i;
+    }
+
+    /**
+     * Records why the line could not be converted.
+     *
+     * @return false, so a check can fail with the reason in one statement.
+     */
+    private boolean fail(Failure reason) {
+        failure = reason;
+        return false;
+    }
+
+    private boolean setUnit(boolean afterNumber, byte unit) {
+        if (!afterNumber || units[numberCount - 1] != UNIT_NONE) {
+            return false;
+        }
+        units[numberCount - 1] = unit;
+        // the unit constants line up with their token codes
+        addToken(TOKEN_DEGREE + unit - UNIT_DEGREE);
+        return true;
+    }
+
+    /**
+     * Finds the end of the label word starting at an index. A word is a run of two or more letters, except for unit
+     * letters followed by a cardinal letter straight after a number's digits, such as the sN of 46sN. Those are read a
+     * letter at a time, so the cardinal letter is never lost to the label, and a run which does not read as units,
+     * such as the dmN of 40dmN, fails the line. The same letters apart from a number, such as the de of Santiago de
+     * Chile, are a word. The full scan and the layout matcher both use this, so a locked layout reads a line's words
+     * the same way a full scan does.
+     *
+     * @return the index after the word, or -1 if no word starts there.
+     */
+    private int labelWordEnd(int start) {
+        int length = line.length();
+        int end = start;
+        while (end < length && isWordCharacter(line.charAt(end))) {
+            end++;
+        }
+        if (end - start < 2) {
+            return -1;
+        }
+        // the run may follow unit letters already read a letter at a time, such as the mN after the d of 40dmN
+        int before = start;
+        while (before > 0 && isUnitLetter(line.charAt(before - 1))) {
+            before--;
+        }
+        if (before > 0 && (isDigit(line.charAt(before - 1)) || line.charAt(before - 1) == '.')
+                && isUnitsThenCardinal(start, end)) {
+            return -1;
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether a run of letters is unit letters followed by a cardinal letter.
+     */
+    private boolean isUnitsThenCardinal(int start, int end) {
+        for (int i = start; i < end - 1; i++) {
+            if (!isUnitLetter(line.charAt(i))) {
+                return false;
+            }
+        }
+        switch (line.charAt(end - 1)) {
+            case 'N':
+            case 'S':
+            case 'E':
+            case 'W':
+            case 'n':
+            case 'e':
+            case 'w':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isUnitLetter(char c) {
+        return c == 'd' || c == 'm' || c == 's';
+    }
+
+    private void addCardinal(char c) {
+        char cardinal = Character.toUpperCase(c);
+        cardinals[cardinalCount] = cardinal;
+        cardinalPositions[cardinalCount] = numberCount;
+        cardinalCount++;
+        addToken(isLatitude(cardinal) ? TOKEN_LATITUDE_CARDINAL : TOKEN_LONGITUDE_CARDINAL);
+    }
+
+    /**
+     * Walks the line expecting exactly the tokens of a layout, in order, followed by nothing but label words.
+     *
+     * @return false as soon as the line differs from the layout.
+     */
+    private boolean matchLayout(long code) {
+        int length = line.length();
+        int i = 0;
+        int shift = 64 - Long.numberOfLeadingZeros(code);
+        // round up to a whole token
+        shift = (shift + 3) / 4 * 4;
+        while (shift > 0) {
+            shift -= 4;
+            int token = (int) (code >>> shift) & 0xf;
+            while (i < length && isSpace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return false;
+            }
+            char c = line.charAt(i);
+            if (token == TOKEN_NUMBER) {
+                if (!(isDigit(c) || c == '.' || c == '-' || c == '+')) {
+                    return false;
+                }
+                i = scanNumber(i, length);
+                if (i < 0) {
+                    return false;
+                }
+                continue;
+            }
+            if (labelWordEnd(i) >= 0) {
+                // a word where a letter was expected
+                return false;
+            }
+            switch (token) {
+                case TOKEN_DEGREE:
+                    if (!(c == '°' || c == 'd') || !setUnit(true, UNIT_DEGREE)) {
+                        return false;
+                    }
+                    break;
+                case TOKEN_MINUTE:
+                    if (!(c == '\'' || c == '′' || c == 'm') || !setUnit(true, UNIT_MINUTE)) {
+                        return false;
+                    }
+                    break;
+                case TOKEN_SECOND:
+                    if (!(c == '"' || c == '″' || c == 's') || !setUnit(true, UNIT_SECOND)) {
+                        return false;
+                    }
+                    break;
+                case TOKEN_COLON:
+                    if (c != ':' || !setUnit(true, UNIT_COLON)) {
+                        return false;
+                    }
+                    break;
+                case TOKEN_LATITUDE_CARDINAL:
+                    if (!(c == 'N' || c == 'S' || c == 'n')) {
+                        return false;
+                    }
+                    addCardinal(c);
+                    break;
+                case TOKEN_LONGITUDE_CARDINAL:
+                    if (!(c == 'E' || c == 'W' || c == 'e' || c == 'w')) {
+                        return false;
+                    }
+                    addCardinal(c);
+                    break;
+                default:
+                    if (c != ',') {
+                        return false;
+                    }
+                    addToken(TOKEN_COMMA);
+                    break;
+            }
+            i++;
+        }
+        while (i < length) {
+            char c = line.charAt(i);
+            if (isSpace(c)) {
+                i++;
+                continue;
+            }
+            int end = labelWordEnd(i);
+            if (end < 0) {
+                return false;
+            }
+            appendLabel(i, end);
+            i = end;
+        }
+        return true;
+    }
+
+    /**
+     * Works out which numbers belong to the latitude half and which to the longitude half, and which cardinal letter
+     * goes with each half.
+     *
+     * @return false if the numbers can not be arranged into a coordinate pair.
+     */
+    private boolean arrange() {
+        boolean prefix = cardinalCount > 0 && cardinalPositions[0] == 0;
+        split = -1;
+        if (commaPosition > 0 && commaPosition < numberCount) {
+            split = commaPosition;
+        } else if (prefix) {
+            if (cardinalCount == 2) {
+                split = cardinalPositions[1];
+            }
+        } else if (cardinalCount > 0) {
+            split = cardinalPositions[0];
+        }
+        if (split <= 0 || split >= numberCount) {
+            split = structuralSplit();
+        }
+        if (split <= 0 || split >= numberCount || split > 3 || numberCount - split > 3) {
+            return fail(Failure.UNPAIRED);
+        }
+
+        // Cardinals before a number belong to the half they start, cardinals after a number to the half they end.
+        firstCardinal = -1;
+        secondCardinal = -1;
+        for (int i = 0; i < cardinalCount; i++) {
+            int position = cardinalPositions[i];
+            boolean firstHalf = prefix ? position < split : position <= split;
+            if (firstHalf) {
+                if (firstCardinal >= 0) {
+                    return fail(Failure.CARDINAL_CONFLICT);
+                }
+                firstCardinal = i;
+            } else {
+                if (secondCardinal >= 0) {
+                    return fail(Failure.CARDINAL_CONFLICT);
+                }
+                secondCardinal = i;
+            }
+        }
+
+        if (firstCardinal >= 0 && secondCardinal >= 0) {
+            if (isLatitude(cardinals[firstCardinal]) == isLatitude(cardinals[secondCardinal])) {
+                return fail(Failure.CARDINAL_CONFLICT);
+            }
+            firstIsLatitude = isLatitude(cardinals[firstCardinal]);
+        } else if (firstCardinal >= 0) {
+            firstIsLatitude = isLatitude(cardinals[firstCardinal]);
+        } else if (secondCardinal >= 0) {
+            firstIsLatitude = !isLatitude(cardinals[secondCardinal]);
+        } else {
+            firstIsLatitude = true;
+        }
+        return true;
+    }
+
+    /**
+     * Converts each half of an arranged line and applies its cardinal letter.
+     *
+     * @return false if either half is malformed.
+     */
+    private boolean convert() {
+        if (split <= 0 || split >= numberCount) {
+            return fail(Failure.UNPAIRED);
+        }
+        char first = firstCardinal >= 0 ? cardinals[firstCardinal] : 0;
+        char second = secondCardinal >= 0 ? cardinals[secondCardinal] : 0;
+        double firstValue = halfValue(0, split, firstIsLatitude);
+        double secondValue = halfValue(split, numberCount, !firstIsLatitude);
+        if (Double.isNaN(firstValue) || Double.isNaN(secondValue)) {
+            return fail(Failure.MALFORMED_VALUE);
+        }
+        firstValue = applyCardinal(first, firstValue);
+        secondValue = applyCardinal(second, secondValue);
+        latitude = firstIsLatitude ? firstValue : secondValue;
+        longitude = firstIsLatitude ? secondValue : firstValue;
+
+        int components = Math.max(split, numberCount - split);
+        if (format == null) {
+            if (components == 3) {
+                format = Format.DEGREES_MINUTES_SECONDS;
+            } else if (components == 2) {
+                format = Format.DEGREE_DECIMAL_MINUTES;
+            } else if (cardinalCount > 0) {
+                format = Format.DECIMAL_CARDINAL;
+            } else {
+                format = Format.DECIMAL_DEGREES;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds where the longitude starts when there is no comma or cardinal letter to go by. A degree marker starts a
+     * new half, a colon continues the current one, and failing both the numbers are shared out evenly.
+     */
+    private int structuralSplit() {
+        for (int i = 1; i < numberCount; i++) {
+            if (units[i] == UNIT_DEGREE) {
+                return i;
+            }
+        }
+        if (colons) {
+            for (int i = 0; i < numberCount - 1; i++) {
+                if (units[i] != UNIT_COLON) {
+                    return i + 1;
+                }
+            }
+        }
+        if (numberCount % 2 == 0) {
+            return numberCount / 2;
+        }
+        return -1;
+    }
+
+    /**
+     * Converts one to three numbers into decimal degrees using the dms conversion formula. A lone whole number too long
+     * to be a degree value is decoded as packed degrees, minutes, and seconds.
+     *
+     * @return the converted value, or NaN if the half is malformed.
+     */
+    private double halfValue(int from, int to, boolean latitude) {
+        for (int i = from + 1; i < to; i++) {
+            if (negative[i]) {
+                return Double.NaN;
+            }
+        }
+        if (to - from == 1) {
+            int degreeDigits = latitude ? 2 : 3;
+            if (integral[from] && digitEnds[from] - digitStarts[from] >= degreeDigits + 4) {
+                format = Format.PACKED_DMS;
+                return packedValue(from, degreeDigits);
+            }
+            return values[from];
+        }
+        double minutes = values[from + 1] / 60;
+        if (to - from == 2) {
+            return negative[from] ? values[from] - minutes : values[from] + minutes;
+        }
+        double rest = minutes + (values[from + 2] / 3600);
+        return negative[from] ? values[from] - rest : values[from] + rest;
+    }
+
+    /**
+     * Decodes a packed value such as 402646302, being two or three degree digits, two minute digits, two second digits
+     * and any remaining digits as decimal places of the seconds.
+     */
+    private double packedValue(int index, int degreeDigits) {
+        int start = digitStarts[index];
+        int end = digitEnds[index];
+        if (end - start > MAX_PACKED_DIGITS) {
+            return Double.NaN;
+        }
+        double degrees = digitValue(start, start + degreeDigits);
+        double minutes = digitValue(start + degreeDigits, start + degreeDigits + 2);
+        int fractionDigits = end - start - degreeDigits - 4;
+        double seconds = digitValue(start + degreeDigits + 2, end) / POWERS_OF_TEN[fractionDigits];
+        double rest = (minutes / 60) + (seconds / 3600);
+        return negative[index] ? -degrees - rest : degrees + rest;
+    }
+
+    private long digitValue(int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (line.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Business logic to check if a value should be positive or negative depending on the cardinal.
+     */
+    private static double applyCardinal(char cardinal, double value) {
+        if (((cardinal == 'S' || cardinal == 'W') && value > 0) || ((cardinal == 'N' || cardinal == 'E') && value < 0)) {
+            return -value;
+        }
+        return value;
+    }
+
+    private static boolean isLatitude(char cardinal) {
+        return cardinal == 'N' || cardinal == 'S';
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\u00a0';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c > 0x7f && Character.isLetter(c));
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates input of any size from random coordinates whose true values are known, rendered in every format the README
+ * lists, along with the output each line should convert to. AccuracyHarness then checks the converter against it.
+ * <p>
+ * Each variant picks its symbols, cardinal letters, and separators at random from the choices the README gives, such
+ * as d or ° for degrees, ' or ′ or m for minutes, " or ″ or s for seconds, cardinal letters before or after the
+ * numbers, and a comma, a space, or both between latitude and longitude. Coordinates are chosen at the precision the
+ * variant can show, so the expected value is exactly what the line says. Latitudes above 90 and longitudes above 180
+ * are not generated, as the converter writes them as they are rather than rejecting them.
+ * <p>
+ * Run with the number of lines, the input file, the expected output file, and optionally a random seed. The expected
+ * output is tab separated, one row per line of input: the variant, then the latitude, longitude, and label.
+ */
+public class CorpusGenerator {
+    /**
+     * The kinds of line generated, each in turn.
+     */
+    public enum Variant {
+        DECIMAL,
+        DECIMAL_CARDINAL,
+        DECIMAL_MINUTES,
+        DMS_SYMBOLS,
+        DMS_COLON,
+        DMS_SPACED,
+        PACKED_DMS,
+        LABELLED
+    }
+
+    private static final String[] LABELS = {"Pittsburgh", "Dunedin", "Station", "Base Camp", "Harbour Light",
+            "Pittsburgh Pennsylvania"};
+    private static final String[] DEGREE_SYMBOLS = {"°", "d"};
+    private static final String[] MINUTE_SYMBOLS = {"'", "′", "m"};
+    private static final String[] SECOND_SYMBOLS = {"\"", "″", "s"};
+    private static final String[] SEPARATORS = {", ", " ", ","};
+
+    private final Random random;
+    private final StringBuilder line = new StringBuilder();
+
+    private double latitude;
+    private double longitude;
+    private String label;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the random seed, so the same corpus can be made again.
+     */
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CorpusGenerator <lines> <input file> <expected file> [seed]");
+            System.exit(1);
+            return;
+        }
+        long lines = Long.parseLong(args[0]);
+        CorpusGenerator generator = new CorpusGenerator(args.length > 3 ? Long.parseLong(args[3]) : 1);
+        Variant[] variants = Variant.values();
+        try (Writer input = Files.newBufferedWriter(Path.of(args[1]));
+             BufferedWriter expected = Files.newBufferedWriter(Path.of(args[2]))) {
+            for (long i = 0; i < lines; i++) {
+                Variant variant = variants[(int) (i % variants.length)];
+                input.write(generator.next(variant));
+                input.write('\n');
+                expected.write(generator.expected(variant));
+                expected.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Generates the next line.
+     *
+     * @param variant the kind of line.
+     * @return the line, without a line terminator.
+     */
+    public String next(Variant variant) {
+        line.setLength(0);
+        label = "";
+        switch (variant) {
+            case DECIMAL:
+                decimal();
+                break;
+            case DECIMAL_CARDINAL:
+                decimalCardinal();
+                break;
+            case DECIMAL_MINUTES:
+                decimalMinutes();
+                break;
+            case DMS_SYMBOLS:
+                dmsSymbols();
+                break;
+            case DMS_COLON:
+                dmsColon();
+                break;
+            case DMS_SPACED:
+                dmsSpaced();
+                break;
+            case PACKED_DMS:
+                packedDms();
+                break;
+            case LABELLED:
+                next(Variant.values()[random.nextInt(Variant.LABELLED.ordinal())]);
+                label = LABELS[random.nextInt(LABELS.length)];
+                line.append(' ').append(label);
+                break;
+        }
+        return line.toString();
+    }
+
+    /**
+     * @param variant the kind of the line last generated.
+     * @return the expected output of the line last generated, as a row of the expected output file.
+     */
+    public String expected(Variant variant) {
+        return String.format(Locale.ROOT, "%s\t%.9f\t%.9f\t%s", variant, latitude, longitude, label);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * {@code 40.446195, -79.982195}
+     */
+    private void decimal() {
+        latitude = fixed(90, 6);
+        longitude = fixed(180, 6);
+        line.append(format(latitude, 6)).append(pick(SEPARATORS)).append(format(longitude, 6));
+    }
+
+    /**
+     * {@code 40.446195N 79.982195W}, {@code 40.446195 N, 79.982195 W}, or {@code N40.446195 W79.982195}
+     */
+    private void decimalCardinal() {
+        latitude = fixed(90, 6);
+        longitude = fixed(180, 6);
+        boolean before = random.nextBoolean();
+        String space = !before && random.nextBoolean() ? " " : "";
+        if (before) {
+            line.append(latitude < 0 ? 'S' : 'N').append(format(Math.abs(latitude), 6)).append(' ')
+                    .append(longitude < 0 ? 'W' : 'E').append(format(Math.abs(longitude), 6));
+        } else {
+            line.append(format(Math.abs(latitude), 6)).append(space).append(latitude < 0 ? 'S' : 'N')
+                    .append(pick(SEPARATORS))
+                    .append(format(Math.abs(longitude), 6)).append(space).append(longitude < 0 ? 'W' : 'E');
+        }
+    }
+
+    /**
+     * {@code 40° 26.7717, -79° 58.9317}, {@code 49d30.0m,-123d30.0'}, or {@code 77° 30.5' S, 164° 45.25' E}
+     */
+    private void decimalMinutes() {
+        int places = 1 + random.nextInt(4);
+        int scale = (int) Math.pow(10, places);
+        int latitudeDegrees = random.nextInt(90);
+        int latitudeMinutes = random.nextInt(60 * scale);
+        int longitudeDegrees = random.nextInt(180);
+        int longitudeMinutes = random.nextInt(60 * scale);
+        boolean south = random.nextBoolean();
+        boolean west = random.nextBoolean();
+        latitude = sign(south, latitudeDegrees + latitudeMinutes / (60.0 * scale));
+        longitude = sign(west, longitudeDegrees + longitudeMinutes / (60.0 * scale));
+        String degree = pick(DEGREE_SYMBOLS);
+        String space = degree.equals("°") ? " " : "";
+        String minute = random.nextBoolean() ? pick(MINUTE_SYMBOLS) : "";
+        if (random.nextBoolean()) {
+            line.append(south ? "-" : "").append(latitudeDegrees).append(degree).append(space)
+                    .append(format(latitudeMinutes / (double) scale, places)).append(minute)
+                    .append(pick(SEPARATORS))
+                    .append(west ? "-" : "").append(longitudeDegrees).append(degree).append(space)
+                    .append(format(longitudeMinutes / (double) scale, places)).append(minute);
+        } else {
+            line.append(latitudeDegrees).append(degree).append(space)
+                    .append(format(latitudeMinutes / (double) scale, places)).append(minute).append(' ')
+                    .append(south ? 'S' : 'N').append(", ")
+                    .append(longitudeDegrees).append(degree).append(space)
+                    .append(format(longitudeMinutes / (double) scale, places)).append(minute).append(' ')
+                    .append(west ? 'W' : 'E');
+        }
+    }
+
+    /**
+     * {@code 40°26′46″N 079°58′56″W}, {@code 40° 26′ 46″ N 79° 58′ 56″ W}, {@code N40°26′46″ W079°58′56″}, or
+     * {@code 50 d 55 m 14.9484 s N, 11 d 34 m 41.0628 s E}
+     */
+    private void dmsSymbols() {
+        int places = random.nextInt(5);
+        String degree = pick(DEGREE_SYMBOLS);
+        String minute = degree.equals("d") && random.nextBoolean() ? "m" : pick(MINUTE_SYMBOLS);
+        String second = minute.equals("m") ? "s" : pick(SECOND_SYMBOLS);
+        boolean spaced = random.nextBoolean();
+        boolean before = !spaced && random.nextBoolean();
+        String gap = spaced ? " " : "";
+        String around = spaced && degree.equals("d") && minute.equals("m") ? " " : "";
+        String separator = before ? " " : pick(SEPARATORS);
+        boolean south = random.nextBoolean();
+        boolean west = random.nextBoolean();
+        latitude = sign(south, dms(places, 90));
+        longitude = sign(west, dms(places, 180));
+        for (int axis = 0; axis < 2; axis++) {
+            double value = Math.abs(axis == 0 ? latitude : longitude);
+            char cardinal = axis == 0 ? (south ? 'S' : 'N') : (west ? 'W' : 'E');
+            if (axis == 1) {
+                line.append(separator);
+            }
+            if (before) {
+                line.append(cardinal);
+            }
+            line.append(axis == 1 && !spaced ? String.format(Locale.ROOT, "%03d", degrees(value)) : degrees(value))
+                    .append(around).append(degree).append(gap)
+                    .append(minutes(value)).append(around).append(minute).append(gap)
+                    .append(format(seconds(value, places), places)).append(around).append(second);
+            if (!before) {
+                // a cardinal letter straight after the letter s would read as a word
+                line.append(second.equals("s") ? " " : gap).append(cardinal);
+            }
+        }
+    }
+
+    /**
+     * {@code 40:26:46.302N 079:58:55.903W} or {@code N40:26:46.302 W079:58:55.903}
+     */
+    private void dmsColon() {
+        int places = random.nextInt(4);
+        boolean before = random.nextBoolean();
+        boolean south = random.nextBoolean();
+        boolean west = random.nextBoolean();
+        latitude = sign(south, dms(places, 90));
+        longitude = sign(west, dms(places, 180));
+        for (int axis = 0; axis < 2; axis++) {
+            double value = Math.abs(axis == 0 ? latitude : longitude);
+            char cardinal = axis == 0 ? (south ? 'S' : 'N') : (west ? 'W' : 'E');
+            if (axis == 1) {
+                line.append(' ');
+            }
+            if (before) {
+                line.append(cardinal);
+            }
+            line.append(String.format(Locale.ROOT, axis == 0 ? "%02d:%02d:" : "%03d:%02d:", degrees(value),
+                    minutes(value)));
+            if (seconds(value, places) < 10) {
+                line.append('0');
+            }
+            line.append(format(seconds(value, places), places));
+            if (!before) {
+                line.append(cardinal);
+            }
+        }
+    }
+
+    /**
+     * {@code 40 26 46 N, 79 58 56 W}
+     */
+    private void dmsSpaced() {
+        boolean south = random.nextBoolean();
+        boolean west = random.nextBoolean();
+        latitude = sign(south, dms(0, 90));
+        longitude = sign(west, dms(0, 180));
+        double lat = Math.abs(latitude);
+        double lon = Math.abs(longitude);
+        line.append(degrees(lat)).append(' ').append(minutes(lat)).append(' ').append(format(seconds(lat, 0), 0))
+                .append(' ').append(south ? 'S' : 'N').append(", ")
+                .append(degrees(lon)).append(' ').append(minutes(lon)).append(' ').append(format(seconds(lon, 0), 0))
+                .append(' ').append(west ? 'W' : 'E');
+    }
+
+    /**
+     * {@code 402646302N 0795855903W} or {@code N402646302 W0795855903}, seconds to three places
+     */
+    private void packedDms() {
+        boolean before = random.nextBoolean();
+        boolean south = random.nextBoolean();
+        boolean west = random.nextBoolean();
+        latitude = sign(south, dms(3, 90));
+        longitude = sign(west, dms(3, 180));
+        for (int axis = 0; axis < 2; axis++) {
+            double value = Math.abs(axis == 0 ? latitude : longitude);
+            char cardinal = axis == 0 ? (south ? 'S' : 'N') : (west ? 'W' : 'E');
+            if (axis == 1) {
+                line.append(' ');
+            }
+            if (before) {
+                line.append(cardinal);
+            }
+            line.append(String.format(Locale.ROOT, axis == 0 ? "%02d%02d%05d" : "%03d%02d%05d", degrees(value),
+                    minutes(value), Math.round(seconds(value, 3) * 1000)));
+            if (!before) {
+                line.append(cardinal);
+            }
+        }
+    }
+
+    /**
+     * Picks a value below a limit in either direction, rounded to a number of decimal places.
+     */
+    private double fixed(int limit, int places) {
+        long scale = (long) Math.pow(10, places);
+        long units = (long) (random.nextDouble() * limit * scale);
+        return (random.nextBoolean() ? -units : units) / (double) scale;
+    }
+
+    /**
+     * Picks whole degrees and minutes and seconds to a number of places, below a limit in degrees.
+     */
+    private double dms(int places, int limit) {
+        long scale = (long) Math.pow(10, places);
+        int degrees = random.nextInt(limit);
+        int minutes = random.nextInt(60);
+        long seconds = (long) (random.nextDouble() * 60 * scale);
+        return degrees + minutes / 60.0 + seconds / (3600.0 * scale);
+    }
+
+    private static int degrees(double value) {
+        return (int) (value + 1e-9);
+    }
+
+    private static int minutes(double value) {
+        return (int) ((value - degrees(value)) * 60 + 1e-7);
+    }
+
+    private static double seconds(double value, int places) {
+        double seconds = (value - degrees(value) - minutes(value) / 60.0) * 3600;
+        double scale = Math.pow(10, places);
+        return Math.max(Math.round(seconds * scale) / scale, 0);
+    }
+
+    private static double sign(boolean negative, double value) {
+        return negative ? -value : value;
+    }
+
+    private static String format(double value, int places) {
+        return String.format(Locale.ROOT, "%." + places + "f", value);
+    }
+
+    private String pick(String[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+}
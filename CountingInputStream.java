@@ -0,0 +1,57 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Passes on the number of bytes read through it, for example to ConversionMetrics.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final LongConsumer counter;
+
+    /**
+     * Creates a counting stream.
+     *
+     * @param in      the stream to read from.
+     * @param counter given the number of bytes each time some are read.
+     */
+    public CountingInputStream(InputStream in, LongConsumer counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            counter.accept(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            counter.accept(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            counter.accept(skipped);
+        }
+        return skipped;
+    }
+
+    /**
+     * Marking is not supported, as bytes read again after a reset would be counted twice.
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
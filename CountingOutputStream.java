@@ -0,0 +1,35 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Passes on the number of bytes written through it, for example to ConversionMetrics.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final LongConsumer counter;
+
+    /**
+     * Creates a counting stream.
+     *
+     * @param out     the stream to write to.
+     * @param counter given the number of bytes each time some are written.
+     */
+    public CountingOutputStream(OutputStream out, LongConsumer counter) {
+        super(out);
+        this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        counter.accept(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // FilterOutputStream would write the bytes one at a time
+        out.write(b, off, len);
+        counter.accept(len);
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts delimited input, such as CSV or TSV with a header row, where the coordinates are in one column or split
+ * across a latitude and a longitude column and the other columns are attributes of each point.
+ * <p>
+ * The text of the coordinate columns goes through the usual format detection, so any format the converter recognises
+ * can be used, with the latitude column first when there are two. A column called name, in any case, names each point
+ * in place of any label found in the coordinates. Every other column becomes an attribute, typed and shared between
+ * rows by an AttributeDictionary for each column.
+ */
+public class DelimitedConverter {
+    private static final String[] LATITUDE_NAMES = {"lat", "latitude", "y"};
+    private static final String[] LONGITUDE_NAMES = {"lon", "lng", "long", "longitude", "x"};
+
+    private final DelimitedParser parser;
+    private final String columns;
+    private final int dictionaryLimit;
+
+    private long rows;
+    private long converted;
+    private AttributeDictionary[] dictionaries = new AttributeDictionary[0];
+
+    /**
+     * Creates a converter for delimited input.
+     *
+     * @param delimiter       the character between fields, such as ',' or '\t'.
+     * @param columns         the coordinate column, or the latitude and longitude columns separated by a comma, each
+     *                        given by its name in the header or its number counting from 1. Null looks for a latitude
+     *                        and longitude column by name, such as lat and lon.
+     * @param dictionaryLimit the most distinct values to remember for each attribute column.
+     */
+    public DelimitedConverter(char delimiter, String columns, int dictionaryLimit) {
+        this.parser = new DelimitedParser(delimiter);
+        this.columns = columns;
+        this.dictionaryLimit = dictionaryLimit;
+    }
+
+    /**
+     * Reads the header, then converts each row and writes it out as soon as it has been converted.
+     *
+     * @param input     where lines are read from.
+     * @param out       where points are written to, along with their attributes.
+     * @param converter the converter to use for the coordinate text.
+     * @throws IOException              if reading or writing fails.
+     * @throws IllegalArgumentException if the coordinate columns can not be found in the header.
+     */
+    public void convert(LineSource input, PointWriter out, CoordinateJSONConverter converter) throws IOException {
+        if (!parser.next(input)) {
+            return;
+        }
+        String[] header = new String[parser.getFieldCount()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = parser.getField(i).strip();
+        }
+        int[] coordinateColumns = coordinateColumns(header);
+        int nameColumn = -1;
+        int[] attributeColumns = new int[header.length];
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < header.length; i++) {
+            if (contains(coordinateColumns, i)) {
+                continue;
+            }
+            if (nameColumn < 0 && header[i].equalsIgnoreCase("name")) {
+                nameColumn = i;
+            } else {
+                attributeColumns[keys.size()] = i;
+                keys.add(header[i]);
+            }
+        }
+        Attributes attributes = new Attributes(keys.toArray(new String[0]));
+        dictionaries = new AttributeDictionary[attributes.size()];
+        for (int i = 0; i < dictionaries.length; i++) {
+            dictionaries[i] = new AttributeDictionary(dictionaryLimit, true);
+        }
+        AttributeDictionary names = new AttributeDictionary(dictionaryLimit, false);
+
+        StringBuilder coordinates = new StringBuilder();
+        CoordinateBuffer point = new CoordinateBuffer(1);
+        while (parser.next(input)) {
+            rows++;
+            CharSequence chars = parser.getChars();
+            coordinates.setLength(0);
+            for (int i = 0; i < coordinateColumns.length; i++) {
+                if (i > 0) {
+                    coordinates.append(", ");
+                }
+                int column = coordinateColumns[i];
+                if (column < parser.getFieldCount()) {
+                    coordinates.append(chars, parser.start(column), parser.end(column));
+                }
+            }
+            converter.setNextLineNumber(parser.getLineNumber());
+            if (converter.convert(coordinates, point)) {
+                String name = point.getLabel(0);
+                if (nameColumn >= 0) {
+                    Object value = nameColumn < parser.getFieldCount()
+                            ? names.valueOf(chars, parser.start(nameColumn), parser.end(nameColumn)) : null;
+                    name = value != null ? (String) value : "";
+                }
+                for (int i = 0; i < attributes.size(); i++) {
+                    int column = attributeColumns[i];
+                    attributes.setValue(i, column < parser.getFieldCount()
+                            ? dictionaries[i].valueOf(chars, parser.start(column), parser.end(column)) : null);
+                }
+                out.writePoint(point.getLongitude(0), point.getLatitude(0), name, attributes);
+                point.clear();
+                converted++;
+            }
+            // only flush when the next read would block, so piped input is not flushed row by row
+            if (!input.ready()) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows read, not counting the header.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of rows converted.
+     */
+    public long getConverted() {
+        return converted;
+    }
+
+    @Override
+    public String toString() {
+        long distinct = 0;
+        long unshared = 0;
+        for (AttributeDictionary dictionary : dictionaries) {
+            distinct += dictionary.size();
+            unshared += dictionary.getMisses();
+        }
+        return "DelimitedConverter{" +
+                "rows=" + rows +
+                ", converted=" + converted +
+                ", distinctValues=" + distinct +
+                ", unsharedValues=" + unshared +
+                '}';
+    }
+
+    /**
+     * Finds the coordinate columns in the header, either those asked for or a latitude and longitude column.
+     */
+    private int[] coordinateColumns(String[] header) {
+        if (columns == null) {
+            int latitude = find(header, LATITUDE_NAMES);
+            int longitude = find(header, LONGITUDE_NAMES);
+            if (latitude < 0 || longitude < 0) {
+                throw new IllegalArgumentException(
+                        "No latitude and longitude columns in the header, choose the coordinate columns with --columns");
+            }
+            return new int[]{latitude, longitude};
+        }
+        String[] names = columns.split(",");
+        if (names.length > 2) {
+            throw new IllegalArgumentException("Give one coordinate column, or a latitude and a longitude column");
+        }
+        int[] found = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            found[i] = column(header, names[i].strip());
+        }
+        return found;
+    }
+
+    /**
+     * Finds a column by its name or its number counting from 1.
+     */
+    private static int column(String[] header, String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        try {
+            int number = Integer.parseInt(name);
+            if (number >= 1 && number <= header.length) {
+                return number - 1;
+            }
+        } catch (NumberFormatException e) {
+            // not a number either
+        }
+        throw new IllegalArgumentException("No column " + name + " in the header");
+    }
+
+    private static int find(String[] header, String[] names) {
+        for (int i = 0; i < header.length; i++) {
+            String column = header[i].toLowerCase(Locale.ROOT);
+            for (String name : names) {
+                if (column.equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(int[] columns, int column) {
+        for (int c : columns) {
+            if (c == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
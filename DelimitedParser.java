@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Splits delimited text, such as CSV or TSV, into records of fields, one character at a time.
+ * <p>
+ * A field in double quotes can hold the delimiter, a doubled quote for a quote, and line breaks, in which case the
+ * record carries on over the following lines. Anything after a closing quote is kept as part of the field. Blank lines
+ * between records are skipped.
+ * <p>
+ * The fields of the current record are written one after another into a single buffer, with quotes removed, and
+ * reached by their start and end in it, so reading a record creates no objects.
+ */
+public class DelimitedParser {
+    private final char delimiter;
+
+    private final StringBuilder chars = new StringBuilder();
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fields;
+
+    private long lines;
+    private long recordLine;
+
+    /**
+     * Creates a parser.
+     *
+     * @param delimiter the character between fields, such as ',' or '\t'.
+     */
+    public DelimitedParser(char delimiter) {
+        if (delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("The delimiter can not be a quote or line break");
+        }
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads the next record, replacing the fields of the last one.
+     *
+     * @param input where lines are read from.
+     * @return true if a record was read, false at the end of the input.
+     * @throws IOException if reading fails.
+     */
+    public boolean next(LineSource input) throws IOException {
+        CharSequence line;
+        do {
+            line = input.readLine();
+            if (line == null) {
+                return false;
+            }
+            lines++;
+        } while (line.length() == 0);
+        recordLine = lines;
+        chars.setLength(0);
+        fields = 0;
+
+        boolean quoted = false;
+        boolean afterQuote = false;
+        int start = 0;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        quoted = false;
+                        afterQuote = true;
+                    } else {
+                        chars.append(c);
+                    }
+                } else if (c == delimiter) {
+                    endField(start);
+                    start = chars.length();
+                    afterQuote = false;
+                } else if (c == '"' && (afterQuote || chars.length() == start)) {
+                    // an opening quote, or the second of a doubled quote inside a quoted field
+                    if (afterQuote) {
+                        chars.append('"');
+                    }
+                    quoted = true;
+                    afterQuote = false;
+                } else {
+                    chars.append(c);
+                    afterQuote = false;
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            // the quoted field carries on over the next line
+            line = input.readLine();
+            if (line == null) {
+                break;
+            }
+            lines++;
+            chars.append('\n');
+        }
+        endField(start);
+        return true;
+    }
+
+    /**
+     * @return the number of fields in the current record.
+     */
+    public int getFieldCount() {
+        return fields;
+    }
+
+    /**
+     * @return the buffer holding the fields of the current record, only valid until the next record is read.
+     */
+    public CharSequence getChars() {
+        return chars;
+    }
+
+    /**
+     * @param field the field, counting from 0.
+     * @return the index of the field's first character in the buffer.
+     */
+    public int start(int field) {
+        return starts[field];
+    }
+
+    /**
+     * @param field the field, counting from 0.
+     * @return the index after the field's last character in the buffer.
+     */
+    public int end(int field) {
+        return ends[field];
+    }
+
+    /**
+     * @param field the field, counting from 0.
+     * @return the field as a new string.
+     */
+    public String getField(int field) {
+        return chars.substring(starts[field], ends[field]);
+    }
+
+    /**
+     * @return the line number the current record starts on, counting from 1.
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    private void endField(int start) {
+        if (fields == starts.length) {
+            starts = Arrays.copyOf(starts, fields * 2);
+            ends = Arrays.copyOf(ends, fields * 2);
+        }
+        starts[fields] = start;
+        ends[fields] = chars.length();
+        fields++;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Writes doubles as ASCII digits straight into a character array, producing exactly the text of Double.toString, which
+ * is what gson writes for a number.
+ * <p>
+ * Values with a short decimal form, such as rounded coordinates, are written by finding the fewest decimal places which
+ * parse back to the same double, so no string is created. Anything else, including values too large or too precise
+ * for the search to be exact, falls back to Double.toString.
+ */
+public final class DoubleFormatter {
+    /**
+     * The longest text written for any double, for example -2.2250738585072014E-308.
+     */
+    public static final int MAX_LENGTH = 24;
+
+    /**
+     * Up to this many decimal places are searched before falling back.
+     */
+    private static final int MAX_DECIMALS = 17;
+
+    /**
+     * Units above this can not all be held exactly in a double.
+     */
+    private static final double MAX_EXACT = 0x1p53;
+
+    private static final double[] POWERS = new double[MAX_DECIMALS + 1];
+    private static final long[] LONG_POWERS = new long[MAX_DECIMALS + 1];
+
+    static {
+        double power = 1;
+        long longPower = 1;
+        for (int i = 0; i <= MAX_DECIMALS; i++) {
+            POWERS[i] = power;
+            LONG_POWERS[i] = longPower;
+            power *= 10;
+            longPower *= 10;
+        }
+    }
+
+    private DoubleFormatter() {
+    }
+
+    /**
+     * Writes a double into a character array.
+     *
+     * @param value  the value to write.
+     * @param buffer where to write, which needs MAX_LENGTH characters free after the offset.
+     * @param offset where in the buffer to start.
+     * @return the offset just after the last character written.
+     */
+    public static int getChars(double value, char[] buffer, int offset) {
+        if (value == 0) {
+            if (Double.doubleToRawLongBits(value) != 0) {
+                buffer[offset++] = '-';
+            }
+            buffer[offset++] = '0';
+            buffer[offset++] = '.';
+            buffer[offset++] = '0';
+            return offset;
+        }
+        double magnitude = Math.abs(value);
+        // Double.toString switches to scientific notation from 10^7 up
+        if (!(magnitude < 1e7)) {
+            return fallback(value, buffer, offset);
+        }
+
+        // the fewest decimal places whose closest double is this value
+        int decimals = 0;
+        double units = 0;
+        while (true) {
+            if (decimals > MAX_DECIMALS) {
+                return fallback(value, buffer, offset);
+            }
+            units = Math.rint(magnitude * POWERS[decimals]);
+            if (units >= MAX_EXACT) {
+                return fallback(value, buffer, offset);
+            }
+            if (units / POWERS[decimals] == magnitude) {
+                break;
+            }
+            decimals++;
+        }
+
+        if (value < 0) {
+            buffer[offset++] = '-';
+        }
+        long digits = (long) units;
+        if (magnitude >= 1e-3) {
+            offset = writeLong(digits / LONG_POWERS[decimals], buffer, offset);
+            buffer[offset++] = '.';
+            if (decimals == 0) {
+                buffer[offset++] = '0';
+            } else {
+                long fraction = digits % LONG_POWERS[decimals];
+                for (int i = offset + decimals - 1; i >= offset; i--) {
+                    buffer[i] = (char) ('0' + fraction % 10);
+                    fraction /= 10;
+                }
+                offset += decimals;
+            }
+            return offset;
+        }
+
+        // below 10^-3 Double.toString uses scientific notation, such as 1.25E-4
+        int length = digitCount(digits);
+        int first = offset;
+        offset = writeLong(digits, buffer, offset + 1);
+        buffer[first] = buffer[first + 1];
+        buffer[first + 1] = '.';
+        if (length == 1) {
+            buffer[offset++] = '0';
+        }
+        buffer[offset++] = 'E';
+        return writeLong(length - 1 - decimals, buffer, offset);
+    }
+
+    private static int fallback(double value, char[] buffer, int offset) {
+        String text = Double.toString(value);
+        text.getChars(0, text.length(), buffer, offset);
+        return offset + text.length();
+    }
+
+    /**
+     * Writes a whole number, with a minus sign if it is negative.
+     */
+    private static int writeLong(long value, char[] buffer, int offset) {
+        if (value < 0) {
+            buffer[offset++] = '-';
+            value = -value;
+        }
+        int end = offset + digitCount(value);
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count <= MAX_DECIMALS && value >= LONG_POWERS[count]) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,303 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sits in front of another point writer and collapses points which are within a tolerance of a point already seen, as
+ * happens when one place is given in several formats. A duplicate is either dropped, or merged into the first point by
+ * adding its name to the first point's name.
+ * <p>
+ * Points are bucketed into grid cells at least the tolerance across, so only the cells next to a point's own cell need
+ * to be checked. Cells are bands of latitude split into equal spans of longitude, with fewer, wider spans in bands
+ * nearer the poles so a cell is never narrower than the tolerance. The cells are kept in a primitive long keyed map.
+ * <p>
+ * Memory is bounded by a window: only the most recent distinct points are remembered, so a duplicate of a point seen
+ * longer ago than that is let through. A window of 0 remembers every distinct point, which finds every duplicate but
+ * grows with the input. When merging, a point can only be written once it leaves the window, as a later duplicate may
+ * still add to its name, so output lags the input by up to the window size. Points are still written in the order
+ * they first appeared.
+ */
+public class DuplicateFilter implements PointWriter {
+    /**
+     * What happens to a duplicate.
+     */
+    public enum Mode {
+        /**
+         * The duplicate is dropped and the first point written as soon as it is seen.
+         */
+        DROP,
+        /**
+         * The duplicate's name is added to the first point's name.
+         */
+        MERGE
+    }
+
+    /**
+     * Distinct points remembered when no window is given.
+     */
+    public static final int DEFAULT_WINDOW = 65536;
+
+    private static final int NONE = -1;
+
+    private final PointWriter out;
+    private final double tolerance;
+    private final Mode mode;
+    private final int window;
+
+    /**
+     * The height of a band of cells, and the sine of half the tolerance as a central angle, which sets how wide a
+     * cell has to be.
+     */
+    private final double bandHeight;
+    private final double halfToleranceSine;
+    private final int bandCount;
+
+    /**
+     * The points remembered, as a ring starting at the oldest, which is the order they are written in.
+     */
+    private double[] latitudes;
+    private double[] longitudes;
+    private String[] names;
+    private long[] cells;
+    private int oldest;
+    private int count;
+
+    /**
+     * The newest point in each cell, with each point linking to the next older point in the same cell.
+     */
+    private final LongIntMap newestInCell = new LongIntMap();
+    private int[] olderInCell;
+
+    private long kept;
+    private long collapsed;
+
+    /**
+     * Creates a duplicate filter.
+     *
+     * @param out       where distinct points are written to.
+     * @param tolerance how close in metres two points have to be to count as duplicates.
+     * @param mode      what happens to a duplicate.
+     * @param window    the number of distinct points remembered, or 0 to remember every one.
+     */
+    public DuplicateFilter(PointWriter out, double tolerance, Mode mode, int window) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be greater than 0");
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("Window must not be negative");
+        }
+        this.out = out;
+        this.tolerance = tolerance;
+        this.mode = mode;
+        this.window = window;
+
+        double angle = tolerance / SpatialIndex.EARTH_RADIUS;
+        bandHeight = Math.min(180, Math.toDegrees(angle));
+        halfToleranceSine = Math.sin(Math.min(angle, Math.PI) / 2);
+        bandCount = (int) Math.ceil(180 / bandHeight);
+
+        int capacity = window > 0 ? window : 1024;
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        names = new String[capacity];
+        cells = new long[capacity];
+        olderInCell = new int[capacity];
+    }
+
+    /**
+     * Writes a point unless it duplicates one already seen.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException if a point could not be written.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        int match = findNearest(latitude, longitude);
+        if (match != NONE) {
+            collapsed++;
+            if (mode == Mode.MERGE) {
+                names[match] = mergeNames(names[match], name);
+            }
+            return;
+        }
+
+        if (window > 0 && count == window) {
+            forgetOldest();
+        } else if (count == latitudes.length) {
+            // only an unbounded filter fills up, and it never forgets, so its ring always starts at 0
+            int capacity = count * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            names = Arrays.copyOf(names, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            olderInCell = Arrays.copyOf(olderInCell, capacity);
+        }
+        int slot = (oldest + count) % latitudes.length;
+        long cell = cellOf(latitude, longitude);
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        names[slot] = name;
+        cells[slot] = cell;
+        olderInCell[slot] = newestInCell.get(cell, NONE);
+        newestInCell.put(cell, slot);
+        count++;
+        kept++;
+
+        if (mode == Mode.DROP) {
+            out.writePoint(longitude, latitude, name);
+        }
+    }
+
+    /**
+     * Flushes the points written so far. Points still waiting to be merged are not written.
+     *
+     * @throws IOException if the output could not be flushed.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes any points still waiting to be merged and finishes the output.
+     *
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (mode == Mode.MERGE) {
+            for (int i = 0; i < count; i++) {
+                int slot = (oldest + i) % latitudes.length;
+                out.writePoint(longitudes[slot], latitudes[slot], names[slot]);
+            }
+        }
+        out.finish();
+    }
+
+    /**
+     * @return the number of distinct points.
+     */
+    public long getKept() {
+        return kept;
+    }
+
+    /**
+     * @return the number of points dropped or merged into another.
+     */
+    public long getCollapsed() {
+        return collapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateFilter{" +
+                "tolerance=" + tolerance +
+                ", kept=" + kept +
+                ", collapsed=" + collapsed +
+                '}';
+    }
+
+    /**
+     * Finds the closest remembered point within the tolerance, looking in the cells around the point's own.
+     */
+    private int findNearest(double latitude, double longitude) {
+        int band = bandOf(latitude);
+        int nearest = NONE;
+        double nearestDistance = tolerance;
+        for (int b = Math.max(0, band - 1); b <= Math.min(bandCount - 1, band + 1); b++) {
+            int spans = spansIn(b);
+            int span = spanOf(longitude, spans);
+            int first = spans < 3 ? 0 : span - 1;
+            int last = spans < 3 ? spans - 1 : span + 1;
+            for (int s = first; s <= last; s++) {
+                long cell = cellKey(b, Math.floorMod(s, spans));
+                for (int slot = newestInCell.get(cell, NONE); slot != NONE; slot = olderInCell[slot]) {
+                    double distance = SpatialIndex.distance(latitude, longitude, latitudes[slot], longitudes[slot]);
+                    if (distance <= nearestDistance) {
+                        nearest = slot;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Forgets the oldest point, writing it out first if it was waiting to be merged. Being the oldest, it is the last
+     * point in its cell's chain.
+     */
+    private void forgetOldest() throws IOException {
+        int slot = oldest;
+        if (mode == Mode.MERGE) {
+            out.writePoint(longitudes[slot], latitudes[slot], names[slot]);
+        }
+        long cell = cells[slot];
+        int newest = newestInCell.get(cell, NONE);
+        if (newest == slot) {
+            newestInCell.remove(cell);
+        } else {
+            int newer = newest;
+            while (olderInCell[newer] != slot) {
+                newer = olderInCell[newer];
+            }
+            olderInCell[newer] = NONE;
+        }
+        names[slot] = null;
+        oldest = (oldest + 1) % latitudes.length;
+        count--;
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        int band = bandOf(latitude);
+        return cellKey(band, spanOf(longitude, spansIn(band)));
+    }
+
+    private int bandOf(double latitude) {
+        return Math.min(bandCount - 1, Math.max(0, (int) Math.floor((latitude + 90) / bandHeight)));
+    }
+
+    /**
+     * Works out how many spans of longitude a band is split into. A span has to be at least as wide as the longitude
+     * two points a tolerance apart can differ by, at the highest latitude of the band or either band beside it.
+     */
+    private int spansIn(int band) {
+        double south = band * bandHeight - 90;
+        double highest = Math.min(90, Math.max(Math.abs(south), Math.abs(south + bandHeight)) + bandHeight);
+        double cosine = Math.cos(Math.toRadians(highest));
+        if (cosine <= halfToleranceSine) {
+            return 1;
+        }
+        double width = Math.toDegrees(2 * Math.asin(halfToleranceSine / cosine));
+        return Math.max(1, (int) (360 / width));
+    }
+
+    private static int spanOf(double longitude, int spans) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / 360 * spans), spans);
+    }
+
+    private static long cellKey(int band, int span) {
+        return (long) band << 32 | span;
+    }
+
+    /**
+     * Adds a duplicate's name to a point's name, leaving out blank names and names already there. Names are separated
+     * by a semicolon, without the spaces around them.
+     */
+    private static String mergeNames(String name, String duplicate) {
+        if (duplicate == null || duplicate.isBlank()) {
+            return name;
+        }
+        if (name == null || name.isBlank()) {
+            return duplicate;
+        }
+        String merged = name.strip();
+        String added = duplicate.strip();
+        if (merged.equals(added) || merged.startsWith(added + "; ") || merged.endsWith("; " + added)
+                || merged.contains("; " + added + "; ")) {
+            return name;
+        }
+        return merged + "; " + added;
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a file which is being appended to, such as a log, converting each line once it is complete and writing the
+ * new features out as they come, instead of converting the whole file again.
+ * <p>
+ * New features are either appended to a GeoJSON text sequence, one feature per line, or written as a numbered segment
+ * for each batch of new lines, each a complete FeatureCollection of its own. A segment is written under a temporary
+ * name and renamed once complete, so a reader never sees half of one.
+ * <p>
+ * After each batch a checkpoint records how far into the file has been converted, how long the sequence is, and how
+ * many segments have been written. It is written to a temporary file, forced to disk, and renamed over the old one, so
+ * it is either the old checkpoint or the new one even if the machine stops part way. A restart carries on from the
+ * checkpoint, first cutting the sequence back to the length it recorded, so features written after the last
+ * checkpoint are not written twice. If the file is replaced or shrinks, as when a log is rotated, it is followed again
+ * from the start.
+ * <p>
+ * The file is watched for changes, and also checked at a fixed interval in case the file system does not report them.
+ */
+public class FileFollower {
+    /**
+     * How new features are written.
+     */
+    public enum Output {
+        SEQUENCE,
+        SEGMENTS
+    }
+
+    /**
+     * The most points held before they are written.
+     */
+    private static final int BUFFER_SIZE = 256;
+
+    private final Path input;
+    private final Path output;
+    private final Output mode;
+    private final GeoJsonSerializer serializer;
+    private final CoordinateJSONConverter converter;
+    private final long pollMillis;
+
+    private final Path checkpointPath;
+    private final Checkpoint checkpoint;
+
+    /**
+     * Creates a follower, reading the checkpoint left by an earlier run if there is one and cutting the sequence back
+     * to the length it recorded.
+     *
+     * @param input      the file to follow.
+     * @param output     where features are written: the sequence file, or the name segments are numbered from, with
+     *                   the checkpoint next to it.
+     * @param mode       whether to append to a sequence or write segments.
+     * @param serializer formats features. It should not pretty print for a sequence.
+     * @param converter  the converter to use.
+     * @param pollMillis the most milliseconds to wait between checking the file for new lines.
+     * @throws IOException if the checkpoint could not be read or the sequence could not be cut back.
+     */
+    public FileFollower(Path input, Path output, Output mode, GeoJsonSerializer serializer,
+                        CoordinateJSONConverter converter, long pollMillis) throws IOException {
+        if (pollMillis < 1) {
+            throw new IllegalArgumentException("The poll interval must be at least 1 millisecond");
+        }
+        this.input = input;
+        this.output = output;
+        this.mode = mode;
+        this.serializer = serializer;
+        this.converter = converter;
+        this.pollMillis = pollMillis;
+        this.checkpointPath = output.resolveSibling(output.getFileName() + ".checkpoint");
+        this.checkpoint = Checkpoint.load(checkpointPath);
+        if (mode == Output.SEQUENCE && Files.exists(output)) {
+            // features written after the last checkpoint are written again
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+                if (channel.size() > checkpoint.outputLength) {
+                    channel.truncate(checkpoint.outputLength);
+                    channel.force(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts every complete line not yet converted, then waits for more, until the thread is interrupted.
+     *
+     * @throws IOException          if the file could not be read or the features or checkpoint could not be written.
+     * @throws InterruptedException if the thread is interrupted while waiting for new lines.
+     */
+    public void run() throws IOException, InterruptedException {
+        Path directory = input.toAbsolutePath().getParent();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                poll();
+                WatchKey key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * Converts every complete line not yet converted, once.
+     *
+     * @return the number of lines converted, counting those which could not be.
+     * @throws IOException if the file could not be read or the features or checkpoint could not be written.
+     */
+    public long poll() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(input, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // between a rotation and the new file being made
+            return 0;
+        }
+        String fileKey = String.valueOf(attributes.fileKey());
+        if (!fileKey.equals(checkpoint.fileKey) || attributes.size() < checkpoint.offset) {
+            if (checkpoint.fileKey != null) {
+                System.err.println("Following " + input + " from the start, as it has been replaced or cut short");
+            }
+            checkpoint.fileKey = fileKey;
+            checkpoint.offset = 0;
+            checkpoint.lines = 0;
+        }
+        if (attributes.size() == checkpoint.offset) {
+            return 0;
+        }
+        long lines = mode == Output.SEQUENCE ? appendToSequence() : writeSegment();
+        if (lines > 0) {
+            checkpoint.save(checkpointPath);
+        }
+        return lines;
+    }
+
+    /**
+     * @return how far into the file has been converted, in bytes.
+     */
+    public long getOffset() {
+        return checkpoint.offset;
+    }
+
+    /**
+     * Appends the new features to the sequence.
+     */
+    private long appendToSequence() throws IOException {
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.position(checkpoint.outputLength);
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            long lines = convert(new GeoJsonSeqWriter(serializer, writer));
+            writer.flush();
+            channel.force(false);
+            checkpoint.outputLength = channel.size();
+            return lines;
+        }
+    }
+
+    /**
+     * Writes the new features as the next segment, or nothing if none of the new lines could be converted.
+     */
+    private long writeSegment() throws IOException {
+        String name = output.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String segmentName = dot > 0
+                ? String.format(Locale.ROOT, "%s-%06d%s", name.substring(0, dot), checkpoint.segment + 1,
+                name.substring(dot))
+                : String.format(Locale.ROOT, "%s-%06d", name, checkpoint.segment + 1);
+        Path segment = output.resolveSibling(segmentName);
+        Path temporary = output.resolveSibling(segmentName + ".tmp");
+        long lines;
+        long before = checkpoint.points;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            GeoJsonStreamWriter collection = new GeoJsonStreamWriter(serializer, writer);
+            lines = convert(collection);
+            collection.finish();
+            channel.force(false);
+        }
+        if (checkpoint.points == before) {
+            Files.delete(temporary);
+        } else {
+            move(temporary, segment);
+            checkpoint.segment++;
+        }
+        return lines;
+    }
+
+    /**
+     * Converts the complete lines after the checkpoint, moving the checkpoint past them.
+     */
+    private long convert(PointWriter out) throws IOException {
+        long lines = 0;
+        converter.setNextLineNumber(checkpoint.lines + 1);
+        try (MappedLineReader reader = new MappedLineReader(input, checkpoint.offset, true)) {
+            CoordinateBuffer buffer = new CoordinateBuffer(BUFFER_SIZE);
+            CharSequence line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (converter.convert(line, buffer)) {
+                    checkpoint.points++;
+                }
+                if (buffer.size() == BUFFER_SIZE) {
+                    buffer.writeTo(out);
+                    buffer.clear();
+                }
+            }
+            buffer.writeTo(out);
+            out.flush();
+            checkpoint.offset = reader.getPosition();
+        }
+        checkpoint.lines += lines;
+        return lines;
+    }
+
+    /**
+     * Renames a file over another, atomically where the file system can.
+     */
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * How far a followed file has been converted and written.
+     */
+    private static class Checkpoint {
+        /**
+         * Identifies the file followed, so a replaced file is noticed even if it is already longer than the old one.
+         */
+        private String fileKey;
+        private long offset;
+        private long lines;
+        private long points;
+        private long outputLength;
+        private long segment;
+
+        /**
+         * Reads a checkpoint, or starts from nothing if there is none.
+         */
+        static Checkpoint load(Path path) throws IOException {
+            Checkpoint checkpoint = new Checkpoint();
+            if (!Files.exists(path)) {
+                return checkpoint;
+            }
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                int equals = line.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String value = line.substring(equals + 1);
+                switch (line.substring(0, equals)) {
+                    case "file":
+                        checkpoint.fileKey = value;
+                        break;
+                    case "offset":
+                        checkpoint.offset = Long.parseLong(value);
+                        break;
+                    case "lines":
+                        checkpoint.lines = Long.parseLong(value);
+                        break;
+                    case "points":
+                        checkpoint.points = Long.parseLong(value);
+                        break;
+                    case "output":
+                        checkpoint.outputLength = Long.parseLong(value);
+                        break;
+                    case "segment":
+                        checkpoint.segment = Long.parseLong(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return checkpoint;
+        }
+
+        /**
+         * Writes the checkpoint durably, replacing the old one in a single step.
+         */
+        void save(Path path) throws IOException {
+            String text = "file=" + fileKey + "\n"
+                    + "offset=" + offset + "\n"
+                    + "lines=" + lines + "\n"
+                    + "points=" + points + "\n"
+                    + "output=" + outputLength + "\n"
+                    + "segment=" + segment + "\n";
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            move(temporary, path);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scans lines on behalf of a converter, learning the format of the input as it goes. Most inputs use one format
+ * throughout, so the first lines are scanned in full and the layout seen most often is locked onto. Later lines are
+ * parsed directly against that layout, falling back to a full scan for any line which does not match it. If none of the
+ * lines sampled had a layout, such as geohashes or lines of too many tokens, every line is scanned in full.
+ * <p>
+ * Like the scanner it wraps, a sniffer must not be shared between threads.
+ */
+public class FormatSniffer {
+    private final CoordinateScanner scanner;
+    private final int sampleSize;
+
+    /**
+     * Layouts seen while sampling, with how many lines had each one.
+     */
+    private Map<Long, CoordinateScanner.Layout> sampledLayouts = new HashMap<>();
+    private Map<Long, Integer> layoutCounts = new HashMap<>();
+    private int sampled;
+
+    private CoordinateScanner.Layout locked;
+    private long fastPath;
+    private long fallbacks;
+
+    /**
+     * Creates a sniffer.
+     *
+     * @param scanner    the scanner to use, whose results are read back as usual after each line.
+     * @param sampleSize the number of converted lines to sample before locking onto a layout.
+     */
+    public FormatSniffer(CoordinateScanner scanner, int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be at least 1");
+        }
+        this.scanner = scanner;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Scans a line, using the locked layout if there is one.
+     *
+     * @param input the user's input.
+     * @return true if the line was recognised as a coordinate, false otherwise.
+     */
+    public boolean scan(CharSequence input) {
+        if (locked != null) {
+            if (scanner.scan(input, locked)) {
+                fastPath++;
+                return true;
+            }
+            fallbacks++;
+            return scanner.scan(input);
+        }
+        if (!scanner.scan(input)) {
+            return false;
+        }
+        if (sampled == sampleSize) {
+            // sampling found no layout to lock onto
+            return true;
+        }
+        CoordinateScanner.Layout layout = scanner.getLayout();
+        if (layout != null) {
+            sampledLayouts.putIfAbsent(layout.getCode(), layout);
+            layoutCounts.merge(layout.getCode(), 1, Integer::sum);
+        }
+        if (++sampled == sampleSize) {
+            lock();
+        }
+        return true;
+    }
+
+    /**
+     * Locks onto the layout seen most often while sampling, if any line had one, and frees the samples.
+     */
+    private void lock() {
+        long best = 0;
+        int bestCount = 0;
+        for (Map.Entry<Long, Integer> entry : layoutCounts.entrySet()) {
+            if (entry.getValue() > bestCount) {
+                best = entry.getKey();
+                bestCount = entry.getValue();
+            }
+        }
+        locked = bestCount > 0 ? sampledLayouts.get(best) : null;
+        sampledLayouts = null;
+        layoutCounts = null;
+    }
+
+    /**
+     * @return true once sampling has finished and a layout has been locked onto.
+     */
+    public boolean isLocked() {
+        return locked != null;
+    }
+
+    /**
+     * @return the number of lines parsed directly against the locked layout.
+     */
+    public long getFastPath() {
+        return fastPath;
+    }
+
+    /**
+     * @return the number of lines which did not match the locked layout and were scanned in full.
+     */
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    @Override
+    public String toString() {
+        return "FormatSniffer{" +
+                "locked=" + isLocked() +
+                ", fastPath=" + fastPath +
+                ", fallbacks=" + fallbacks +
+                '}';
+    }
+}
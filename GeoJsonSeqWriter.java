@@ -0,0 +1,116 @@
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes points as a GeoJSON text sequence (RFC 8142): each feature on its own, started by a record separator and
+ * ended by a line feed, with no collection around them. A reader can act on each feature as soon as it arrives, and a
+ * sequence cut short still holds every feature before the cut.
+ * <p>
+ * The serializer should not pretty print, so that each feature stays on a single line.
+ */
+public class GeoJsonSeqWriter implements PointWriter {
+    /**
+     * Starts every feature in the sequence.
+     */
+    public static final char RECORD_SEPARATOR = '\u001e';
+
+    /**
+     * The media type of a GeoJSON text sequence.
+     */
+    public static final String MEDIA_TYPE = "application/geo+json-seq";
+
+    private final Writer out;
+    private final GeoJsonStreamWriter features;
+
+    /**
+     * Creates a sequence writer. Nothing is written until the first point.
+     *
+     * @param gson the gson instance whose layout each feature is formatted with.
+     * @param out  where the sequence is written to.
+     * @throws IOException if the feature templates could not be made.
+     */
+    public GeoJsonSeqWriter(Gson gson, Writer out) throws IOException {
+        this(GeoJsonSerializer.like(gson), out);
+    }
+
+    /**
+     * Creates a sequence writer. Nothing is written until the first point.
+     *
+     * @param serializer the serializer each feature is formatted with, usually GeoJsonSerializer.COMPACT.
+     * @param out        where the sequence is written to.
+     * @throws IOException if the feature templates could not be made.
+     */
+    public GeoJsonSeqWriter(GeoJsonSerializer serializer, Writer out) throws IOException {
+        this.out = out;
+        // only used to format features, so the collection it starts is thrown away
+        this.features = new GeoJsonStreamWriter(serializer, Writer.nullWriter());
+    }
+
+    /**
+     * Writes a point as the next feature in the sequence.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        out.write(RECORD_SEPARATOR);
+        features.writeStandalonePoint(out, longitude, latitude, name);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a point with further properties as the next feature in the sequence.
+     *
+     * @param longitude  the point's longitude.
+     * @param latitude   the point's latitude.
+     * @param name       the point's name, or null for none.
+     * @param attributes the point's further properties, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name, Attributes attributes) throws IOException {
+        out.write(RECORD_SEPARATOR);
+        features.writeStandalonePoint(out, longitude, latitude, name, attributes);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a geometry of many positions as the next feature in the sequence.
+     *
+     * @param geometry the geometry to write.
+     * @param name     the geometry's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        out.write(RECORD_SEPARATOR);
+        features.writeStandaloneGeometry(out, geometry, name);
+        out.write('\n');
+    }
+
+    /**
+     * Flushes everything written so far to the underlying writer.
+     *
+     * @throws IOException if the writer could not be flushed.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flushes the underlying writer. A sequence has nothing to close, so nothing more is written. The underlying writer
+     * is left open for the caller to close.
+     *
+     * @throws IOException if the writer could not be flushed.
+     */
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+}
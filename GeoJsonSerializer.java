@@ -0,0 +1,618 @@
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes FeatureCollection, Feature, Geometry, and Properties as GeoJSON without reflection, field by field in the
+ * order gson finds them, so nothing has to be discovered before the first byte is written. GeoJsonStreamWriter takes
+ * its point templates, geometries of many positions, and the ends of its collections from here too, so there is one
+ * layout for everything written.
+ * <p>
+ * The output is byte for byte what gson writes with the same settings: PRETTY matches
+ * {@code new GsonBuilder().setPrettyPrinting().create()} and COMPACT matches {@code new Gson()}, including gson's
+ * escaping of HTML characters in strings and its leaving out of null fields. Numbers are written with DoubleFormatter,
+ * which gives the same text as gson.
+ * <p>
+ * A serializer holds no state, so one can be used from any number of threads at once.
+ */
+public class GeoJsonSerializer {
+    private static final String INDENT = "  ";
+
+    /**
+     * What each ASCII character is written as in a string, or null where it is written as it is. These are set up
+     * before PRETTY and COMPACT are made.
+     */
+    private static final String[] REPLACEMENTS = new String[128];
+    private static final String[] HTML_SAFE_REPLACEMENTS;
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            REPLACEMENTS[c] = (c < 0x10 ? "\\u000" : "\\u00") + Integer.toHexString(c);
+        }
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+        HTML_SAFE_REPLACEMENTS = REPLACEMENTS.clone();
+        HTML_SAFE_REPLACEMENTS['<'] = "\\u003c";
+        HTML_SAFE_REPLACEMENTS['>'] = "\\u003e";
+        HTML_SAFE_REPLACEMENTS['&'] = "\\u0026";
+        HTML_SAFE_REPLACEMENTS['='] = "\\u003d";
+        HTML_SAFE_REPLACEMENTS['\''] = "\\u0027";
+    }
+
+    /**
+     * Writes each member and element on its own line, indented by two spaces, as gson does when pretty printing.
+     */
+    public static final GeoJsonSerializer PRETTY = new GeoJsonSerializer(true, true, false);
+
+    /**
+     * Writes everything on one line with no spaces, as gson does by default.
+     */
+    public static final GeoJsonSerializer COMPACT = new GeoJsonSerializer(false, true, false);
+
+    private final boolean pretty;
+    private final boolean htmlSafe;
+    private final boolean serializeNulls;
+    private final String[] replacements;
+
+    /**
+     * Creates a serializer with the given layout.
+     *
+     * @param pretty         true to write each member and element on its own line.
+     * @param htmlSafe       true to escape characters which have a meaning in HTML, as gson does by default.
+     * @param serializeNulls true to write null fields as null rather than leaving them out.
+     */
+    public GeoJsonSerializer(boolean pretty, boolean htmlSafe, boolean serializeNulls) {
+        this.pretty = pretty;
+        this.htmlSafe = htmlSafe;
+        this.serializeNulls = serializeNulls;
+        this.replacements = htmlSafe ? HTML_SAFE_REPLACEMENTS : REPLACEMENTS;
+    }
+
+    /**
+     * Creates a serializer with the same layout as a gson instance: whether it pretty prints, escapes HTML characters,
+     * and writes nulls. Other settings, such as type adapters, are not taken.
+     *
+     * @param gson the gson instance to match.
+     * @return a serializer writing the same text as the gson instance does for the GeoJSON classes.
+     */
+    public static GeoJsonSerializer like(Gson gson) {
+        StringWriter probe = new StringWriter();
+        try {
+            gson.newJsonWriter(probe).beginArray().value(0).endArray().flush();
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return new GeoJsonSerializer(probe.getBuffer().indexOf("\n") >= 0, gson.htmlSafe(), gson.serializeNulls());
+    }
+
+    /**
+     * @return true if each member and element is written on its own line.
+     */
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    /**
+     * @return true if characters which have a meaning in HTML are escaped.
+     */
+    public boolean isHtmlSafe() {
+        return htmlSafe;
+    }
+
+    /**
+     * Formats a feature collection.
+     *
+     * @param collection the collection to format.
+     * @return the formatted collection.
+     */
+    public String toJson(FeatureCollection collection) {
+        StringWriter buffer = new StringWriter();
+        try {
+            write(collection, buffer);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Formats a feature.
+     *
+     * @param feature the feature to format.
+     * @return the formatted feature.
+     */
+    public String toJson(Feature feature) {
+        StringWriter buffer = new StringWriter();
+        try {
+            write(feature, buffer);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes a feature collection. The writer is neither flushed nor closed.
+     *
+     * @param collection the collection to write.
+     * @param out        where to write it.
+     * @throws IOException if the collection could not be written.
+     */
+    public void write(FeatureCollection collection, Writer out) throws IOException {
+        if (collection == null) {
+            out.write("null");
+            return;
+        }
+        boolean first = true;
+        out.write('{');
+        if (collection.getType() != null || serializeNulls) {
+            first = name(out, 1, first, "type");
+            writeString(out, collection.getType());
+        }
+        List<Feature> features = collection.getFeatures();
+        if (features != null || serializeNulls) {
+            first = name(out, 1, first, "features");
+            if (features == null) {
+                out.write("null");
+            } else {
+                out.write('[');
+                for (int i = 0; i < features.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    newline(out, 2);
+                    writeFeature(out, features.get(i), 2);
+                }
+                close(out, 1, features.isEmpty(), ']');
+            }
+        }
+        close(out, 0, first, '}');
+    }
+
+    /**
+     * Writes a feature collection as UTF-8 and flushes the stream, leaving it open.
+     *
+     * @param collection the collection to write.
+     * @param out        where to write it.
+     * @throws IOException if the collection could not be written.
+     */
+    public void write(FeatureCollection collection, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(collection, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes a feature on its own. The writer is neither flushed nor closed.
+     *
+     * @param feature the feature to write.
+     * @param out     where to write it.
+     * @throws IOException if the feature could not be written.
+     */
+    public void write(Feature feature, Writer out) throws IOException {
+        writeFeature(out, feature, 0);
+    }
+
+    /**
+     * Writes a feature as a value nested the given number of levels deep, indenting its lines to match. Nothing is
+     * written before it; newline starts the line it goes on.
+     */
+    void writeFeature(Writer out, Feature feature, int depth) throws IOException {
+        if (feature == null) {
+            out.write("null");
+            return;
+        }
+        out.write('{');
+        name(out, depth + 1, true, "type");
+        // a feature's type can not be changed
+        writeString(out, "Feature");
+        Geometry geometry = feature.getGeometry();
+        if (geometry != null || serializeNulls) {
+            name(out, depth + 1, false, "geometry");
+            writeGeometry(out, geometry, depth + 1);
+        }
+        Properties properties = feature.getProperties();
+        if (properties != null || serializeNulls) {
+            name(out, depth + 1, false, "properties");
+            writeProperties(out, properties, depth + 1);
+        }
+        close(out, depth, false, '}');
+    }
+
+    /**
+     * Writes a feature holding a geometry of many positions as a value nested the given number of levels deep, straight
+     * from its flat array of coordinates. The properties hold the name if there is one. Nothing is written before it;
+     * newline starts the line it goes on.
+     */
+    void writeFeature(Writer out, PackedGeometry geometry, String name, int depth) throws IOException {
+        char[] digits = new char[DoubleFormatter.MAX_LENGTH];
+        out.write('{');
+        name(out, depth + 1, true, "type");
+        writeString(out, "Feature");
+        name(out, depth + 1, false, "geometry");
+        out.write('{');
+        name(out, depth + 2, true, "type");
+        writeString(out, geometry.getType().value);
+        name(out, depth + 2, false, "coordinates");
+        switch (geometry.getType()) {
+            case LINESTRING:
+            case MULTIPOINT:
+                writePositions(out, geometry, 0, geometry.getPositionCount(), depth + 2, digits);
+                break;
+            case POLYGON:
+            case MULTILINESTRING:
+                writeParts(out, geometry, 0, geometry.getPartCount(), depth + 2, digits);
+                break;
+            case MULTIPOLYGON:
+                out.write('[');
+                for (int polygon = 0; polygon < geometry.getPolygonCount(); polygon++) {
+                    if (polygon > 0) {
+                        out.write(',');
+                    }
+                    newline(out, depth + 3);
+                    writeParts(out, geometry, geometry.polygonStart(polygon), geometry.polygonEnd(polygon), depth + 3,
+                            digits);
+                }
+                close(out, depth + 2, geometry.getPolygonCount() == 0, ']');
+                break;
+            default:
+                throw new IllegalArgumentException("Not a packed geometry: " + geometry.getType());
+        }
+        close(out, depth + 1, false, '}');
+        name(out, depth + 1, false, "properties");
+        out.write('{');
+        if (name != null) {
+            name(out, depth + 2, true, "name");
+            writeString(out, name);
+        }
+        close(out, depth + 1, name == null, '}');
+        close(out, depth, false, '}');
+    }
+
+    /**
+     * Writes an array of parts, each an array of positions, as a value nested the given number of levels deep.
+     */
+    private void writeParts(Writer out, PackedGeometry geometry, int from, int to, int depth, char[] digits)
+            throws IOException {
+        out.write('[');
+        for (int part = from; part < to; part++) {
+            if (part > from) {
+                out.write(',');
+            }
+            newline(out, depth + 1);
+            writePositions(out, geometry, geometry.partStart(part), geometry.partEnd(part), depth + 1, digits);
+        }
+        close(out, depth, from == to, ']');
+    }
+
+    /**
+     * Writes an array of positions, each an array of its longitude and latitude, as a value nested the given number of
+     * levels deep.
+     */
+    private void writePositions(Writer out, PackedGeometry geometry, int from, int to, int depth, char[] digits)
+            throws IOException {
+        out.write('[');
+        for (int position = from; position < to; position++) {
+            if (position > from) {
+                out.write(',');
+            }
+            newline(out, depth + 1);
+            out.write('[');
+            newline(out, depth + 2);
+            writeNumber(out, geometry.getLongitude(position), digits);
+            out.write(',');
+            newline(out, depth + 2);
+            writeNumber(out, geometry.getLatitude(position), digits);
+            close(out, depth + 1, false, ']');
+        }
+        close(out, depth, from == to, ']');
+    }
+
+    /**
+     * Writes what opens a feature collection, up to and including the bracket starting its features array.
+     */
+    void writeCollectionStart(Writer out) throws IOException {
+        out.write('{');
+        name(out, 1, true, "type");
+        writeString(out, "FeatureCollection");
+        name(out, 1, false, "features");
+        out.write('[');
+    }
+
+    /**
+     * Writes what closes a feature collection after its last feature: the end of the features array, then a bbox
+     * member if the edges are given and a crs member naming the coordinate reference system if one is given.
+     */
+    void writeCollectionEnd(Writer out, boolean empty, double[] bbox, String crs) throws IOException {
+        close(out, 1, empty, ']');
+        if (bbox != null) {
+            char[] digits = new char[DoubleFormatter.MAX_LENGTH];
+            name(out, 1, false, "bbox");
+            out.write('[');
+            for (int i = 0; i < bbox.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                newline(out, 2);
+                writeNumber(out, bbox[i], digits);
+            }
+            close(out, 1, bbox.length == 0, ']');
+        }
+        if (crs != null) {
+            name(out, 1, false, "crs");
+            out.write('{');
+            name(out, 2, true, "type");
+            writeString(out, "name");
+            name(out, 2, false, "properties");
+            out.write('{');
+            name(out, 3, true, "name");
+            writeString(out, crs);
+            close(out, 2, false, '}');
+            close(out, 1, false, '}');
+        }
+        close(out, 0, false, '}');
+    }
+
+    /**
+     * Splits the text of a point feature nested the given number of levels deep where its values go, starting with the
+     * line it goes on. Writing the longitude, the second piece, the latitude, and the third piece gives a feature with
+     * empty properties; for a named feature the third piece ends at the name's value, and the fourth closes the
+     * feature after it. The second piece also goes before a third coordinate.
+     */
+    char[][] pointTemplate(int depth, boolean named) {
+        StringWriter piece = new StringWriter();
+        char[][] template = new char[named ? 4 : 3][];
+        try {
+            newline(piece, depth);
+            piece.write('{');
+            name(piece, depth + 1, true, "type");
+            writeString(piece, "Feature");
+            name(piece, depth + 1, false, "geometry");
+            piece.write('{');
+            name(piece, depth + 2, true, "type");
+            writeString(piece, "Point");
+            name(piece, depth + 2, false, "coordinates");
+            piece.write('[');
+            newline(piece, depth + 3);
+            template[0] = take(piece);
+            piece.write(',');
+            newline(piece, depth + 3);
+            template[1] = take(piece);
+            openPointProperties(piece, depth);
+            if (named) {
+                name(piece, depth + 2, true, "name");
+                template[2] = take(piece);
+            }
+            close(piece, depth + 1, !named, '}');
+            close(piece, depth, false, '}');
+            template[named ? 3 : 2] = take(piece);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return template;
+    }
+
+    /**
+     * Gives the text before a property's value in a point feature from pointTemplate: after the latitude when it is
+     * the first property, otherwise after the value before it.
+     */
+    char[] pointEntry(int depth, String key, boolean first) {
+        StringWriter piece = new StringWriter();
+        try {
+            if (first) {
+                openPointProperties(piece, depth);
+            }
+            name(piece, depth + 2, first, key);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return take(piece);
+    }
+
+    /**
+     * Writes what follows a point's last coordinate up to the opening of its properties.
+     */
+    private void openPointProperties(Writer out, int depth) throws IOException {
+        close(out, depth + 2, false, ']');
+        close(out, depth + 1, false, '}');
+        name(out, depth + 1, false, "properties");
+        out.write('{');
+    }
+
+    /**
+     * @return what has been written to a buffer, which is then emptied.
+     */
+    private static char[] take(StringWriter buffer) {
+        char[] text = buffer.toString().toCharArray();
+        buffer.getBuffer().setLength(0);
+        return text;
+    }
+
+    private void writeGeometry(Writer out, Geometry geometry, int depth) throws IOException {
+        if (geometry == null) {
+            out.write("null");
+            return;
+        }
+        boolean first = true;
+        out.write('{');
+        if (geometry.getType() != null || serializeNulls) {
+            first = name(out, depth + 1, first, "type");
+            writeString(out, geometry.getType());
+        }
+        double[] coordinates = geometry.getCoordinates();
+        if (coordinates != null || serializeNulls) {
+            first = name(out, depth + 1, first, "coordinates");
+            if (coordinates == null) {
+                out.write("null");
+            } else {
+                char[] digits = new char[DoubleFormatter.MAX_LENGTH];
+                out.write('[');
+                for (int i = 0; i < coordinates.length; i++) {
+                    if (!Double.isFinite(coordinates[i])) {
+                        throw new IllegalArgumentException(
+                                coordinates[i] + " is not a valid double value as per JSON specification.");
+                    }
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    newline(out, depth + 2);
+                    out.write(digits, 0, DoubleFormatter.getChars(coordinates[i], digits, 0));
+                }
+                close(out, depth + 1, coordinates.length == 0, ']');
+            }
+        }
+        close(out, depth, first, '}');
+    }
+
+    /**
+     * Writes the name and then each attribute as members of one object, as Properties.Adapter does.
+     */
+    private void writeProperties(Writer out, Properties properties, int depth) throws IOException {
+        if (properties == null) {
+            out.write("null");
+            return;
+        }
+        boolean first = true;
+        out.write('{');
+        if (properties.getName() != null || serializeNulls) {
+            first = name(out, depth + 1, first, "name");
+            writeString(out, properties.getName());
+        }
+        if (properties.getAttributes() != null) {
+            for (Map.Entry<String, Object> attribute : properties.getAttributes().entrySet()) {
+                if (attribute.getValue() == null && !serializeNulls) {
+                    continue;
+                }
+                first = name(out, depth + 1, first, attribute.getKey());
+                writeValue(out, attribute.getValue());
+            }
+        }
+        close(out, depth, first, '}');
+    }
+
+    /**
+     * Writes a property value: a number, true or false, null, or anything else as a string of its text.
+     */
+    void writeValue(Writer out, Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof Double) {
+            writeNumber(out, (Double) value, new char[DoubleFormatter.MAX_LENGTH]);
+        } else if (value instanceof Number) {
+            String text = value.toString();
+            if (text.equals("NaN") || text.equals("Infinity") || text.equals("-Infinity")) {
+                throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+            }
+            out.write(text);
+        } else if (value instanceof Boolean) {
+            out.write(value.toString());
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Writes a number which JSON can hold, refusing any other as gson's JsonWriter does.
+     */
+    private static void writeNumber(Writer out, double value, char[] digits) throws IOException {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        out.write(digits, 0, DoubleFormatter.getChars(value, digits, 0));
+    }
+
+    /**
+     * Writes a string between quotes, escaping the characters gson escapes. A string with nothing to escape is written
+     * in one piece.
+     */
+    void writeString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = replacements[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) {
+                out.write(value, last, i - last);
+            }
+            out.write(replacement);
+            last = i + 1;
+        }
+        if (last < length) {
+            out.write(value, last, length - last);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Starts a new line indented for the given depth, when pretty printing.
+     */
+    void newline(Writer out, int depth) throws IOException {
+        if (!pretty) {
+            return;
+        }
+        out.write('\n');
+        for (int i = 0; i < depth; i++) {
+            out.write(INDENT);
+        }
+    }
+
+    /**
+     * Writes a member's name, after a comma unless it is the first member of its object.
+     *
+     * @return false, for whether the next member is the first.
+     */
+    private boolean name(Writer out, int depth, boolean first, String name) throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        newline(out, depth);
+        writeString(out, name);
+        out.write(pretty ? ": " : ":");
+        return false;
+    }
+
+    /**
+     * Closes an object or array, on a line of its own unless it is empty.
+     */
+    private void close(Writer out, int depth, boolean empty, char bracket) throws IOException {
+        if (!empty) {
+            newline(out, depth);
+        }
+        out.write(bracket);
+    }
+}
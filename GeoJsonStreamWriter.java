@@ -0,0 +1,477 @@
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Writes a GeoJSON feature collection one feature at a time. The header of the collection is written up front and the
+ * features array is closed by finish, so only the feature currently being written is held in memory. The output is the
+ * same as passing a whole FeatureCollection to gson.
+ * <p>
+ * Features can also be formatted ahead of time on other threads with format, then written in order using
+ * writeFormatted.
+ * <p>
+ * Everything is laid out by GeoJsonSerializer, so gson never has to look the feature classes up by reflection. The
+ * text around a point's numbers and name is taken from the serializer once, and the numbers are written into it with
+ * DoubleFormatter, so no objects or strings are made for each point. Geometries of many positions are written straight
+ * from their flat array of coordinates, so no nested arrays are made for them.
+ * <p>
+ * Points can also be written with a third coordinate, and the collection can name the coordinate reference system its
+ * positions are in, for positions which have been projected rather than being longitudes and latitudes. A bounding box
+ * of every position can be written too. Both are only known once every feature has been written, so they follow the
+ * features array.
+ */
+public class GeoJsonStreamWriter implements PointWriter {
+    /**
+     * How deep a feature sits in the collection: inside the collection object and its features array.
+     */
+    private static final int FEATURE_DEPTH = 2;
+
+    /**
+     * Stands for a point which only has two coordinates.
+     */
+    private static final double NO_ALTITUDE = Double.NaN;
+
+    private final GeoJsonSerializer serializer;
+    private final Writer out;
+
+    /**
+     * Whether no features have been written yet, so the next one needs no separator before it.
+     */
+    private boolean empty = true;
+
+    /**
+     * The name of the coordinate reference system written at the end of the collection, or null for none.
+     */
+    private String crs;
+
+    /**
+     * The west, south, east, and north edges written as the collection's bbox member, or null for none.
+     */
+    private double[] bbox;
+
+    /**
+     * The text of a point feature around its longitude, latitude, and name, split where those values go. Points
+     * without a name use the first template, points with one use the second.
+     */
+    private final char[][] unnamedPoint;
+    private final char[][] namedPoint;
+
+    /**
+     * The text before each attribute's value, when it is the first property and when it follows another, for the
+     * attributes last written. Made again whenever points with different attribute keys are written.
+     */
+    private Attributes entryKeys;
+    private char[][] firstEntry;
+    private char[][] nextEntry;
+
+    /**
+     * Where numbers are written before being copied out by writePoint.
+     */
+    private final char[] digits = new char[DoubleFormatter.MAX_LENGTH];
+
+    /**
+     * Creates a stream writer and writes the start of the feature collection.
+     *
+     * @param gson the gson instance whose layout each feature is formatted with.
+     * @param out  where the collection is written to.
+     * @throws IOException if the header could not be written.
+     */
+    public GeoJsonStreamWriter(Gson gson, Writer out) throws IOException {
+        this(GeoJsonSerializer.like(gson), out);
+    }
+
+    /**
+     * Creates a stream writer and writes the start of the feature collection.
+     *
+     * @param serializer the serializer each feature is formatted with.
+     * @param out        where the collection is written to.
+     * @throws IOException if the header could not be written.
+     */
+    public GeoJsonStreamWriter(GeoJsonSerializer serializer, Writer out) throws IOException {
+        this.serializer = serializer;
+        this.out = out;
+
+        unnamedPoint = serializer.pointTemplate(FEATURE_DEPTH, false);
+        namedPoint = serializer.pointTemplate(FEATURE_DEPTH, true);
+
+        serializer.writeCollectionStart(out);
+    }
+
+    /**
+     * Formats a feature as it would appear in the features array, without the separator before it. This can be called
+     * from any thread.
+     *
+     * @param feature the feature to format.
+     * @return the formatted feature.
+     */
+    public String format(Feature feature) {
+        try {
+            StringWriter buffer = new StringWriter();
+            serializer.newline(buffer, FEATURE_DEPTH);
+            serializer.writeFeature(buffer, feature, FEATURE_DEPTH);
+            return buffer.toString();
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats a point feature without creating any feature objects. The result is the same as formatting a Feature
+     * holding the same values. This can be called from any thread.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @return the formatted feature.
+     */
+    public String formatPoint(double longitude, double latitude, String name) {
+        StringWriter buffer = new StringWriter();
+        try {
+            appendPoint(buffer, new char[DoubleFormatter.MAX_LENGTH], longitude, latitude, NO_ALTITUDE, name);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Formats every point in a buffer as consecutive elements of the features array, separated by commas, so a batch
+     * of points can be written with a single call to writeFormatted. This can be called from any thread.
+     *
+     * @param points the points to format.
+     * @return the formatted features, or an empty string if the buffer is empty.
+     */
+    public String format(CoordinateBuffer points) {
+        StringWriter buffer = new StringWriter();
+        char[] scratch = new char[DoubleFormatter.MAX_LENGTH];
+        try {
+            for (int i = 0; i < points.size(); i++) {
+                if (i > 0) {
+                    buffer.write(',');
+                }
+                appendPoint(buffer, scratch, points.getLongitude(i), points.getLatitude(i), NO_ALTITUDE,
+                        points.getLabel(i));
+            }
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes a point feature as the next element of the collection.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        if (!empty) {
+            out.write(',');
+        }
+        appendPoint(out, digits, longitude, latitude, NO_ALTITUDE, name);
+        empty = false;
+    }
+
+    /**
+     * Writes a point feature with further properties as the next element of the collection. The result is the same
+     * as gson writing a Feature whose Properties hold the attributes which have a value.
+     *
+     * @param longitude  the point's longitude.
+     * @param latitude   the point's latitude.
+     * @param name       the point's name, or null for none.
+     * @param attributes the point's further properties, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name, Attributes attributes) throws IOException {
+        if (!empty) {
+            out.write(',');
+        }
+        appendPoint(out, digits, longitude, latitude, NO_ALTITUDE, name, attributes);
+        empty = false;
+    }
+
+    /**
+     * Writes a point feature with three coordinates, such as a projected position with its height, as the next
+     * element of the collection.
+     *
+     * @param x          the point's first coordinate.
+     * @param y          the point's second coordinate.
+     * @param z          the point's third coordinate.
+     * @param name       the point's name, or null for none.
+     * @param attributes the point's further properties, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    public void writePoint(double x, double y, double z, String name, Attributes attributes) throws IOException {
+        if (Double.isNaN(z)) {
+            // NaN would be taken for a point without a third coordinate, so the serializer is left to refuse it
+            Feature feature = new Feature();
+            feature.getGeometry().setCoordinates(new double[]{x, y, z});
+            write(feature);
+            return;
+        }
+        if (!empty) {
+            out.write(',');
+        }
+        appendPoint(out, digits, x, y, z, name, attributes);
+        empty = false;
+    }
+
+    /**
+     * Writes a point feature with further properties to another writer on its own, outside the collection and
+     * without a separator.
+     *
+     * @param target     where the feature is written to.
+     * @param longitude  the point's longitude.
+     * @param latitude   the point's latitude.
+     * @param name       the point's name, or null for none.
+     * @param attributes the point's further properties, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    public void writeStandalonePoint(Writer target, double longitude, double latitude, String name,
+                                     Attributes attributes) throws IOException {
+        appendPoint(target, digits, longitude, latitude, NO_ALTITUDE, name, attributes);
+    }
+
+    /**
+     * Writes a point feature to another writer on its own, outside the collection and without a separator, for output
+     * which holds features one after another rather than in a collection.
+     *
+     * @param target    where the feature is written to.
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    public void writeStandalonePoint(Writer target, double longitude, double latitude, String name)
+            throws IOException {
+        appendPoint(target, digits, longitude, latitude, NO_ALTITUDE, name);
+    }
+
+    /**
+     * Writes a geometry of many positions as the next element of the collection. The result is the same as gson
+     * writing a feature with nested coordinate arrays.
+     *
+     * @param geometry the geometry to write.
+     * @param name     the geometry's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    @Override
+    public void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        if (!empty) {
+            out.write(',');
+        }
+        writeStandaloneGeometry(out, geometry, name);
+        empty = false;
+    }
+
+    /**
+     * Writes a geometry of many positions to another writer on its own, outside the collection and without a
+     * separator.
+     *
+     * @param target   where the feature is written to.
+     * @param geometry the geometry to write.
+     * @param name     the geometry's name, or null for none.
+     * @throws IOException if the feature could not be written.
+     */
+    public void writeStandaloneGeometry(Writer target, PackedGeometry geometry, String name) throws IOException {
+        // indented as it would be inside a collection
+        serializer.newline(target, FEATURE_DEPTH);
+        serializer.writeFeature(target, geometry, name, FEATURE_DEPTH);
+    }
+
+    /**
+     * Writes a feature as the next element of the collection.
+     *
+     * @param feature the feature to write.
+     * @throws IOException if the feature could not be written.
+     */
+    public void write(Feature feature) throws IOException {
+        writeFormatted(format(feature));
+    }
+
+    /**
+     * Writes a feature which has already been formatted as the next element of the collection, or several features
+     * formatted together from a buffer.
+     *
+     * @param formatted features returned by format or formatPoint, which must not be empty.
+     * @throws IOException if the feature could not be written.
+     */
+    public void writeFormatted(String formatted) throws IOException {
+        if (!empty) {
+            out.write(',');
+        }
+        out.write(formatted);
+        empty = false;
+    }
+
+    /**
+     * Names the coordinate reference system the positions are in, which is written as the collection's crs member
+     * when it is finished. Without one, positions are longitudes and latitudes as GeoJSON expects.
+     *
+     * @param crs the name of the coordinate reference system, such as urn:ogc:def:crs:EPSG::3857, or null for none.
+     */
+    public void setCrs(String crs) {
+        this.crs = crs;
+    }
+
+    /**
+     * Sets the bounding box written as the collection's bbox member when it is finished.
+     *
+     * @param west  the least longitude or first coordinate.
+     * @param south the least latitude or second coordinate.
+     * @param east  the greatest longitude or first coordinate.
+     * @param north the greatest latitude or second coordinate.
+     */
+    public void setBbox(double west, double south, double east, double north) {
+        this.bbox = new double[]{west, south, east, north};
+    }
+
+    /**
+     * Flushes everything written so far to the underlying writer.
+     *
+     * @throws IOException if the writer could not be flushed.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the features array and the collection and flushes the underlying writer. The underlying writer is left
+     * open for the caller to close.
+     *
+     * @throws IOException if the end of the collection could not be written.
+     */
+    @Override
+    public void finish() throws IOException {
+        serializer.writeCollectionEnd(out, empty, bbox, crs);
+        out.flush();
+    }
+
+    /**
+     * Writes a point feature into its template, with the altitude after the latitude unless it is NO_ALTITUDE. The
+     * text between the longitude and latitude also separates the altitude. Numbers JSON can not hold are left to the
+     * serializer, which refuses them as gson does.
+     */
+    private void appendPoint(Writer target, char[] scratch, double longitude, double latitude, double altitude,
+                             String name) throws IOException {
+        if (!Double.isFinite(longitude) || !Double.isFinite(latitude) || Double.isInfinite(altitude)) {
+            target.write(formatFeature(longitude, latitude, altitude, name, null));
+            return;
+        }
+        char[][] template = name == null ? unnamedPoint : namedPoint;
+        target.write(template[0]);
+        target.write(scratch, 0, DoubleFormatter.getChars(longitude, scratch, 0));
+        target.write(template[1]);
+        target.write(scratch, 0, DoubleFormatter.getChars(latitude, scratch, 0));
+        appendAltitude(target, scratch, template, altitude);
+        target.write(template[2]);
+        if (name != null) {
+            appendString(target, name);
+            target.write(template[3]);
+        }
+    }
+
+    /**
+     * Writes a point feature with attributes, taking the text before each attribute which has a value from the entry
+     * templates.
+     */
+    private void appendPoint(Writer target, char[] scratch, double longitude, double latitude, double altitude,
+                             String name, Attributes attributes) throws IOException {
+        if (attributes == null || attributes.size() == 0) {
+            appendPoint(target, scratch, longitude, latitude, altitude, name);
+            return;
+        }
+        if (!Double.isFinite(longitude) || !Double.isFinite(latitude) || Double.isInfinite(altitude)) {
+            target.write(formatFeature(longitude, latitude, altitude, name, attributes));
+            return;
+        }
+        if (!attributes.sameKeys(entryKeys)) {
+            entryTemplates(attributes);
+        }
+        target.write(namedPoint[0]);
+        target.write(scratch, 0, DoubleFormatter.getChars(longitude, scratch, 0));
+        target.write(namedPoint[1]);
+        target.write(scratch, 0, DoubleFormatter.getChars(latitude, scratch, 0));
+        appendAltitude(target, scratch, namedPoint, altitude);
+        boolean first = true;
+        if (name != null) {
+            target.write(namedPoint[2]);
+            appendString(target, name);
+            first = false;
+        }
+        for (int i = 0; i < attributes.size(); i++) {
+            Object value = attributes.getValue(i);
+            if (value == null) {
+                continue;
+            }
+            target.write(first ? firstEntry[i] : nextEntry[i]);
+            if (value instanceof Double && Double.isFinite((Double) value)) {
+                target.write(scratch, 0, DoubleFormatter.getChars((Double) value, scratch, 0));
+            } else if (value instanceof Long || value instanceof Boolean) {
+                target.write(value.toString());
+            } else {
+                serializer.writeValue(target, value);
+            }
+            first = false;
+        }
+        // an empty properties object closes like an unnamed point, a filled one like a named point
+        target.write(first ? unnamedPoint[2] : namedPoint[3]);
+    }
+
+    /**
+     * Writes the altitude after the latitude, unless there is none.
+     */
+    private static void appendAltitude(Writer target, char[] scratch, char[][] template, double altitude)
+            throws IOException {
+        if (!Double.isNaN(altitude)) {
+            target.write(template[1]);
+            target.write(scratch, 0, DoubleFormatter.getChars(altitude, scratch, 0));
+        }
+    }
+
+    /**
+     * Writes a string value, escaped as gson would.
+     */
+    private void appendString(Writer target, String value) throws IOException {
+        serializer.writeString(target, value);
+    }
+
+    /**
+     * Takes the text before each attribute's value from the serializer, as the first property and after another.
+     */
+    private void entryTemplates(Attributes attributes) {
+        firstEntry = new char[attributes.size()][];
+        nextEntry = new char[attributes.size()][];
+        for (int i = 0; i < attributes.size(); i++) {
+            firstEntry[i] = serializer.pointEntry(FEATURE_DEPTH, attributes.getKey(i), true);
+            nextEntry[i] = serializer.pointEntry(FEATURE_DEPTH, attributes.getKey(i), false);
+        }
+        entryKeys = attributes;
+    }
+
+    /**
+     * Formats a point feature entirely with the serializer, for values the templates can not hold.
+     */
+    private String formatFeature(double longitude, double latitude, double altitude, String name,
+                                 Attributes attributes) {
+        Feature feature = new Feature();
+        feature.getGeometry().setCoordinates(Double.isNaN(altitude)
+                ? new double[]{longitude, latitude}
+                : new double[]{longitude, latitude, altitude});
+        feature.getProperties().setName(name);
+        if (attributes != null) {
+            feature.getProperties().setAttributes(attributes.toMap());
+        }
+        return format(feature);
+    }
+}
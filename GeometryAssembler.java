@@ -0,0 +1,221 @@
+import java.io.IOException;
+
+/**
+ * Groups converted points into geometries of many positions, such as a GPS track into a LineString or the corners of
+ * a field into a Polygon, and writes each geometry as a single feature.
+ * <p>
+ * Where one feature ends and the next begins depends on the grouping:
+ * <ul>
+ *     <li>LABEL ends a feature whenever the label changes, so consecutive points named alike form one feature;</li>
+ *     <li>BLANK ends a feature at a blank line, or for types with several parts at two blank lines in a row;</li>
+ *     <li>MARKER ends a feature at a line holding only the marker, such as {@code >} or {@code END}.</li>
+ * </ul>
+ * Within a feature a blank line ends a part: a ring of a Polygon, a line of a MultiLineString, or a polygon of a
+ * MultiPolygon, which has only an outer ring. LineStrings and MultiPoints have one part, so blank lines only end them
+ * when grouping by blank lines.
+ * <p>
+ * Rings are closed by repeating their first position if they are not already. A feature is named after the label of
+ * its first point which has one. Parts with too few positions to be valid GeoJSON, such as a line of one position or
+ * a ring of two, are dropped, as are features left with no parts.
+ */
+public class GeometryAssembler {
+    /**
+     * What ends one feature and starts the next.
+     */
+    public enum Grouping {
+        LABEL,
+        BLANK,
+        MARKER
+    }
+
+    private final PointWriter out;
+    private final Grouping grouping;
+    private final String marker;
+    private final PackedGeometry geometry;
+    private final boolean multipart;
+
+    /**
+     * The label the current feature is grouped by or named after, or null if it has none yet.
+     */
+    private String label;
+    private boolean afterBlank;
+
+    private long features;
+    private long dropped;
+
+    /**
+     * Creates an assembler.
+     *
+     * @param out      where each finished geometry is written to.
+     * @param type     the type of geometry to build, which must not be a Point.
+     * @param grouping what ends one feature and starts the next.
+     * @param marker   the line which ends a feature when grouping by marker, ignored otherwise.
+     */
+    public GeometryAssembler(PointWriter out, Geometry.typeConstant type, Grouping grouping, String marker) {
+        if (grouping == Grouping.MARKER && (marker == null || marker.isBlank())) {
+            throw new IllegalArgumentException("Grouping by marker needs a marker");
+        }
+        this.out = out;
+        this.grouping = grouping;
+        this.marker = marker != null ? marker.strip() : null;
+        this.geometry = new PackedGeometry(type);
+        this.multipart = type == Geometry.typeConstant.POLYGON || type == Geometry.typeConstant.MULTILINESTRING
+                || type == Geometry.typeConstant.MULTIPOLYGON;
+    }
+
+    /**
+     * Handles a line which separates points rather than holding one: a blank line, or the marker line when grouping
+     * by marker.
+     *
+     * @param line the line as it was read.
+     * @return true if the line was a separator and has been handled, false if it should be converted.
+     * @throws IOException if a finished geometry could not be written.
+     */
+    public boolean separator(CharSequence line) throws IOException {
+        if (isBlank(line)) {
+            if (grouping == Grouping.BLANK && (afterBlank || !multipart)) {
+                endFeature();
+            } else if (multipart) {
+                endPart();
+            }
+            afterBlank = true;
+            return true;
+        }
+        afterBlank = false;
+        if (grouping == Grouping.MARKER && isMarker(line)) {
+            endFeature();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a converted point as the next position of the current feature, first ending the feature if grouping by
+     * label and the label has changed.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's label, or null or empty for none.
+     * @throws IOException if a finished geometry could not be written.
+     */
+    public void add(double longitude, double latitude, String name) throws IOException {
+        if (name != null && name.isEmpty()) {
+            name = null;
+        }
+        if (grouping == Grouping.LABEL && geometry.getPositionCount() > 0 && !equal(name, label)) {
+            endFeature();
+        }
+        if (geometry.getPositionCount() == 0 || label == null) {
+            label = name;
+        }
+        geometry.add(longitude, latitude);
+    }
+
+    /**
+     * Writes out the feature in progress, if any. Call this once the input has ended.
+     *
+     * @throws IOException if the geometry could not be written.
+     */
+    public void finish() throws IOException {
+        endFeature();
+    }
+
+    /**
+     * @return the number of features written.
+     */
+    public long getFeatures() {
+        return features;
+    }
+
+    /**
+     * @return the number of parts dropped for having too few positions.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return "GeometryAssembler{" +
+                "type=" + geometry.getType().value +
+                ", features=" + features +
+                ", dropped=" + dropped +
+                '}';
+    }
+
+    /**
+     * Ends the part in progress, closing it if it is a ring, or drops it if it is too short.
+     */
+    private void endPart() {
+        int start = geometry.partStart(geometry.getPartCount());
+        int length = geometry.getPositionCount() - start;
+        if (length == 0) {
+            return;
+        }
+        Geometry.typeConstant type = geometry.getType();
+        boolean ring = type == Geometry.typeConstant.POLYGON || type == Geometry.typeConstant.MULTIPOLYGON;
+        if (ring && length >= 3) {
+            int last = geometry.getPositionCount() - 1;
+            if (geometry.getLongitude(start) != geometry.getLongitude(last)
+                    || geometry.getLatitude(start) != geometry.getLatitude(last)) {
+                geometry.add(geometry.getLongitude(start), geometry.getLatitude(start));
+                length++;
+            }
+        }
+        int minimum = ring ? 4 : type == Geometry.typeConstant.MULTIPOINT ? 1 : 2;
+        if (length < minimum) {
+            geometry.discardPart();
+            dropped++;
+        } else if (type == Geometry.typeConstant.MULTIPOLYGON) {
+            geometry.endPolygon();
+        } else {
+            geometry.endPart();
+        }
+    }
+
+    /**
+     * Writes out the feature in progress, if any part of it is left, and starts the next one.
+     */
+    private void endFeature() throws IOException {
+        endPart();
+        if (geometry.getPartCount() > 0) {
+            out.writeGeometry(geometry, label);
+            features++;
+        }
+        geometry.clear();
+        label = null;
+    }
+
+    private boolean isMarker(CharSequence line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != marker.length()) {
+            return false;
+        }
+        for (int i = 0; i < marker.length(); i++) {
+            if (line.charAt(start + i) != marker.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
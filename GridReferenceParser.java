@@ -0,0 +1,464 @@
+import java.util.Arrays;
+
+/**
+ * Recognises coordinates given as grid references rather than in degrees, and converts them to decimal degrees in the
+ * same pass over the line:
+ * <ul>
+ *     <li>UTM, as a zone, latitude band, easting, and northing, such as {@code 17T 589157 4477837}. The eastings and
+ *     northings can be followed by {@code m}, {@code mE}, or {@code mN}. The band letter only gives the hemisphere, N
+ *     to X being north of the equator and C to M south of it, so {@code 17S} is in the north;</li>
+ *     <li>MGRS, as a zone, latitude band, 100km square, and up to five digits each of easting and northing within the
+ *     square, such as {@code 17TNE8915777837} or {@code 17T NE 89157 77837}. The position is the south west corner
+ *     of the square the digits give;</li>
+ *     <li>geohash, in lower case, such as {@code dppn59uz}. The position is the centre of the cell. It must be at least
+ *     five characters long and have both a letter and a digit in it, so a label word is never taken for one. One
+ *     which starts with a digit and has no letters but d, m, and s, such as {@code 40d26m46s}, reads as degrees,
+ *     minutes, and seconds instead, so it is not taken for one either.</li>
+ * </ul>
+ * Words after the reference are kept as the label, as they are for coordinates in degrees. The polar regions beyond
+ * the UTM bands, which MGRS covers with the A, B, Y, and Z bands, are not supported.
+ * <p>
+ * A parser keeps its working state between calls to avoid allocating per line, so an instance must not be shared
+ * between threads.
+ */
+public class GridReferenceParser {
+    /**
+     * The latitude bands, 8 degrees each from 80 degrees south, and the letters of MGRS's 100km squares. I and O are
+     * left out of each.
+     */
+    private static final String BANDS = "CDEFGHJKLMNPQRSTUVWX";
+    private static final String COLUMNS = "ABCDEFGHJKLMNPQRSTUVWXYZ";
+    private static final String ROWS = "ABCDEFGHJKLMNPQRSTUV";
+
+    /**
+     * The band from which latitudes are north of the equator.
+     */
+    private static final int FIRST_NORTHERN_BAND = BANDS.indexOf('N');
+
+    /**
+     * The columns of 100km squares are lettered across three zones in turn, and the rows repeat every 2000km.
+     */
+    private static final int COLUMNS_PER_ZONE = 8;
+    private static final double SQUARE = 100_000;
+    private static final double ROW_CYCLE = 2_000_000;
+
+    /**
+     * The northing of the southern edge of each band, rounded down to a whole square, so the row letters can be placed
+     * in the right 2000km cycle.
+     */
+    private static final double[] BAND_NORTHINGS = new double[BANDS.length()];
+
+    /**
+     * The UTM eastings and northings accepted, which keep out pairs of small numbers such as degrees and minutes.
+     */
+    private static final double MIN_EASTING = 100_000;
+    private static final double MAX_EASTING = 900_000;
+    private static final double MAX_NORTHING = 10_000_000;
+
+    private static final String GEOHASH = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int MIN_GEOHASH_LENGTH = 5;
+    private static final int MAX_GEOHASH_LENGTH = 12;
+
+    /**
+     * The value of each geohash character, or -1 for characters which are not one.
+     */
+    private static final byte[] GEOHASH_VALUES = new byte[128];
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5};
+
+    static {
+        double[] x = new double[1];
+        double[] y = new double[1];
+        for (int band = 0; band < BANDS.length(); band++) {
+            // measured on the central meridian of zone 31, which is the same distance along every central meridian
+            x[0] = 3;
+            y[0] = band * 8 - 80;
+            Reprojection.toUtm(x, y, 1, 31, band < FIRST_NORTHERN_BAND, x, y);
+            BAND_NORTHINGS[band] = Math.floor(y[0] / SQUARE) * SQUARE;
+        }
+        Arrays.fill(GEOHASH_VALUES, (byte) -1);
+        for (int i = 0; i < GEOHASH.length(); i++) {
+            GEOHASH_VALUES[GEOHASH.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * One position at a time is converted through Reprojection's arrays.
+     */
+    private final double[] x = new double[1];
+    private final double[] y = new double[1];
+
+    private CharSequence line;
+    private int position;
+    private double number;
+
+    private double latitude;
+    private double longitude;
+    private CoordinateScanner.Format format;
+    private int labelStart;
+    private int labelEnd;
+
+    /**
+     * Parses a line which starts with a grid reference, appending any words after it to the label.
+     *
+     * @param input the user's input.
+     * @param label where words after the reference are appended, each followed by a space. Nothing is appended if the
+     *              line is not a grid reference.
+     * @return true if the line is a grid reference and was converted, false otherwise.
+     */
+    public boolean parse(CharSequence input, StringBuilder label) {
+        line = input;
+        try {
+            int start = skipSpaces(0);
+            if (start == line.length()) {
+                return false;
+            }
+            return (CoordinateScanner.isDigit(line.charAt(start)) && (parseMgrs(start) || parseUtm(start))
+                    || parseGeohash(start)) && label(label);
+        } finally {
+            line = null;
+        }
+    }
+
+    /**
+     * Gets the latitude of the last reference parsed.
+     *
+     * @return latitude in decimal degrees.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Gets the longitude of the last reference parsed.
+     *
+     * @return longitude in decimal degrees.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Gets the kind of reference last parsed.
+     *
+     * @return UTM, MGRS, or GEOHASH.
+     */
+    public CoordinateScanner.Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the index in the line of the first character of the first word after the last reference, or -1 for
+     * none.
+     */
+    public int getLabelStart() {
+        return labelStart;
+    }
+
+    /**
+     * @return the index in the line after the last word after the last reference, or -1 for none.
+     */
+    public int getLabelEnd() {
+        return labelEnd;
+    }
+
+    /**
+     * Reads a zone and band followed by a 100km square and its digits.
+     */
+    private boolean parseMgrs(int start) {
+        position = start;
+        int zone = zone();
+        int band = zone > 0 ? band() : -1;
+        if (band < 0) {
+            return false;
+        }
+        position = skipSpaces(position);
+        if (position + 2 > line.length()) {
+            return false;
+        }
+        // each of three zones in turn takes the next eight column letters
+        int column = COLUMNS.indexOf(Character.toUpperCase(line.charAt(position)))
+                - (zone - 1) % 3 * COLUMNS_PER_ZONE;
+        int row = ROWS.indexOf(Character.toUpperCase(line.charAt(position + 1)));
+        if (column < 0 || column >= COLUMNS_PER_ZONE || row < 0) {
+            return false;
+        }
+        position += 2;
+
+        // the digits are either one run, split in half, or two runs of the same length
+        position = skipSpaces(position);
+        long easting;
+        long northing;
+        int digits;
+        int runStart = position;
+        while (position < line.length() && CoordinateScanner.isDigit(line.charAt(position))) {
+            position++;
+        }
+        int firstRun = position - runStart;
+        int afterFirst = position;
+        position = skipSpaces(position);
+        int secondStart = position;
+        while (position < line.length() && CoordinateScanner.isDigit(line.charAt(position))) {
+            position++;
+        }
+        int secondRun = position - secondStart;
+        if (secondRun > 0 && secondRun == firstRun && firstRun <= 5) {
+            digits = firstRun;
+            easting = digitValue(runStart, runStart + digits);
+            northing = digitValue(secondStart, secondStart + digits);
+        } else if (secondRun == 0 && firstRun % 2 == 0 && firstRun <= 10) {
+            digits = firstRun / 2;
+            easting = digitValue(runStart, runStart + digits);
+            northing = digitValue(runStart + digits, afterFirst);
+            position = afterFirst;
+        } else {
+            return false;
+        }
+        if (!endOfReference()) {
+            return false;
+        }
+
+        double scale = POWERS_OF_TEN[5 - digits];
+        double eastingMetres = (column + 1) * SQUARE + easting * scale;
+        // even zones letter their rows from F rather than A
+        int rowInCycle = Math.floorMod(row - (zone % 2 == 0 ? 5 : 0), ROWS.length());
+        double northingMetres = rowInCycle * SQUARE + northing * scale;
+        while (northingMetres < BAND_NORTHINGS[band]) {
+            northingMetres += ROW_CYCLE;
+        }
+        format = CoordinateScanner.Format.MGRS;
+        return convert(eastingMetres, northingMetres, zone, band < FIRST_NORTHERN_BAND);
+    }
+
+    /**
+     * Reads a zone and band followed by an easting and a northing in metres.
+     */
+    private boolean parseUtm(int start) {
+        position = start;
+        int zone = zone();
+        int band = zone > 0 ? band() : -1;
+        if (band < 0) {
+            return false;
+        }
+        position = skipSpaces(position);
+        if (!number() || !unit('E')) {
+            return false;
+        }
+        double easting = number;
+        position = skipSpaces(position);
+        if (position < line.length() && line.charAt(position) == ',') {
+            position = skipSpaces(position + 1);
+        }
+        if (!number() || !unit('N') || !endOfReference()) {
+            return false;
+        }
+        double northing = number;
+        if (easting < MIN_EASTING || easting > MAX_EASTING || northing > MAX_NORTHING) {
+            return false;
+        }
+        format = CoordinateScanner.Format.UTM;
+        return convert(easting, northing, zone, band < FIRST_NORTHERN_BAND);
+    }
+
+    /**
+     * Reads a geohash, decoding each character's five bits into halvings of the longitude and latitude in turn.
+     */
+    private boolean parseGeohash(int start) {
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        boolean evenBit = true;
+        boolean letters = false;
+        boolean digits = false;
+        boolean otherThanUnits = false;
+        position = start;
+        while (position < line.length() && !CoordinateScanner.isSpace(line.charAt(position))) {
+            char c = line.charAt(position);
+            int value = c < GEOHASH_VALUES.length ? GEOHASH_VALUES[c] : -1;
+            if (value < 0 || position - start == MAX_GEOHASH_LENGTH) {
+                return false;
+            }
+            letters |= value >= 10;
+            digits |= value < 10;
+            otherThanUnits |= value >= 10 && c != 'd' && c != 'm' && c != 's';
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean upper = (value >> bit & 1) == 1;
+                if (evenBit) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (upper) {
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (upper) {
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            position++;
+        }
+        if (!letters || !digits || position - start < MIN_GEOHASH_LENGTH) {
+            return false;
+        }
+        if (!otherThanUnits && CoordinateScanner.isDigit(line.charAt(start))) {
+            // a number followed by units, such as 40d26m46s
+            return false;
+        }
+        longitude = (minLongitude + maxLongitude) / 2;
+        latitude = (minLatitude + maxLatitude) / 2;
+        format = CoordinateScanner.Format.GEOHASH;
+        return true;
+    }
+
+    /**
+     * Converts a UTM position to degrees, rejecting positions off the ellipsoid.
+     */
+    private boolean convert(double easting, double northing, int zone, boolean south) {
+        x[0] = easting;
+        y[0] = northing;
+        Reprojection.fromUtm(x, y, 1, zone, south, x, y);
+        longitude = x[0];
+        latitude = y[0];
+        return Double.isFinite(longitude) && Double.isFinite(latitude);
+    }
+
+    /**
+     * Reads a zone of one or two digits.
+     *
+     * @return the zone, or 0 if there is none.
+     */
+    private int zone() {
+        int zone = 0;
+        int digits = 0;
+        while (position < line.length() && CoordinateScanner.isDigit(line.charAt(position)) && digits < 3) {
+            zone = zone * 10 + line.charAt(position) - '0';
+            digits++;
+            position++;
+        }
+        return digits <= 2 && zone >= 1 && zone <= 60 ? zone : 0;
+    }
+
+    /**
+     * Reads a latitude band letter, which may be set apart from the zone by spaces.
+     *
+     * @return the band's index, or -1 if there is none.
+     */
+    private int band() {
+        position = skipSpaces(position);
+        if (position == line.length()) {
+            return -1;
+        }
+        int band = BANDS.indexOf(Character.toUpperCase(line.charAt(position)));
+        if (band >= 0) {
+            position++;
+        }
+        return band;
+    }
+
+    /**
+     * Reads a whole or decimal number of metres.
+     *
+     * @return false if there is no number, or it has too many digits to be read exactly.
+     */
+    private boolean number() {
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        int numberDigits = 0;
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if (CoordinateScanner.isDigit(c)) {
+                mantissa = mantissa * 10 + (c - '0');
+                numberDigits++;
+                if (point) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (numberDigits == 0 || numberDigits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            return false;
+        }
+        number = mantissa / POWERS_OF_TEN[fractionDigits];
+        return true;
+    }
+
+    /**
+     * Skips an optional {@code m} after a number of metres, and the letter naming the axis after that.
+     *
+     * @return false if the number runs straight into anything else.
+     */
+    private boolean unit(char axis) {
+        if (position < line.length() && line.charAt(position) == 'm') {
+            position++;
+            if (position < line.length() && line.charAt(position) == axis) {
+                position++;
+            }
+        }
+        return position == line.length() || CoordinateScanner.isSpace(line.charAt(position))
+                || line.charAt(position) == ',';
+    }
+
+    /**
+     * @return true if the reference is followed by the end of the line or a space.
+     */
+    private boolean endOfReference() {
+        return position == line.length() || CoordinateScanner.isSpace(line.charAt(position));
+    }
+
+    /**
+     * Appends the words after the reference to the label, as long as there is nothing else there.
+     */
+    private boolean label(StringBuilder label) {
+        int length = label.length();
+        labelStart = -1;
+        labelEnd = -1;
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if (CoordinateScanner.isSpace(c) || c == ',') {
+                position++;
+                continue;
+            }
+            int end = position;
+            while (end < line.length() && CoordinateScanner.isWordCharacter(line.charAt(end))) {
+                end++;
+            }
+            if (end - position < 2) {
+                label.setLength(length);
+                return false;
+            }
+            label.append(line, position, end).append(' ');
+            if (labelStart < 0) {
+                labelStart = position;
+            }
+            labelEnd = end;
+            position = end;
+        }
+        return true;
+    }
+
+    private int skipSpaces(int from) {
+        while (from < line.length() && CoordinateScanner.isSpace(line.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private long digitValue(int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (line.charAt(i) - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long something took, in nanoseconds, in buckets which get wider as the values get larger, so any value
+ * from a nanosecond to many seconds can be recorded in a fixed amount of memory. Each power of two is split into
+ * SUB_BUCKETS buckets, so a percentile read back is never more than an eighth above the true value.
+ * <p>
+ * Recording takes no locks and can be done from any number of threads at once.
+ */
+public class LatencyHistogram {
+    /**
+     * The number of buckets each power of two is split into, as a power of two itself.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values are recorded exactly up to SUB_BUCKETS, then one row of buckets for each power of two up to 2^62.
+     */
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos how long something took, in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the mean of the values recorded, or 0 if there are none.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * @return the largest value recorded, or 0 if there are none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value which the given share of recorded values are at or below, rounded up to the top of its bucket.
+     *
+     * @param percentile from 0 to 100.
+     * @return the value, or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[buckets.length];
+        long n = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets every value recorded.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", mean=" + Math.round(getMean()) +
+                ", p50=" + getPercentile(50) +
+                ", p99=" + getPercentile(99) +
+                ", max=" + getMax();
+    }
+
+    /**
+     * Finds the bucket for a value: the value itself below SUB_BUCKETS, and above that its power of two followed by the
+     * next SUB_BUCKET_BITS bits.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The largest value which falls in a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long next = (SUB_BUCKETS + sub + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,26 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Somewhere lines of input are read from.
+ */
+public interface LineSource extends Closeable {
+    /**
+     * Reads the next line, without its line terminator. The returned line may be reused by the source, so it is only
+     * valid until the next call.
+     *
+     * @return the next line, or null at the end of the input.
+     * @throws IOException if reading fails.
+     */
+    CharSequence readLine() throws IOException;
+
+    /**
+     * Tells whether the next line can be read without blocking, so output can be flushed before waiting on input.
+     *
+     * @return true if reading the next line will not block.
+     * @throws IOException if reading fails.
+     */
+    default boolean ready() throws IOException {
+        return true;
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values, kept in two primitive arrays so no objects are made for its entries. It uses
+ * open addressing with linear probing, and removal shifts later entries back rather than leaving markers behind, so
+ * the map does not slow down as entries come and go.
+ * <p>
+ * A map must not be shared between threads.
+ */
+public class LongIntMap {
+    /**
+     * The key which marks an empty slot. An entry with this key is held outside the arrays.
+     */
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    private boolean hasFreeKey;
+    private int freeValue;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongIntMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map with room for the given number of entries before it has to grow.
+     *
+     * @param expected the number of entries expected.
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected * 2 - 1, 4)) * 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key     the key to look up.
+     * @param missing what to return if the key is not in the map.
+     * @return the key's value, or missing.
+     */
+    public int get(long key, int missing) {
+        if (key == FREE) {
+            return hasFreeKey ? freeValue : missing;
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == FREE) {
+                return missing;
+            }
+        }
+    }
+
+    /**
+     * Sets the value for a key.
+     *
+     * @param key   the key.
+     * @param value the value.
+     */
+    public void put(long key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+        int i = slot(key);
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length / 2) {
+            grow();
+        }
+    }
+
+    /**
+     * Adds to the value for a key, treating a missing key as 0.
+     *
+     * @param key    the key.
+     * @param amount what to add.
+     * @return the new value.
+     */
+    public int add(long key, int amount) {
+        int value = get(key, 0) + amount;
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Adds one to the value for a key, treating a missing key as 0, in a single probe of the table. A value which has
+     * reached Integer.MAX_VALUE stays there rather than overflowing, so the map can count without wrapping around.
+     *
+     * @param key the key.
+     * @return the new value.
+     */
+    public int increment(long key) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            if (freeValue != Integer.MAX_VALUE) {
+                freeValue++;
+            }
+            return freeValue;
+        }
+        int i = slot(key);
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                if (values[i] != Integer.MAX_VALUE) {
+                    values[i]++;
+                }
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = 1;
+        if (++size > keys.length / 2) {
+            grow();
+        }
+        return 1;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key to remove.
+     * @return true if the key was in the map.
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = false;
+            size--;
+            return true;
+        }
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // shift back any later entry which would no longer be found past the gap
+        int gap = i;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the number of entries in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry, keeping the arrays for reuse.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Calls the visitor with every entry, in no particular order. The map must not be changed while this runs.
+     *
+     * @param visitor given each key and its value.
+     */
+    public void forEach(Visitor visitor) {
+        if (hasFreeKey) {
+            visitor.visit(FREE, freeValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Receives the entries of a map.
+     */
+    public interface Visitor {
+        void visit(long key, int value);
+    }
+
+    private int slot(long key) {
+        // the finalizer of MurmurHash3, so keys which differ only in their high bits still spread out
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
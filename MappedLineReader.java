@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads lines from a UTF-8 file by memory mapping it, finding line breaks in the mapped bytes, and decoding each line
+ * into a reused character buffer. No string is created for a line unless the caller asks for one.
+ * <p>
+ * The file is mapped a window at a time, so files larger than 2GB can be read. A window is moved along to start at the
+ * first line it did not finish, and is grown if a single line does not fit in it.
+ */
+public class MappedLineReader implements LineSource {
+    /**
+     * Size of each mapped window when none is given.
+     */
+    public static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final boolean wholeLinesOnly;
+    private int window;
+
+    private MappedByteBuffer buffer;
+    private long windowStart;
+    private int offset;
+    private int limit;
+
+    private final Line line = new Line();
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param path the file to read.
+     * @throws IOException if the file can not be opened.
+     */
+    public MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Opens a file for reading, mapping it in windows of the given size.
+     *
+     * @param path   the file to read.
+     * @param window the number of bytes to map at a time.
+     * @throws IOException if the file can not be opened.
+     */
+    public MappedLineReader(Path path, int window) throws IOException {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1 byte");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.window = window;
+        this.wholeLinesOnly = false;
+    }
+
+    /**
+     * Opens a file for reading from part way through, such as where an earlier read of a growing file stopped.
+     *
+     * @param path           the file to read.
+     * @param start          the position of the first byte to read, which should be the start of a line.
+     * @param wholeLinesOnly true to stop before a last line with no line break, as it may still be being written.
+     *                       getPosition is then left at its start, so it is read once finished.
+     * @throws IOException if the file can not be opened.
+     */
+    public MappedLineReader(Path path, long start, boolean wholeLinesOnly) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        if (start < 0 || start > size) {
+            channel.close();
+            throw new IllegalArgumentException("Start " + start + " is outside the file");
+        }
+        this.window = DEFAULT_WINDOW;
+        this.windowStart = start;
+        this.wholeLinesOnly = wholeLinesOnly;
+    }
+
+    @Override
+    public CharSequence readLine() throws IOException {
+        while (true) {
+            if (buffer == null) {
+                if (windowStart >= size) {
+                    return null;
+                }
+                map();
+            }
+            for (int i = offset; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    decode(offset, i);
+                    offset = i + 1;
+                    return line;
+                }
+            }
+            if (windowStart + limit == size) {
+                if (wholeLinesOnly) {
+                    // the last line has no line break yet, so leave it until it does
+                    windowStart += offset;
+                    buffer = null;
+                    return null;
+                }
+                // the last line of the file has no line break
+                if (offset < limit) {
+                    decode(offset, limit);
+                    offset = limit;
+                    return line;
+                }
+                windowStart = size;
+                buffer = null;
+                return null;
+            }
+            if (offset == 0) {
+                // a single line is longer than the window
+                if (window == Integer.MAX_VALUE) {
+                    throw new IOException("Line longer than " + Integer.MAX_VALUE + " bytes");
+                }
+                window = (int) Math.min((long) window * 2, Integer.MAX_VALUE);
+            }
+            windowStart += offset;
+            buffer = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes of the file read so far, which is where the next line starts.
+     */
+    public long getPosition() {
+        return buffer == null ? windowStart : windowStart + offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+
+    private void map() throws IOException {
+        limit = (int) Math.min(window, size - windowStart);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, limit);
+        offset = 0;
+        // skip a byte order mark at the start of the file
+        if (windowStart == 0 && limit >= 3 && (buffer.get(0) & 0xff) == 0xef && (buffer.get(1) & 0xff) == 0xbb
+                && (buffer.get(2) & 0xff) == 0xbf) {
+            offset = 3;
+        }
+    }
+
+    /**
+     * Decodes UTF-8 bytes into the line's characters, dropping a trailing carriage return. Malformed bytes become the
+     * replacement character.
+     */
+    private void decode(int from, int to) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        line.ensureCapacity(to - from);
+        char[] chars = line.chars;
+        int length = 0;
+        int i = from;
+        while (i < to) {
+            int b = buffer.get(i++);
+            if (b >= 0) {
+                chars[length++] = (char) b;
+                continue;
+            }
+            int extra;
+            int codePoint;
+            if ((b & 0xe0) == 0xc0) {
+                extra = 1;
+                codePoint = b & 0x1f;
+            } else if ((b & 0xf0) == 0xe0) {
+                extra = 2;
+                codePoint = b & 0x0f;
+            } else if ((b & 0xf8) == 0xf0) {
+                extra = 3;
+                codePoint = b & 0x07;
+            } else {
+                chars[length++] = '\ufffd';
+                continue;
+            }
+            if (i + extra > to) {
+                chars[length++] = '\ufffd';
+                break;
+            }
+            boolean valid = true;
+            for (int k = 0; k < extra; k++) {
+                int next = buffer.get(i + k);
+                if ((next & 0xc0) != 0x80) {
+                    valid = false;
+                    break;
+                }
+                codePoint = codePoint << 6 | (next & 0x3f);
+            }
+            if (!valid) {
+                chars[length++] = '\ufffd';
+                continue;
+            }
+            i += extra;
+            if (codePoint >= 0x10000) {
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[length++] = (char) codePoint;
+            }
+        }
+        line.length = length;
+    }
+
+    /**
+     * A line of characters which is reused for every line read.
+     */
+    private static class Line implements CharSequence {
+        private char[] chars = new char[256];
+        private int length;
+
+        /**
+         * Every byte decodes to at most one character, so the byte count is always enough room.
+         */
+        void ensureCapacity(int bytes) {
+            if (chars.length < bytes) {
+                chars = new char[Math.max(bytes, chars.length * 2)];
+            }
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
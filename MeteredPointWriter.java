@@ -0,0 +1,51 @@
+import java.io.IOException;
+
+/**
+ * Sits in front of another point writer and records how long each point or geometry takes to write.
+ */
+public class MeteredPointWriter implements PointWriter {
+    private final PointWriter out;
+    private final LatencyHistogram latency;
+
+    /**
+     * Creates a metered writer.
+     *
+     * @param out     where points are written to.
+     * @param latency where the time taken by each point is recorded.
+     */
+    public MeteredPointWriter(PointWriter out, LatencyHistogram latency) {
+        this.out = out;
+        this.latency = latency;
+    }
+
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        long start = System.nanoTime();
+        out.writePoint(longitude, latitude, name);
+        latency.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void writePoint(double longitude, double latitude, String name, Attributes attributes) throws IOException {
+        long start = System.nanoTime();
+        out.writePoint(longitude, latitude, name, attributes);
+        latency.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        long start = System.nanoTime();
+        out.writeGeometry(geometry, name);
+        latency.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.finish();
+    }
+}
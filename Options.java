@@ -0,0 +1,512 @@
+/**
+ * The command line options of the application.
+ */
+public class Options {
+    private boolean stream = false;
+    private int threads = 1;
+    private int cacheSize = 0;
+    private ConversionCache.Eviction cachePolicy = ConversionCache.Eviction.LRU;
+    private int sniffLines = 0;
+    private String input = null;
+    private int decimals = CoordinateRounder.DEFAULT_DECIMALS;
+    private boolean compact = false;
+    private boolean binary = false;
+    private String decode = null;
+    private double dedupeTolerance = 0;
+    private int dedupeWindow = DuplicateFilter.DEFAULT_WINDOW;
+    private DuplicateFilter.Mode dedupeMode = DuplicateFilter.Mode.DROP;
+    private int port = -1;
+    private int metricsPeriod = -1;
+    private String rejects = null;
+    private long rejectEcho = Long.MAX_VALUE;
+    private long rejectSample = 1;
+    private Geometry.typeConstant geometry = null;
+    private GeometryAssembler.Grouping groupBy = GeometryAssembler.Grouping.LABEL;
+    private String marker = null;
+    private char delimiter = 0;
+    private boolean gzip = false;
+    private String columns = null;
+    private String follow = null;
+    private boolean segments = false;
+    private long pollMillis = 1000;
+    private Reprojection.Target projection = null;
+    private int[] tileZooms = null;
+    private boolean bbox = false;
+
+    /**
+     * Reads the options from the command line arguments.
+     *
+     * @param args the command line arguments.
+     * @return the options.
+     * @throws IllegalArgumentException if an argument is not recognised or is missing its value.
+     */
+    public static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stream":
+                    options.stream = true;
+                    break;
+                case "--threads":
+                    options.threads = Integer.parseInt(value(args, ++i));
+                    options.stream = true;
+                    break;
+                case "--cache":
+                    options.cacheSize = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--cache-policy":
+                    options.cachePolicy = ConversionCache.Eviction.valueOf(value(args, ++i).toUpperCase());
+                    break;
+                case "--sniff":
+                    options.sniffLines = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--input":
+                    options.input = value(args, ++i);
+                    break;
+                case "--decimals":
+                    options.decimals = Integer.parseInt(value(args, ++i));
+                    if (options.decimals < 0 || options.decimals > CoordinateRounder.MAX_DECIMALS) {
+                        throw new IllegalArgumentException(
+                                "--decimals must be between 0 and " + CoordinateRounder.MAX_DECIMALS);
+                    }
+                    break;
+                case "--compact":
+                    options.compact = true;
+                    break;
+                case "--binary":
+                    options.binary = true;
+                    break;
+                case "--decode":
+                    options.decode = value(args, ++i);
+                    break;
+                case "--dedupe":
+                    options.dedupeTolerance = Double.parseDouble(value(args, ++i));
+                    if (!(options.dedupeTolerance > 0)) {
+                        throw new IllegalArgumentException("--dedupe must be a distance in metres greater than 0");
+                    }
+                    break;
+                case "--dedupe-window":
+                    options.dedupeWindow = Integer.parseInt(value(args, ++i));
+                    if (options.dedupeWindow < 0) {
+                        throw new IllegalArgumentException("--dedupe-window must not be negative");
+                    }
+                    break;
+                case "--dedupe-mode":
+                    options.dedupeMode = DuplicateFilter.Mode.valueOf(value(args, ++i).toUpperCase());
+                    break;
+                case "--metrics":
+                    options.metricsPeriod = Integer.parseInt(value(args, ++i));
+                    if (options.metricsPeriod < 0) {
+                        throw new IllegalArgumentException("--metrics must be a number of seconds, or 0");
+                    }
+                    break;
+                case "--rejects":
+                    options.rejects = value(args, ++i);
+                    break;
+                case "--reject-echo":
+                    options.rejectEcho = Long.parseLong(value(args, ++i));
+                    if (options.rejectEcho < 0) {
+                        throw new IllegalArgumentException("--reject-echo must not be negative");
+                    }
+                    break;
+                case "--reject-sample":
+                    options.rejectSample = Long.parseLong(value(args, ++i));
+                    if (options.rejectSample < 1) {
+                        throw new IllegalArgumentException("--reject-sample must be at least 1");
+                    }
+                    break;
+                case "--serve":
+                    options.port = Integer.parseInt(value(args, ++i));
+                    if (options.port < 0 || options.port > 65535) {
+                        throw new IllegalArgumentException("--serve must be a port from 0 to 65535");
+                    }
+                    break;
+                case "--geometry":
+                    options.geometry = Geometry.typeConstant.valueOf(value(args, ++i).toUpperCase());
+                    if (options.geometry == Geometry.typeConstant.POINT) {
+                        options.geometry = null;
+                    }
+                    break;
+                case "--group-by":
+                    options.groupBy = GeometryAssembler.Grouping.valueOf(value(args, ++i).toUpperCase());
+                    break;
+                case "--marker":
+                    options.marker = value(args, ++i);
+                    options.groupBy = GeometryAssembler.Grouping.MARKER;
+                    break;
+                case "--gzip":
+                    options.gzip = true;
+                    break;
+                case "--csv":
+                    options.delimiter = ',';
+                    break;
+                case "--tsv":
+                    options.delimiter = '\t';
+                    break;
+                case "--columns":
+                    options.columns = value(args, ++i);
+                    break;
+                case "--follow":
+                    options.follow = value(args, ++i);
+                    break;
+                case "--segments":
+                    options.segments = true;
+                    break;
+                case "--poll":
+                    options.pollMillis = Long.parseLong(value(args, ++i));
+                    if (options.pollMillis < 1) {
+                        throw new IllegalArgumentException("--poll must be at least 1 millisecond");
+                    }
+                    break;
+                case "--project":
+                    options.projection = projection(value(args, ++i));
+                    break;
+                case "--tiles":
+                    options.tileZooms = zooms(value(args, ++i));
+                    break;
+                case "--bbox":
+                    options.bbox = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (options.geometry != null) {
+            if (options.binary || options.threads > 1 || options.dedupeTolerance > 0) {
+                throw new IllegalArgumentException(
+                        "--geometry can not be combined with --binary, --threads, or --dedupe");
+            }
+            if (options.groupBy == GeometryAssembler.Grouping.MARKER && options.marker == null) {
+                throw new IllegalArgumentException("--group-by marker needs --marker");
+            }
+        }
+        if (options.delimiter != 0) {
+            if (options.binary || options.threads > 1 || options.dedupeTolerance > 0 || options.geometry != null) {
+                throw new IllegalArgumentException(
+                        "--csv and --tsv can not be combined with --binary, --threads, --dedupe, or --geometry");
+            }
+        } else if (options.columns != null) {
+            throw new IllegalArgumentException("--columns needs --csv or --tsv");
+        }
+        if (options.follow != null) {
+            if (options.input != null || options.decode != null || options.binary || options.threads > 1
+                    || options.dedupeTolerance > 0 || options.geometry != null || options.delimiter != 0
+                    || options.port >= 0 || options.gzip) {
+                throw new IllegalArgumentException("--follow can not be combined with --input, --decode, --binary, "
+                        + "--threads, --dedupe, --geometry, --csv, --tsv, --serve, or --gzip");
+            }
+        } else if (options.segments) {
+            throw new IllegalArgumentException("--segments needs --follow");
+        }
+        if (options.port >= 0 && (options.input != null || options.decode != null || options.binary
+                || options.dedupeTolerance > 0 || options.geometry != null || options.delimiter != 0 || options.gzip)) {
+            throw new IllegalArgumentException("--serve can not be combined with --input, --decode, --binary, "
+                    + "--dedupe, --geometry, --csv, --tsv, or --gzip");
+        }
+        if (options.projection != null) {
+            if (options.binary || options.port >= 0 || options.follow != null) {
+                throw new IllegalArgumentException("--project can not be combined with --binary, --serve, or --follow");
+            }
+            if (options.projection == Reprojection.Target.ECEF && options.geometry != null) {
+                throw new IllegalArgumentException("--project ecef can not be combined with --geometry");
+            }
+        }
+        if (options.tileZooms != null || options.bbox) {
+            if (options.port >= 0 || options.follow != null) {
+                throw new IllegalArgumentException("--tiles and --bbox can not be combined with --serve or --follow");
+            }
+            if (options.bbox && (options.binary || options.projection != null)) {
+                throw new IllegalArgumentException("--bbox can not be combined with --binary or --project");
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Reads zoom levels separated by commas, each a single level or a range such as 0-14.
+     */
+    private static int[] zooms(String list) {
+        boolean[] chosen = new boolean[TileAggregator.MAX_ZOOM + 1];
+        int count = 0;
+        try {
+            for (String part : list.split(",")) {
+                int dash = part.indexOf('-');
+                int from = Integer.parseInt(part.substring(0, dash < 0 ? part.length() : dash).trim());
+                int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1).trim());
+                if (from < 0 || to > TileAggregator.MAX_ZOOM || from > to) {
+                    throw new NumberFormatException();
+                }
+                for (int zoom = from; zoom <= to; zoom++) {
+                    if (!chosen[zoom]) {
+                        chosen[zoom] = true;
+                        count++;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--tiles must be zoom levels from 0 to " + TileAggregator.MAX_ZOOM
+                    + " separated by commas, or ranges such as 0-14");
+        }
+        int[] zooms = new int[count];
+        for (int zoom = 0, i = 0; zoom < chosen.length; zoom++) {
+            if (chosen[zoom]) {
+                zooms[i++] = zoom;
+            }
+        }
+        return zooms;
+    }
+
+    private static Reprojection.Target projection(String name) {
+        switch (name.toLowerCase()) {
+            case "mercator":
+                return Reprojection.Target.WEB_MERCATOR;
+            case "utm":
+                return Reprojection.Target.UTM;
+            case "ecef":
+                return Reprojection.Target.ECEF;
+            default:
+                throw new IllegalArgumentException("--project must be mercator, utm, or ecef");
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+
+    /**
+     * @return true if each feature should be written as soon as it is converted.
+     */
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * @return the number of threads to convert on.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the most lines to keep in the conversion cache, or 0 for no cache.
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return which entry is removed once the cache is full.
+     */
+    public ConversionCache.Eviction getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * @return the number of lines to sample before locking onto the input's format, or 0 to scan every line in full.
+     */
+    public int getSniffLines() {
+        return sniffLines;
+    }
+
+    /**
+     * @return the file to read input from, or null to read from the console.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * @return the number of decimal places coordinates are rounded up to.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * @return true if GeoJSON should be written on a single line instead of pretty printed.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * @return true if output should be written in the compact binary form instead of GeoJSON.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return a binary file to turn back into GeoJSON instead of reading coordinates, or null to read coordinates.
+     */
+    public String getDecode() {
+        return decode;
+    }
+
+    /**
+     * @return how close in metres points have to be to count as duplicates, or 0 to keep every point.
+     */
+    public double getDedupeTolerance() {
+        return dedupeTolerance;
+    }
+
+    /**
+     * @return the number of distinct points remembered when looking for duplicates, or 0 to remember every one.
+     */
+    public int getDedupeWindow() {
+        return dedupeWindow;
+    }
+
+    /**
+     * @return whether duplicates are dropped or merged into the first point.
+     */
+    public DuplicateFilter.Mode getDedupeMode() {
+        return dedupeMode;
+    }
+
+    /**
+     * @return true if conversions should be served over HTTP instead of reading input.
+     */
+    public boolean isServe() {
+        return port >= 0;
+    }
+
+    /**
+     * @return the port to serve conversions on, 0 for any free port, or -1 if not serving.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return true if metrics should be collected.
+     */
+    public boolean isMetrics() {
+        return metricsPeriod >= 0;
+    }
+
+    /**
+     * @return how many seconds apart to print the metrics summary, 0 to print it only at the end, or -1 if metrics are
+     * off.
+     */
+    public int getMetricsPeriod() {
+        return metricsPeriod;
+    }
+
+    /**
+     * @return the file to write lines which could not be converted to, or null for none.
+     */
+    public String getRejects() {
+        return rejects;
+    }
+
+    /**
+     * @return the most lines which could not be converted to echo on the console.
+     */
+    public long getRejectEcho() {
+        return rejectEcho;
+    }
+
+    /**
+     * @return echo only every so many lines which could not be converted, 1 to echo every one.
+     */
+    public long getRejectSample() {
+        return rejectSample;
+    }
+
+    /**
+     * @return the type of geometry to group points into, or null to write each point as a feature of its own.
+     */
+    public Geometry.typeConstant getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return what ends one geometry and starts the next.
+     */
+    public GeometryAssembler.Grouping getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * @return the line which ends a geometry when grouping by marker, or null for none.
+     */
+    public String getMarker() {
+        return marker;
+    }
+
+    /**
+     * @return true if input is delimited text with a header row, such as CSV or TSV.
+     */
+    public boolean isDelimited() {
+        return delimiter != 0;
+    }
+
+    /**
+     * @return the character between the fields of delimited input, or 0 if input is not delimited.
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @return the coordinate column, or latitude and longitude columns, of delimited input, or null to find them by
+     * name.
+     */
+    public String getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return true if the output file should be compressed with gzip.
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * @return the file to follow as it grows, or null to read input once.
+     */
+    public String getFollow() {
+        return follow;
+    }
+
+    /**
+     * @return true if a followed file's new features should be written as numbered segments rather than appended to
+     * a sequence.
+     */
+    public boolean isSegments() {
+        return segments;
+    }
+
+    /**
+     * @return the most milliseconds to wait between checking a followed file for new lines.
+     */
+    public long getPollMillis() {
+        return pollMillis;
+    }
+
+    /**
+     * @return the projection to write coordinates in, or null to write longitudes and latitudes.
+     */
+    public Reprojection.Target getProjection() {
+        return projection;
+    }
+
+    /**
+     * @return the zoom levels to count points in each tile at, in order, or null to not count them.
+     */
+    public int[] getTileZooms() {
+        return tileZooms;
+    }
+
+    /**
+     * @return true if the bounding box of every position should be written into the feature collection.
+     */
+    public boolean isBbox() {
+        return bbox;
+    }
+}
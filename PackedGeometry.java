@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * A geometry of many positions, such as a track or a polygon, kept in one flat array of coordinates rather than an
+ * array for every position. Longitudes and latitudes are interleaved in GeoJSON order, and the geometry is split into
+ * parts and polygons by offsets into that array:
+ * <ul>
+ *     <li>a LineString or MultiPoint is just its positions;</li>
+ *     <li>a Polygon's parts are its rings, the first being the outer ring and any others holes;</li>
+ *     <li>a MultiLineString's parts are its lines;</li>
+ *     <li>a MultiPolygon's parts are rings, grouped into polygons.</li>
+ * </ul>
+ * A geometry is built by adding positions and ending each part and polygon in turn. Ending an empty part or polygon
+ * does nothing. A geometry can be cleared and built again, keeping its arrays.
+ */
+public class PackedGeometry {
+    private final Geometry.typeConstant type;
+
+    private double[] coordinates = new double[32];
+    private int positions;
+
+    /**
+     * The position after the last one of each part, and the part after the last one of each polygon.
+     */
+    private int[] partEnds = new int[4];
+    private int parts;
+    private int[] polygonEnds = new int[4];
+    private int polygons;
+
+    /**
+     * Creates an empty geometry.
+     *
+     * @param type the type of geometry, which must not be a Point.
+     */
+    public PackedGeometry(Geometry.typeConstant type) {
+        if (type == Geometry.typeConstant.POINT) {
+            throw new IllegalArgumentException("A point is not packed");
+        }
+        this.type = type;
+    }
+
+    /**
+     * Adds a position to the end of the current part.
+     *
+     * @param longitude the position's longitude.
+     * @param latitude  the position's latitude.
+     */
+    public void add(double longitude, double latitude) {
+        if (positions * 2 == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+        }
+        coordinates[positions * 2] = longitude;
+        coordinates[positions * 2 + 1] = latitude;
+        positions++;
+    }
+
+    /**
+     * Replaces a position already added, such as with the same position in another coordinate reference system.
+     *
+     * @param position  the index of the position, counting from 0.
+     * @param longitude the position's new longitude or first coordinate.
+     * @param latitude  the position's new latitude or second coordinate.
+     */
+    public void set(int position, double longitude, double latitude) {
+        if (position < 0 || position >= positions) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + positions);
+        }
+        coordinates[position * 2] = longitude;
+        coordinates[position * 2 + 1] = latitude;
+    }
+
+    /**
+     * Ends the current part, so the next position starts a new ring or line.
+     */
+    public void endPart() {
+        if (positions == partStart(parts)) {
+            return;
+        }
+        if (parts == partEnds.length) {
+            partEnds = Arrays.copyOf(partEnds, parts * 2);
+        }
+        partEnds[parts++] = positions;
+    }
+
+    /**
+     * Ends the current part and the current polygon, so the next position starts a new polygon.
+     */
+    public void endPolygon() {
+        endPart();
+        if (parts == polygonStart(polygons)) {
+            return;
+        }
+        if (polygons == polygonEnds.length) {
+            polygonEnds = Arrays.copyOf(polygonEnds, polygons * 2);
+        }
+        polygonEnds[polygons++] = parts;
+    }
+
+    /**
+     * Drops the positions added since the last part ended.
+     */
+    public void discardPart() {
+        positions = partStart(parts);
+    }
+
+    /**
+     * Removes every position, part, and polygon, keeping the arrays for reuse.
+     */
+    public void clear() {
+        positions = 0;
+        parts = 0;
+        polygons = 0;
+    }
+
+    /**
+     * @return the type of geometry.
+     */
+    public Geometry.typeConstant getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of positions, including any in a part not yet ended.
+     */
+    public int getPositionCount() {
+        return positions;
+    }
+
+    /**
+     * @param position the index of the position.
+     * @return the position's longitude.
+     */
+    public double getLongitude(int position) {
+        return coordinates[position * 2];
+    }
+
+    /**
+     * @param position the index of the position.
+     * @return the position's latitude.
+     */
+    public double getLatitude(int position) {
+        return coordinates[position * 2 + 1];
+    }
+
+    /**
+     * @return the number of parts ended so far.
+     */
+    public int getPartCount() {
+        return parts;
+    }
+
+    /**
+     * @param part the index of the part.
+     * @return the index of the part's first position.
+     */
+    public int partStart(int part) {
+        return part == 0 ? 0 : partEnds[part - 1];
+    }
+
+    /**
+     * @param part the index of the part.
+     * @return the index after the part's last position.
+     */
+    public int partEnd(int part) {
+        return partEnds[part];
+    }
+
+    /**
+     * @return the number of polygons ended so far.
+     */
+    public int getPolygonCount() {
+        return polygons;
+    }
+
+    /**
+     * @param polygon the index of the polygon.
+     * @return the index of the polygon's first part.
+     */
+    public int polygonStart(int polygon) {
+        return polygon == 0 ? 0 : polygonEnds[polygon - 1];
+    }
+
+    /**
+     * @param polygon the index of the polygon.
+     * @return the index after the polygon's last part.
+     */
+    public int polygonEnd(int polygon) {
+        return polygonEnds[polygon];
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Converts input on several threads at once. A reader stage groups lines into batches, a pool of workers converts each
+ * batch using a converter of its own, and a sequencer writes the features back out in the same order as the input.
+ * Workers format features as GeoJSON as well as converting them, so the single sequencer thread does not limit
+ * throughput.
+ * The number of batches which can be read ahead of the sequencer is bounded, so a slow output applies back-pressure to
+ * the reader instead of filling memory.
+ */
+public class ParallelConverter {
+    /**
+     * Lines per batch when none is given.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Marks the end of the input for the sequencer.
+     */
+    private static final Future<Batch> END = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    /**
+     * Each worker thread keeps its own converter, as converters hold per line state.
+     */
+    private final ThreadLocal<CoordinateJSONConverter> converters;
+
+    /**
+     * Creates a parallel converter.
+     *
+     * @param converters  creates the converter for each worker thread.
+     * @param workers     the pool which converts batches, for example a ForkJoinPool.
+     * @param batchSize   the number of lines given to a worker at a time.
+     * @param maxInFlight the most batches which can be waiting to be written at once.
+     */
+    public ParallelConverter(Supplier<CoordinateJSONConverter> converters, ExecutorService workers, int batchSize,
+                             int maxInFlight) {
+        if (batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Batch size and batches in flight must be at least 1");
+        }
+        this.converters = ThreadLocal.withInitial(converters);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reads every line from the reader and writes the converted features in input order. Returns once all features
+     * have been written. The writer is not finished, so the caller can still close off the collection.
+     *
+     * @param input where lines are read from.
+     * @param out   where features are written to.
+     * @throws IOException          if reading or writing fails.
+     * @throws InterruptedException if the thread is interrupted while waiting on the pipeline.
+     */
+    public void convert(LineSource input, PointWriter out) throws IOException, InterruptedException {
+        BlockingQueue<Future<Batch>> inFlight = new ArrayBlockingQueue<>(maxInFlight);
+        FutureTask<Void> sequencer = new FutureTask<>(() -> {
+            sequence(inFlight, out);
+            return null;
+        });
+        Thread sequencerThread = new Thread(sequencer, "coordinate-sequencer");
+        sequencerThread.setDaemon(true);
+        sequencerThread.start();
+
+        try {
+            List<String> batch = new ArrayList<>(batchSize);
+            long firstLine = 1;
+            CharSequence line;
+            while ((line = input.readLine()) != null) {
+                // lines may be reused by the source, so each one is copied before it is handed to another thread
+                batch.add(line.toString());
+                if (batch.size() == batchSize) {
+                    List<String> full = batch;
+                    long fullFirstLine = firstLine;
+                    enqueue(inFlight, workers.submit(() -> convertBatch(full, fullFirstLine, out)), sequencer);
+                    batch = new ArrayList<>(batchSize);
+                    firstLine += batchSize;
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<String> last = batch;
+                long lastFirstLine = firstLine;
+                enqueue(inFlight, workers.submit(() -> convertBatch(last, lastFirstLine, out)), sequencer);
+            }
+            enqueue(inFlight, END, sequencer);
+            sequencer.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            sequencer.cancel(true);
+        }
+    }
+
+    /**
+     * Hands a batch to the sequencer, waiting while too many batches are in flight. Gives up if the sequencer has
+     * stopped, so a failed write does not leave the reader blocked forever.
+     */
+    private void enqueue(BlockingQueue<Future<Batch>> inFlight, Future<Batch> batch,
+                         Future<Void> sequencer) throws InterruptedException, ExecutionException {
+        while (!inFlight.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (sequencer.isDone()) {
+                sequencer.get();
+                throw new IllegalStateException("Sequencer stopped before the end of the input");
+            }
+        }
+    }
+
+    /**
+     * Writes batches in the order they were read, waiting on each batch in turn. Output is flushed whenever the next
+     * batch is not ready yet.
+     */
+    private void sequence(BlockingQueue<Future<Batch>> inFlight, PointWriter out)
+            throws IOException, InterruptedException, ExecutionException {
+        while (true) {
+            Future<Batch> next = inFlight.poll();
+            if (next == null) {
+                out.flush();
+                next = inFlight.take();
+            }
+            Batch batch = next.get();
+            if (batch == null) {
+                return;
+            }
+            if (batch.formatted == null) {
+                batch.points.writeTo(out);
+            } else if (!batch.formatted.isEmpty()) {
+                ((GeoJsonStreamWriter) out).writeFormatted(batch.formatted);
+            }
+        }
+    }
+
+    /**
+     * Converts a batch on a worker thread. For GeoJSON output the batch is formatted there too, as one piece of text
+     * with the features already separated by commas, so the sequencer only has to copy text to the output. Other
+     * writers keep state from one point to the next, so they are given the points by the sequencer.
+     * <p>
+     * The converter is told where the batch starts in the input, so lines it can not convert are reported with their
+     * line number in the whole input.
+     */
+    private Batch convertBatch(List<String> lines, long firstLine, PointWriter out) {
+        CoordinateJSONConverter converter = converters.get();
+        converter.setNextLineNumber(firstLine);
+        CoordinateBuffer points = new CoordinateBuffer(lines.size());
+        for (String input : lines) {
+            converter.convert(input, points);
+        }
+        if (out instanceof GeoJsonStreamWriter) {
+            return new Batch(null, ((GeoJsonStreamWriter) out).format(points));
+        }
+        return new Batch(points, null);
+    }
+
+    /**
+     * A converted batch, either as points or as formatted GeoJSON.
+     */
+    private static class Batch {
+        private final CoordinateBuffer points;
+        private final String formatted;
+
+        Batch(CoordinateBuffer points, String formatted) {
+            this.points = points;
+            this.formatted = formatted;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+
+/**
+ * Somewhere converted points are written to, one after another, such as a GeoJSON feature collection or a binary
+ * stream.
+ */
+public interface PointWriter {
+    /**
+     * Writes a point as the next element of the output.
+     *
+     * @param longitude the point's longitude.
+     * @param latitude  the point's latitude.
+     * @param name      the point's name, or null for none.
+     * @throws IOException if the point could not be written.
+     */
+    void writePoint(double longitude, double latitude, String name) throws IOException;
+
+    /**
+     * Writes a point with further properties, such as the other columns of a CSV row, as the next element of the
+     * output. Output which can only hold a name does not support attributes.
+     *
+     * @param longitude  the point's longitude.
+     * @param latitude   the point's latitude.
+     * @param name       the point's name, or null for none.
+     * @param attributes the point's further properties, or null for none.
+     * @throws IOException                   if the point could not be written.
+     * @throws UnsupportedOperationException if there are attributes and the output can not hold them.
+     */
+    default void writePoint(double longitude, double latitude, String name, Attributes attributes)
+            throws IOException {
+        if (attributes != null && attributes.size() > 0) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " can not write attributes");
+        }
+        writePoint(longitude, latitude, name);
+    }
+
+    /**
+     * Writes a geometry of many positions, such as a LineString or Polygon, as the next element of the output. Output
+     * which can only hold points does not support this.
+     *
+     * @param geometry the geometry to write.
+     * @param name     the geometry's name, or null for none.
+     * @throws IOException                   if the geometry could not be written.
+     * @throws UnsupportedOperationException if the output can only hold points.
+     */
+    default void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can only write points");
+    }
+
+    /**
+     * Flushes everything written so far to the underlying output.
+     *
+     * @throws IOException if the output could not be flushed.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Ends the output and flushes it. The underlying output is left open for the caller to close.
+     *
+     * @throws IOException if the end of the output could not be written.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,179 @@
+import java.io.IOException;
+
+/**
+ * Sits in front of a GeoJSON stream writer and projects each point from longitude and latitude into another coordinate
+ * reference system before it is written, naming that system in the collection once it is finished.
+ * <p>
+ * Points are held in primitive arrays and projected a batch at a time by Reprojection, so the arithmetic runs over
+ * whole arrays rather than one point at a time. They are written in the same order they came in, once the batch is
+ * full, when flushed, or before a point with attributes or a geometry, which are projected on their own.
+ * <p>
+ * UTM positions are all projected in the zone and hemisphere of the first point, so the collection has one coordinate
+ * reference system. Earth centred, earth fixed positions have three coordinates, so they can only be points.
+ */
+public class ProjectingPointWriter implements PointWriter {
+    /**
+     * The most points held before they are projected and written.
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    private final GeoJsonStreamWriter out;
+    private final Reprojection.Target target;
+
+    /**
+     * The points waiting to be projected. x and y hold longitudes and latitudes until they are projected in place.
+     */
+    private final double[] x = new double[BATCH_SIZE];
+    private final double[] y = new double[BATCH_SIZE];
+    private final double[] z;
+    private final String[] names = new String[BATCH_SIZE];
+    private int count;
+
+    /**
+     * The UTM zone, or 0 until the first point has chosen it.
+     */
+    private int zone;
+    private boolean south;
+
+    /**
+     * Creates a projecting writer.
+     *
+     * @param out    where the projected points are written to.
+     * @param target the projection to write the points in.
+     */
+    public ProjectingPointWriter(GeoJsonStreamWriter out, Reprojection.Target target) {
+        this.out = out;
+        this.target = target;
+        this.z = target.getDimensions() == 3 ? new double[BATCH_SIZE] : null;
+    }
+
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        if (count == BATCH_SIZE) {
+            writeBatch(null);
+        }
+        add(longitude, latitude, name);
+    }
+
+    /**
+     * Projects the points waiting along with this one and writes them all, giving this one its attributes.
+     */
+    @Override
+    public void writePoint(double longitude, double latitude, String name, Attributes attributes) throws IOException {
+        if (attributes == null || attributes.size() == 0) {
+            writePoint(longitude, latitude, name);
+            return;
+        }
+        if (count == BATCH_SIZE) {
+            writeBatch(null);
+        }
+        add(longitude, latitude, name);
+        writeBatch(attributes);
+    }
+
+    /**
+     * Projects the geometry's positions in place, a batch at a time, and writes it after the points waiting.
+     *
+     * @throws UnsupportedOperationException if the projection has three coordinates, which a geometry can not hold.
+     */
+    @Override
+    public void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        if (z != null) {
+            throw new UnsupportedOperationException("Geometries can not be projected to " + target);
+        }
+        writeBatch(null);
+        int positions = geometry.getPositionCount();
+        for (int from = 0; from < positions; from += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, positions - from);
+            for (int i = 0; i < length; i++) {
+                x[i] = geometry.getLongitude(from + i);
+                y[i] = geometry.getLatitude(from + i);
+            }
+            project(length);
+            for (int i = 0; i < length; i++) {
+                geometry.set(from + i, x[i], y[i]);
+            }
+        }
+        out.writeGeometry(geometry, name);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBatch(null);
+        out.flush();
+    }
+
+    /**
+     * Writes the points waiting, then names the coordinate reference system and closes the collection. With UTM and no
+     * points there is no zone, so no system is named.
+     */
+    @Override
+    public void finish() throws IOException {
+        writeBatch(null);
+        int epsg = getEpsg();
+        if (epsg != 0) {
+            out.setCrs("urn:ogc:def:crs:EPSG::" + epsg);
+        }
+        out.finish();
+    }
+
+    /**
+     * @return the EPSG code of the coordinates written, or 0 for UTM before any point has chosen the zone.
+     */
+    public int getEpsg() {
+        if (target == Reprojection.Target.UTM) {
+            return zone == 0 ? 0 : Reprojection.utmEpsg(zone, south);
+        }
+        return target.getEpsg();
+    }
+
+    private void add(double longitude, double latitude, String name) {
+        x[count] = longitude;
+        y[count] = latitude;
+        names[count] = name;
+        count++;
+    }
+
+    /**
+     * Projects and writes the points waiting, giving the last one the attributes if there are any.
+     */
+    private void writeBatch(Attributes attributes) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        project(count);
+        for (int i = 0; i < count; i++) {
+            Attributes pointAttributes = i == count - 1 ? attributes : null;
+            if (z != null) {
+                out.writePoint(x[i], y[i], z[i], names[i], pointAttributes);
+            } else {
+                out.writePoint(x[i], y[i], names[i], pointAttributes);
+            }
+            names[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Projects the first so many positions of x and y in place.
+     */
+    private void project(int length) {
+        switch (target) {
+            case WEB_MERCATOR:
+                Reprojection.toWebMercator(x, y, length, x, y);
+                break;
+            case UTM:
+                if (zone == 0) {
+                    zone = Reprojection.utmZone(x[0], y[0]);
+                    south = y[0] < 0;
+                }
+                Reprojection.toUtm(x, y, length, zone, south, x, y);
+                break;
+            case ECEF:
+                Reprojection.toEcef(x, y, length, x, y, z);
+                break;
+            default:
+                throw new IllegalStateException("Unknown projection: " + target);
+        }
+    }
+}
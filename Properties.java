@@ -1,10 +1,24 @@
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * The properties object is used as a container for additional information within the GeoJSON format.
  */
+@JsonAdapter(Properties.Adapter.class)
 public class Properties {
 
     private String name;
 
+    private Map<String, Object> attributes;
+
     /**
      * Gets the name of the property. This is typically extra words found in the input which do not correlate to a
      * coordinate.
@@ -22,4 +36,98 @@ public class Properties {
     public void setName(String name) {
         this.name = name;
     }
+
+    /**
+     * Gets any further properties, such as the other columns of a CSV row.
+     * @return the further properties by name, or null if there are none.
+     */
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Sets further properties, which are written after the name as properties of their own.
+     * @param attributes Long, Double, Boolean, or String values by name, or null for none.
+     */
+    public void setAttributes(Map<String, Object> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Writes the name and then each attribute as members of the properties object, so attributes sit alongside the
+     * name rather than in an object of their own, and reads them back the same way. Numbers are read back as the CSV
+     * columns are typed by AttributeDictionary.parse, and an object or array, which is never written, as its JSON text.
+     */
+    static class Adapter extends TypeAdapter<Properties> {
+        @Override
+        public void write(JsonWriter out, Properties properties) throws IOException {
+            if (properties == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (properties.name != null || out.getSerializeNulls()) {
+                out.name("name").value(properties.name);
+            }
+            if (properties.attributes != null) {
+                for (Map.Entry<String, Object> attribute : properties.attributes.entrySet()) {
+                    Object value = attribute.getValue();
+                    out.name(attribute.getKey());
+                    if (value instanceof Number) {
+                        out.value((Number) value);
+                    } else if (value instanceof Boolean) {
+                        out.value((Boolean) value);
+                    } else if (value != null) {
+                        out.value(value.toString());
+                    } else {
+                        out.nullValue();
+                    }
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Properties read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Properties properties = new Properties();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (key.equals("name") && in.peek() == JsonToken.STRING) {
+                    properties.name = in.nextString();
+                    continue;
+                }
+                if (key.equals("name") && in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                if (properties.attributes == null) {
+                    properties.attributes = new LinkedHashMap<>();
+                }
+                properties.attributes.put(key, readValue(in));
+            }
+            in.endObject();
+            return properties;
+        }
+
+        private static Object readValue(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case NUMBER:
+                    return AttributeDictionary.parse(in.nextString());
+                case STRING:
+                    return in.nextString();
+                default:
+                    return JsonParser.parseReader(in).toString();
+            }
+        }
+    }
 }
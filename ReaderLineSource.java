@@ -0,0 +1,33 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads lines from a reader, such as the console.
+ */
+public class ReaderLineSource implements LineSource {
+    private final BufferedReader reader;
+
+    /**
+     * Creates a line source.
+     *
+     * @param reader the reader to read lines from.
+     */
+    public ReaderLineSource(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public CharSequence readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return reader.ready();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the lines which could not be converted and writes them out on a thread of its own, so converting threads
+ * only hand each line over instead of writing to the console themselves.
+ * <p>
+ * Each rejected line can be written to a reject file as a tab separated row of its line number, the reason it was
+ * rejected, and the line exactly as it was read. The line is the last column, so the rows can be cut back down to the
+ * original lines with {@code cut -f3-} and run again once fixed.
+ * <p>
+ * Rejected lines can also be echoed to the console as {@code Unable to process: } followed by the line, as the
+ * converter does on its own. The echo can be limited to the first so many lines, or sampled to every so many lines, so
+ * a dirty feed does not flood the console. Echoed lines are written in batches, but a line is never split across
+ * batches, so other messages on the console are not mixed into the middle of one.
+ * <p>
+ * Lines can be rejected from any number of threads. If rejected lines arrive faster than they can be written, the
+ * rejecting threads wait rather than lines being lost.
+ */
+public class RejectSink implements Closeable {
+    /**
+     * The most rejected lines held before rejecting threads have to wait.
+     */
+    public static final int QUEUE_SIZE = 4096;
+
+    /**
+     * Echoed lines are written to the console once this many characters have built up, or sooner when no more
+     * rejected lines are waiting.
+     */
+    private static final int ECHO_BATCH_SIZE = 8192;
+
+    /**
+     * Marks the end of the rejected lines for the writing thread.
+     */
+    private static final Reject END = new Reject(0, null, null);
+
+    private final BlockingQueue<Reject> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread writer;
+
+    private final Writer file;
+    private final PrintStream echo;
+    private final long echoLimit;
+    private final long echoEvery;
+
+    /**
+     * Only touched by the writing thread until it has stopped.
+     */
+    private long rejected;
+    private long echoed;
+    private final StringBuilder echoBatch = new StringBuilder();
+
+    private volatile IOException failure;
+
+    /**
+     * Creates a reject sink and starts its writing thread.
+     *
+     * @param file      where rejected lines are written as tab separated rows, or null for no reject file. The sink
+     *                  closes it.
+     * @param echo      where rejected lines are echoed to, such as System.err, or null to echo nothing.
+     * @param echoLimit the most lines to echo.
+     * @param echoEvery echo only every so many rejected lines, 1 to echo every one.
+     */
+    public RejectSink(Writer file, PrintStream echo, long echoLimit, long echoEvery) {
+        if (echoLimit < 0 || echoEvery < 1) {
+            throw new IllegalArgumentException("Echo limit must not be negative and the sample must be at least 1");
+        }
+        this.file = file;
+        this.echo = echo;
+        this.echoLimit = echoLimit;
+        this.echoEvery = echoEvery;
+        this.writer = new Thread(this::drain, "reject-sink");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Hands over a line which could not be converted. The line is copied, so the caller can reuse it straight away.
+     *
+     * @param lineNumber the line's number in the input, counting from 1.
+     * @param input      the line as it was read.
+     * @param reason     why the line could not be converted, or null if not known.
+     * @throws IllegalStateException if the reject file could not be written to, or the sink has been closed.
+     */
+    public void reject(long lineNumber, CharSequence input, CoordinateScanner.Failure reason) {
+        Reject reject = new Reject(lineNumber, input.toString(), reason);
+        try {
+            while (!queue.offer(reject, 100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    throw new IllegalStateException("Rejected lines are no longer being written", failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for every rejected line to be written, then closes the reject file. Nothing is written to the echo stream
+     * after this returns.
+     *
+     * @throws IOException if the reject file could not be written to.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writer.isAlive()) {
+                queue.put(END);
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (file != null) {
+                file.close();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of lines rejected, once the sink has been closed.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the number of rejected lines echoed, once the sink has been closed.
+     */
+    public long getEchoed() {
+        return echoed;
+    }
+
+    @Override
+    public String toString() {
+        return "RejectSink{" +
+                "rejected=" + rejected +
+                ", echoed=" + echoed +
+                '}';
+    }
+
+    /**
+     * Writes rejected lines as they arrive, flushing whenever no more are waiting.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                Reject reject = queue.take();
+                while (reject != null) {
+                    if (reject == END) {
+                        flush();
+                        return;
+                    }
+                    write(reject);
+                    reject = queue.poll();
+                }
+                flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Reject reject) throws IOException {
+        rejected++;
+        if (file != null) {
+            file.write(Long.toString(reject.lineNumber));
+            file.write('\t');
+            file.write(reject.reason != null ? reject.reason.name() : "UNKNOWN");
+            file.write('\t');
+            file.write(reject.input);
+            file.write('\n');
+        }
+        if (echo != null && echoed < echoLimit && (rejected - 1) % echoEvery == 0) {
+            echoed++;
+            echoBatch.append("Unable to process: ").append(reject.input).append('\n');
+            if (echoBatch.length() >= ECHO_BATCH_SIZE) {
+                echo.print(echoBatch);
+                echoBatch.setLength(0);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (file != null) {
+            file.flush();
+        }
+        if (echoBatch.length() > 0) {
+            echo.print(echoBatch);
+            echoBatch.setLength(0);
+        }
+        if (echo != null) {
+            echo.flush();
+        }
+    }
+
+    /**
+     * A line which could not be converted.
+     */
+    private static class Reject {
+        private final long lineNumber;
+        private final String input;
+        private final CoordinateScanner.Failure reason;
+
+        Reject(long lineNumber, String input, CoordinateScanner.Failure reason) {
+            this.lineNumber = lineNumber;
+            this.input = input;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * Projects batches of WGS84 longitudes and latitudes, held in primitive arrays, to Web Mercator (EPSG:3857), UTM
+ * (EPSG:326xx and 327xx), or earth centred, earth fixed coordinates (EPSG:4978). Results are in metres, rounded to the
+ * millimetre.
+ * <p>
+ * The projected values can be written over the input arrays, so a batch can be projected in place.
+ * <p>
+ * Each projection runs as a few passes over the whole batch rather than one point at a time. The passes which only
+ * add, multiply, divide, compare, and round have no branches or calls in them, so C2 compiles them to SIMD
+ * instructions. The sines, logarithms, and other functions are intrinsics which C2 calls once per value. Web Mercator
+ * keeps each of them in a pass of its own, and earth centred, earth fixed coordinates keep them to a few passes, so
+ * they do not stop the arithmetic around them from being vectorized. UTM's series needs several of them for each
+ * position, mixed with the arithmetic between them, so its main pass calls them inline and is not vectorized; keeping
+ * them apart would take arrays for every intermediate value. Only the passes before and after it are.
+ * <p>
+ * UTM uses Krüger's series to the third order, which is within a millimetre of the exact projection inside a zone.
+ * Points outside the zone they are projected in, or beyond the 80th parallels where UTM is not meant to be used, are
+ * still projected, but lose accuracy the further out they are.
+ */
+public final class Reprojection {
+    /**
+     * The projections supported, with the EPSG code of each where it does not depend on the points.
+     */
+    public enum Target {
+        WEB_MERCATOR(3857, 2),
+        UTM(0, 2),
+        ECEF(4978, 3);
+
+        private final int epsg;
+        private final int dimensions;
+
+        Target(int epsg, int dimensions) {
+            this.epsg = epsg;
+            this.dimensions = dimensions;
+        }
+
+        /**
+         * @return the EPSG code of the projected coordinates, or 0 for UTM, where it depends on the zone.
+         */
+        public int getEpsg() {
+            return epsg;
+        }
+
+        /**
+         * @return the number of coordinates each projected position has.
+         */
+        public int getDimensions() {
+            return dimensions;
+        }
+    }
+
+    /**
+     * The WGS84 ellipsoid's semi-major axis and flattening.
+     */
+    private static final double A = 6378137.0;
+    private static final double F = 1 / 298.257223563;
+    private static final double E2 = F * (2 - F);
+
+    private static final double RADIANS = Math.PI / 180;
+
+    /**
+     * The latitude at which Web Mercator is cut off, so the map is square.
+     */
+    public static final double MAX_MERCATOR_LATITUDE = 85.05112877980659;
+
+    /**
+     * UTM's scale on the central meridian and offsets.
+     */
+    private static final double K0 = 0.9996;
+    private static final double FALSE_EASTING = 500000;
+    private static final double FALSE_NORTHING_SOUTH = 10000000;
+
+    /**
+     * Krüger's series to the third order in the third flattening.
+     */
+    private static final double N = F / (2 - F);
+    private static final double RECTIFYING_RADIUS = A / (1 + N) * (1 + N * N / 4 + N * N * N * N / 64);
+    private static final double ALPHA_1 = N / 2 - 2 * N * N / 3 + 5 * N * N * N / 16;
+    private static final double ALPHA_2 = 13 * N * N / 48 - 3 * N * N * N / 5;
+    private static final double ALPHA_3 = 61 * N * N * N / 240;
+    private static final double CONFORMAL = 2 * Math.sqrt(N) / (1 + N);
+
+    /**
+     * The inverse series, from the projected position back to the conformal latitude, then to the latitude.
+     */
+    private static final double BETA_1 = N / 2 - 2 * N * N / 3 + 37 * N * N * N / 96;
+    private static final double BETA_2 = N * N / 48 + N * N * N / 15;
+    private static final double BETA_3 = 17 * N * N * N / 480;
+    private static final double DELTA_1 = 2 * N - 2 * N * N / 3 - 2 * N * N * N;
+    private static final double DELTA_2 = 7 * N * N / 3 - 8 * N * N * N / 5;
+    private static final double DELTA_3 = 56 * N * N * N / 15;
+
+    private static final double MILLIMETRES = 1000;
+
+    private Reprojection() {
+    }
+
+    /**
+     * Projects to Web Mercator, cutting latitudes off at MAX_MERCATOR_LATITUDE.
+     *
+     * @param longitudes the longitudes, in degrees.
+     * @param latitudes  the latitudes, in degrees.
+     * @param count      the number of positions to project.
+     * @param x          where the eastings are written. It can be the longitudes array.
+     * @param y          where the northings are written. It can be the latitudes array.
+     */
+    public static void toWebMercator(double[] longitudes, double[] latitudes, int count, double[] x, double[] y) {
+        for (int i = 0; i < count; i++) {
+            double longitude = longitudes[i];
+            double latitude = Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitudes[i]));
+            x[i] = round(longitude * (A * RADIANS));
+            y[i] = latitude * RADIANS;
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = Math.sin(y[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = (1 + y[i]) / (1 - y[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = Math.log(y[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = round(y[i] * (A / 2));
+        }
+    }
+
+    /**
+     * Finds the UTM zone a position falls in, including the wider zones around Norway and Svalbard.
+     *
+     * @param longitude the longitude, in degrees.
+     * @param latitude  the latitude, in degrees.
+     * @return the zone, from 1 to 60.
+     */
+    public static int utmZone(double longitude, double latitude) {
+        if (latitude >= 56 && latitude < 64 && longitude >= 3 && longitude < 12) {
+            return 32;
+        }
+        if (latitude >= 72 && latitude <= 84 && longitude >= 0 && longitude < 42) {
+            if (longitude < 9) {
+                return 31;
+            } else if (longitude < 21) {
+                return 33;
+            } else if (longitude < 33) {
+                return 35;
+            }
+            return 37;
+        }
+        int zone = (int) Math.floor((longitude + 180) / 6) + 1;
+        return Math.max(1, Math.min(60, zone));
+    }
+
+    /**
+     * @param zone  the UTM zone, from 1 to 60.
+     * @param south true for the southern hemisphere's false northing.
+     * @return the EPSG code of the zone.
+     */
+    public static int utmEpsg(int zone, boolean south) {
+        return (south ? 32700 : 32600) + zone;
+    }
+
+    /**
+     * Projects to one UTM zone.
+     *
+     * @param longitudes the longitudes, in degrees.
+     * @param latitudes  the latitudes, in degrees.
+     * @param count      the number of positions to project.
+     * @param zone       the zone to project in, from 1 to 60.
+     * @param south      true to add the southern hemisphere's false northing.
+     * @param x          where the eastings are written. It can be the longitudes array.
+     * @param y          where the northings are written. It can be the latitudes array.
+     */
+    public static void toUtm(double[] longitudes, double[] latitudes, int count, int zone, boolean south,
+                             double[] x, double[] y) {
+        if (zone < 1 || zone > 60) {
+            throw new IllegalArgumentException("UTM zones are numbered from 1 to 60");
+        }
+        double centralMeridian = (zone * 6 - 183) * RADIANS;
+        double falseNorthing = south ? FALSE_NORTHING_SOUTH : 0;
+        // x holds the difference in longitude and y the sine of the latitude until the last pass
+        for (int i = 0; i < count; i++) {
+            double longitude = longitudes[i];
+            double latitude = latitudes[i];
+            x[i] = longitude * RADIANS - centralMeridian;
+            y[i] = latitude * RADIANS;
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = Math.sin(y[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            double sine = y[i];
+            // t = sinh(atanh(sine) - c atanh(c sine)), through the exponential of what sinh is taken of
+            double exponential = Math.exp(0.5 * (Math.log((1 + sine) / (1 - sine))
+                    - CONFORMAL * Math.log((1 + CONFORMAL * sine) / (1 - CONFORMAL * sine))));
+            double t = (exponential - 1 / exponential) / 2;
+            double difference = x[i];
+            double cosine = Math.cos(difference);
+            double u = Math.sin(difference) / Math.sqrt(1 + t * t);
+            // xi' = atan(t / cos), eta' = atanh(u), and the multiple angles of both from their double angle
+            double xi = Math.atan2(t, cosine);
+            double ratio = (1 + u) / (1 - u);
+            double eta = 0.5 * Math.log(ratio);
+
+            double radius = t * t + cosine * cosine;
+            double sin2 = 2 * t * cosine / radius;
+            double cos2 = (cosine * cosine - t * t) / radius;
+            double sin4 = 2 * sin2 * cos2;
+            double cos4 = 2 * cos2 * cos2 - 1;
+            double sin6 = sin4 * cos2 + cos4 * sin2;
+            double cos6 = cos4 * cos2 - sin4 * sin2;
+
+            // e^(2 eta') is the ratio itself, so the hyperbolic multiple angles come from its powers
+            double ratio2 = ratio * ratio;
+            double ratio3 = ratio2 * ratio;
+            double sinh2 = (ratio - 1 / ratio) / 2;
+            double cosh2 = (ratio + 1 / ratio) / 2;
+            double sinh4 = (ratio2 - 1 / ratio2) / 2;
+            double cosh4 = (ratio2 + 1 / ratio2) / 2;
+            double sinh6 = (ratio3 - 1 / ratio3) / 2;
+            double cosh6 = (ratio3 + 1 / ratio3) / 2;
+
+            x[i] = eta + ALPHA_1 * cos2 * sinh2 + ALPHA_2 * cos4 * sinh4 + ALPHA_3 * cos6 * sinh6;
+            y[i] = xi + ALPHA_1 * sin2 * cosh2 + ALPHA_2 * sin4 * cosh4 + ALPHA_3 * sin6 * cosh6;
+        }
+        for (int i = 0; i < count; i++) {
+            x[i] = round(FALSE_EASTING + K0 * RECTIFYING_RADIUS * x[i]);
+            y[i] = round(falseNorthing + K0 * RECTIFYING_RADIUS * y[i]);
+        }
+    }
+
+    /**
+     * Turns positions in one UTM zone back into longitudes and latitudes, the inverse of toUtm. The results are not
+     * rounded.
+     *
+     * @param eastings   the eastings, in metres.
+     * @param northings  the northings, in metres.
+     * @param count      the number of positions to convert.
+     * @param zone       the zone the positions are in, from 1 to 60.
+     * @param south      true if the northings include the southern hemisphere's false northing.
+     * @param longitudes where the longitudes are written, in degrees. It can be the eastings array.
+     * @param latitudes  where the latitudes are written, in degrees. It can be the northings array.
+     */
+    public static void fromUtm(double[] eastings, double[] northings, int count, int zone, boolean south,
+                               double[] longitudes, double[] latitudes) {
+        if (zone < 1 || zone > 60) {
+            throw new IllegalArgumentException("UTM zones are numbered from 1 to 60");
+        }
+        double centralMeridian = zone * 6 - 183;
+        double falseNorthing = south ? FALSE_NORTHING_SOUTH : 0;
+        // longitudes hold eta and latitudes xi, on the rectifying sphere, until the last pass
+        for (int i = 0; i < count; i++) {
+            double easting = eastings[i];
+            double northing = northings[i];
+            longitudes[i] = (easting - FALSE_EASTING) / (K0 * RECTIFYING_RADIUS);
+            latitudes[i] = (northing - falseNorthing) / (K0 * RECTIFYING_RADIUS);
+        }
+        for (int i = 0; i < count; i++) {
+            double eta = longitudes[i];
+            double xi = latitudes[i];
+            double sin2 = Math.sin(2 * xi);
+            double cos2 = Math.cos(2 * xi);
+            double sin4 = 2 * sin2 * cos2;
+            double cos4 = 2 * cos2 * cos2 - 1;
+            double sin6 = sin4 * cos2 + cos4 * sin2;
+            double cos6 = cos4 * cos2 - sin4 * sin2;
+            double exponential = Math.exp(2 * eta);
+            double exponential2 = exponential * exponential;
+            double exponential3 = exponential2 * exponential;
+            double sinh2 = (exponential - 1 / exponential) / 2;
+            double cosh2 = (exponential + 1 / exponential) / 2;
+            double sinh4 = (exponential2 - 1 / exponential2) / 2;
+            double cosh4 = (exponential2 + 1 / exponential2) / 2;
+            double sinh6 = (exponential3 - 1 / exponential3) / 2;
+            double cosh6 = (exponential3 + 1 / exponential3) / 2;
+            double xiPrime = xi - BETA_1 * sin2 * cosh2 - BETA_2 * sin4 * cosh4 - BETA_3 * sin6 * cosh6;
+            double etaPrime = eta - BETA_1 * cos2 * sinh2 - BETA_2 * cos4 * sinh4 - BETA_3 * cos6 * sinh6;
+
+            double sinhEta = Math.sinh(etaPrime);
+            double chi = Math.asin(Math.sin(xiPrime) / Math.cosh(etaPrime));
+            double latitude = chi + DELTA_1 * Math.sin(2 * chi) + DELTA_2 * Math.sin(4 * chi)
+                    + DELTA_3 * Math.sin(6 * chi);
+            longitudes[i] = centralMeridian + Math.atan2(sinhEta, Math.cos(xiPrime)) / RADIANS;
+            latitudes[i] = latitude / RADIANS;
+        }
+    }
+
+    /**
+     * Projects to earth centred, earth fixed coordinates, on the surface of the ellipsoid.
+     *
+     * @param longitudes the longitudes, in degrees.
+     * @param latitudes  the latitudes, in degrees.
+     * @param count      the number of positions to project.
+     * @param x          where the distances towards the prime meridian on the equator are written.
+     * @param y          where the distances towards 90 degrees east on the equator are written.
+     * @param z          where the distances towards the north pole are written. Any of x, y, and z can be one of the
+     *                   input arrays.
+     */
+    public static void toEcef(double[] longitudes, double[] latitudes, int count, double[] x, double[] y,
+                              double[] z) {
+        // z holds the sine of the latitude and y the cosine until the last pass
+        for (int i = 0; i < count; i++) {
+            double longitude = longitudes[i];
+            double latitude = latitudes[i];
+            z[i] = latitude * RADIANS;
+            x[i] = longitude * RADIANS;
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] = Math.cos(z[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            z[i] = Math.sin(z[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            double radius = A / Math.sqrt(1 - E2 * z[i] * z[i]);
+            z[i] = round(radius * (1 - E2) * z[i]);
+            y[i] = radius * y[i];
+        }
+        // the cosine of the latitude times the radius is only needed until the longitude has been applied
+        for (int i = 0; i < count; i++) {
+            double longitude = x[i];
+            double distance = y[i];
+            x[i] = round(distance * Math.cos(longitude));
+            y[i] = round(distance * Math.sin(longitude));
+        }
+    }
+
+    /**
+     * Rounds metres to the nearest millimetre.
+     */
+    private static double round(double metres) {
+        return Math.rint(metres * MILLIMETRES) / MILLIMETRES;
+    }
+}
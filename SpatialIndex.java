@@ -0,0 +1,628 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An in-memory index of points for finding those inside a bounding box, within a distance of a target, or nearest to a
+ * target, without scanning every point.
+ * <p>
+ * Points are held in R-trees packed with the sort-tile-recursive method, stored in flat primitive arrays. The index can
+ * be bulk loaded from a coordinate buffer, and points can be added one at a time while streaming. Added points are
+ * kept in a small buffer which is packed into a tree of its own once full, and trees of similar size are merged, so
+ * there are only ever a logarithmic number of trees to query.
+ * <p>
+ * Each point is known by its id, which is its index in the buffer the index was loaded from, or the value returned
+ * when it was added. Distances are great circle distances in metres on a spherical earth, using the haversine formula.
+ * Queries may run on several threads at once, but not while points are being added.
+ */
+public class SpatialIndex {
+    /**
+     * The mean radius of the earth in metres.
+     */
+    public static final double EARTH_RADIUS = 6_371_008.8;
+
+    /**
+     * The number of children of each node.
+     */
+    private static final int NODE_SIZE = 16;
+
+    /**
+     * The number of added points held before they are packed into a tree.
+     */
+    private static final int PENDING_SIZE = 1024;
+
+    /**
+     * Packed trees, from largest to smallest.
+     */
+    private final List<PackedTree> trees = new ArrayList<>();
+
+    private final double[] pendingLatitudes = new double[PENDING_SIZE];
+    private final double[] pendingLongitudes = new double[PENDING_SIZE];
+    private final int[] pendingIds = new int[PENDING_SIZE];
+    private int pendingSize;
+
+    private int size;
+
+    /**
+     * Creates an empty index.
+     */
+    public SpatialIndex() {
+    }
+
+    /**
+     * Creates an index holding every point in a buffer, packed into a single tree. Each point's id is its index in the
+     * buffer.
+     *
+     * @param points the points to index.
+     */
+    public SpatialIndex(CoordinateBuffer points) {
+        int count = points.size();
+        if (count == 0) {
+            return;
+        }
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = checkLatitude(points.getLatitude(i));
+            longitudes[i] = checkLongitude(points.getLongitude(i));
+            ids[i] = i;
+        }
+        trees.add(new PackedTree(latitudes, longitudes, ids));
+        size = count;
+    }
+
+    /**
+     * Adds a point to the index.
+     *
+     * @param latitude  latitude in decimal degrees.
+     * @param longitude longitude in decimal degrees.
+     * @return the point's id, which is the number of points in the index before it.
+     */
+    public int add(double latitude, double longitude) {
+        pendingLatitudes[pendingSize] = checkLatitude(latitude);
+        pendingLongitudes[pendingSize] = checkLongitude(longitude);
+        pendingIds[pendingSize] = size;
+        pendingSize++;
+        if (pendingSize == PENDING_SIZE) {
+            packPending();
+        }
+        return size++;
+    }
+
+    /**
+     * @return the number of points in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds every point inside a bounding box, edges included. If the minimum longitude is greater than the maximum the
+     * box is taken to cross the antimeridian.
+     *
+     * @param minLatitude  the southern edge.
+     * @param minLongitude the western edge.
+     * @param maxLatitude  the northern edge.
+     * @param maxLongitude the eastern edge.
+     * @param visitor      given the id of each point found, in no particular order.
+     */
+    public void search(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                       IntConsumer visitor) {
+        if (minLongitude > maxLongitude) {
+            search(minLatitude, minLongitude, maxLatitude, 180, visitor);
+            search(minLatitude, -180, maxLatitude, maxLongitude, visitor);
+            return;
+        }
+        for (PackedTree tree : trees) {
+            tree.search(minLatitude, minLongitude, maxLatitude, maxLongitude, visitor);
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            double latitude = pendingLatitudes[i];
+            double longitude = pendingLongitudes[i];
+            if (latitude >= minLatitude && latitude <= maxLatitude
+                    && longitude >= minLongitude && longitude <= maxLongitude) {
+                visitor.accept(pendingIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds every point inside a bounding box, edges included.
+     *
+     * @param minLatitude  the southern edge.
+     * @param minLongitude the western edge.
+     * @param maxLatitude  the northern edge.
+     * @param maxLongitude the eastern edge, which is less than the western edge for a box crossing the antimeridian.
+     * @return the ids of the points found, in no particular order.
+     */
+    public int[] search(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        IdList found = new IdList();
+        search(minLatitude, minLongitude, maxLatitude, maxLongitude, found);
+        return found.toArray();
+    }
+
+    /**
+     * Finds every point within a distance of a target.
+     *
+     * @param latitude  the target's latitude.
+     * @param longitude the target's longitude.
+     * @param radius    the greatest distance in metres.
+     * @param visitor   given the id of each point found, in no particular order.
+     */
+    public void searchRadius(double latitude, double longitude, double radius, IntConsumer visitor) {
+        Target target = new Target(latitude, longitude);
+        double limit = radius >= Math.PI * EARTH_RADIUS ? Double.POSITIVE_INFINITY
+                : haversine(radius / EARTH_RADIUS);
+        // no point further north or south than this can be in range, which is cheaper to check than the distance; it is
+        // widened slightly so rounding can not drop a point exactly on the radius
+        double latitudeRange = Math.toDegrees(radius / EARTH_RADIUS) * (1 + 1e-9);
+        for (PackedTree tree : trees) {
+            tree.searchRadius(target, limit, latitudeRange, visitor);
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            if (Math.abs(pendingLatitudes[i] - latitude) <= latitudeRange
+                    && target.distanceTo(pendingLatitudes[i], pendingLongitudes[i]) <= limit) {
+                visitor.accept(pendingIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds every point within a distance of a target.
+     *
+     * @param latitude  the target's latitude.
+     * @param longitude the target's longitude.
+     * @param radius    the greatest distance in metres.
+     * @return the ids of the points found, in no particular order.
+     */
+    public int[] searchRadius(double latitude, double longitude, double radius) {
+        IdList found = new IdList();
+        searchRadius(latitude, longitude, radius, found);
+        return found.toArray();
+    }
+
+    /**
+     * Finds the points nearest to a target. Trees are searched best first, opening whichever node could hold the
+     * closest point next, so only the nodes near the target are visited.
+     *
+     * @param latitude  the target's latitude.
+     * @param longitude the target's longitude.
+     * @param count     the most points to find.
+     * @return the ids of up to count points, nearest first.
+     */
+    public int[] nearest(double latitude, double longitude, int count) {
+        Target target = new Target(latitude, longitude);
+        NodeQueue queue = new NodeQueue();
+        for (int t = 0; t < trees.size(); t++) {
+            PackedTree tree = trees.get(t);
+            int root = tree.levelCount() - 1;
+            queue.push(tree.boxDistance(target, root, 0), NodeQueue.node(t, root, 0));
+        }
+        int pending = trees.size();
+        for (int i = 0; i < pendingSize; i++) {
+            queue.push(target.distanceTo(pendingLatitudes[i], pendingLongitudes[i]), NodeQueue.node(pending, 0, i));
+        }
+
+        IdList found = new IdList();
+        while (found.size < count && !queue.isEmpty()) {
+            long node = queue.pop();
+            int t = NodeQueue.tree(node);
+            int level = NodeQueue.level(node);
+            int index = NodeQueue.index(node);
+            if (t == pending) {
+                found.accept(pendingIds[index]);
+            } else if (level == 0) {
+                found.accept(trees.get(t).ids[index]);
+            } else {
+                // the queue's lower bound for a point is its exact distance, so points come out in order
+                PackedTree tree = trees.get(t);
+                int end = tree.childEnd(level, index);
+                for (int child = index * NODE_SIZE; child < end; child++) {
+                    double distance = level == 1
+                            ? target.distanceTo(tree.latitudes[child], tree.longitudes[child])
+                            : tree.boxDistance(target, level - 1, child);
+                    queue.push(distance, NodeQueue.node(t, level - 1, child));
+                }
+            }
+        }
+        return found.toArray();
+    }
+
+    /**
+     * Calculates the great circle distance between two points.
+     *
+     * @param latitude1  the first point's latitude.
+     * @param longitude1 the first point's longitude.
+     * @param latitude2  the second point's latitude.
+     * @param longitude2 the second point's longitude.
+     * @return the distance in metres.
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        return toMetres(new Target(latitude1, longitude1).distanceTo(latitude2, longitude2));
+    }
+
+    /**
+     * Turns the haversine of a central angle, which is what the index compares, into metres.
+     */
+    private static double toMetres(double haversine) {
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, haversine)));
+    }
+
+    private static double haversine(double radians) {
+        double sine = Math.sin(radians / 2);
+        return sine * sine;
+    }
+
+    /**
+     * Packs the added points into a tree, merging it with any trees no larger than itself.
+     */
+    private void packPending() {
+        PackedTree tree = new PackedTree(Arrays.copyOf(pendingLatitudes, pendingSize),
+                Arrays.copyOf(pendingLongitudes, pendingSize), Arrays.copyOf(pendingIds, pendingSize));
+        pendingSize = 0;
+        while (!trees.isEmpty() && trees.get(trees.size() - 1).size <= tree.size) {
+            tree = PackedTree.merge(trees.remove(trees.size() - 1), tree);
+        }
+        trees.add(tree);
+    }
+
+    private static double checkLatitude(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Latitude out of range: " + latitude);
+        }
+        return latitude;
+    }
+
+    private static double checkLongitude(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Longitude out of range: " + longitude);
+        }
+        return longitude;
+    }
+
+    /**
+     * A query point, with what is needed to measure distances from it. Distances are left as the haversine of the
+     * central angle, which orders the same as the distance itself.
+     */
+    private static class Target {
+        private final double latitude;
+        private final double longitude;
+        private final double cosLatitude;
+
+        Target(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cosLatitude = Math.cos(Math.toRadians(latitude));
+        }
+
+        double distanceTo(double latitude, double longitude) {
+            return haversine(Math.toRadians(this.latitude - latitude))
+                    + cosLatitude * Math.cos(Math.toRadians(latitude))
+                    * haversine(Math.toRadians(this.longitude - longitude));
+        }
+
+        /**
+         * The distance to the closest place in a box, which is never more than the distance to any point inside it.
+         * West or east of the box, the closest place on its nearer meridian edge is where the great circle to that
+         * meridian meets it at a right angle, unless that lies beyond the box's corners.
+         */
+        double distanceTo(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            if (longitude >= minLongitude && longitude <= maxLongitude) {
+                if (latitude < minLatitude) {
+                    return haversine(Math.toRadians(minLatitude - latitude));
+                }
+                if (latitude > maxLatitude) {
+                    return haversine(Math.toRadians(latitude - maxLatitude));
+                }
+                return 0;
+            }
+            double haversineLongitude = Math.min(haversine(Math.toRadians(longitude - minLongitude)),
+                    haversine(Math.toRadians(longitude - maxLongitude)));
+            double cosLongitude = 1 - 2 * haversineLongitude;
+            double closestLatitude = cosLongitude <= 0 ? (latitude > 0 ? 90 : -90)
+                    : Math.toDegrees(Math.atan(Math.tan(Math.toRadians(latitude)) / cosLongitude));
+            if (closestLatitude > minLatitude && closestLatitude < maxLatitude) {
+                return distanceAcross(haversineLongitude, closestLatitude);
+            }
+            return Math.min(distanceAcross(haversineLongitude, minLatitude),
+                    distanceAcross(haversineLongitude, maxLatitude));
+        }
+
+        private double distanceAcross(double haversineLongitude, double latitude) {
+            return haversine(Math.toRadians(this.latitude - latitude))
+                    + cosLatitude * Math.cos(Math.toRadians(latitude)) * haversineLongitude;
+        }
+    }
+
+    /**
+     * An R-tree packed with the sort-tile-recursive method. Points are sorted into vertical slices by longitude, each
+     * slice is sorted by latitude, and consecutive runs of points then nodes are grouped under a parent, level by level.
+     * The tree is never changed once built, so nodes need no pointers: the children of node i are nodes i * NODE_SIZE
+     * onwards of the level below.
+     */
+    private static class PackedTree {
+        private final int size;
+
+        /**
+         * The points in packed order.
+         */
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[] ids;
+
+        /**
+         * The bounding boxes of the nodes above the points, as minimum latitude, minimum longitude, maximum latitude,
+         * and maximum longitude. Level 1, the parents of the points, comes first and the root is last.
+         */
+        private final double[] boxes;
+
+        /**
+         * The number of nodes at each level, with level 0 being the points, and where each level starts in boxes.
+         */
+        private final int[] levelSizes;
+        private final int[] levelStarts;
+
+        PackedTree(double[] latitudes, double[] longitudes, int[] ids) {
+            size = ids.length;
+            int[] order = packedOrder(latitudes, longitudes);
+            this.latitudes = new double[size];
+            this.longitudes = new double[size];
+            this.ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                this.latitudes[i] = latitudes[order[i]];
+                this.longitudes[i] = longitudes[order[i]];
+                this.ids[i] = ids[order[i]];
+            }
+
+            int levels = 1;
+            for (int count = size; count > 1 || levels == 1; count = (count + NODE_SIZE - 1) / NODE_SIZE) {
+                levels++;
+            }
+            levelSizes = new int[levels];
+            levelStarts = new int[levels];
+            levelSizes[0] = size;
+            int nodes = 0;
+            for (int level = 1; level < levels; level++) {
+                levelSizes[level] = (levelSizes[level - 1] + NODE_SIZE - 1) / NODE_SIZE;
+                levelStarts[level] = nodes;
+                nodes += levelSizes[level];
+            }
+
+            boxes = new double[nodes * 4];
+            for (int level = 1; level < levels; level++) {
+                for (int node = 0; node < levelSizes[level]; node++) {
+                    double minLatitude = Double.POSITIVE_INFINITY;
+                    double minLongitude = Double.POSITIVE_INFINITY;
+                    double maxLatitude = Double.NEGATIVE_INFINITY;
+                    double maxLongitude = Double.NEGATIVE_INFINITY;
+                    int end = childEnd(level, node);
+                    for (int child = node * NODE_SIZE; child < end; child++) {
+                        if (level == 1) {
+                            minLatitude = Math.min(minLatitude, this.latitudes[child]);
+                            minLongitude = Math.min(minLongitude, this.longitudes[child]);
+                            maxLatitude = Math.max(maxLatitude, this.latitudes[child]);
+                            maxLongitude = Math.max(maxLongitude, this.longitudes[child]);
+                        } else {
+                            int box = (levelStarts[level - 1] + child) * 4;
+                            minLatitude = Math.min(minLatitude, boxes[box]);
+                            minLongitude = Math.min(minLongitude, boxes[box + 1]);
+                            maxLatitude = Math.max(maxLatitude, boxes[box + 2]);
+                            maxLongitude = Math.max(maxLongitude, boxes[box + 3]);
+                        }
+                    }
+                    int box = (levelStarts[level] + node) * 4;
+                    boxes[box] = minLatitude;
+                    boxes[box + 1] = minLongitude;
+                    boxes[box + 2] = maxLatitude;
+                    boxes[box + 3] = maxLongitude;
+                }
+            }
+        }
+
+        /**
+         * Builds one tree holding the points of two others.
+         */
+        static PackedTree merge(PackedTree first, PackedTree second) {
+            double[] latitudes = Arrays.copyOf(first.latitudes, first.size + second.size);
+            double[] longitudes = Arrays.copyOf(first.longitudes, latitudes.length);
+            int[] ids = Arrays.copyOf(first.ids, latitudes.length);
+            System.arraycopy(second.latitudes, 0, latitudes, first.size, second.size);
+            System.arraycopy(second.longitudes, 0, longitudes, first.size, second.size);
+            System.arraycopy(second.ids, 0, ids, first.size, second.size);
+            return new PackedTree(latitudes, longitudes, ids);
+        }
+
+        /**
+         * Works out the sort-tile-recursive order of the points. Each sort key holds a coordinate scaled to 31 bits
+         * above the point's position, so a plain sort of longs does the work. The scaled coordinate is only used to
+         * order points, and the boxes are built from the exact values.
+         */
+        private static int[] packedOrder(double[] latitudes, double[] longitudes) {
+            int size = latitudes.length;
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = sortKey(longitudes[i], 180) << 32 | i;
+            }
+            Arrays.sort(keys);
+
+            int leaves = (size + NODE_SIZE - 1) / NODE_SIZE;
+            int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_SIZE;
+            for (int start = 0; start < size; start += sliceSize) {
+                int end = Math.min(start + sliceSize, size);
+                for (int i = start; i < end; i++) {
+                    int point = (int) keys[i];
+                    keys[i] = sortKey(latitudes[point], 90) << 32 | point;
+                }
+                Arrays.sort(keys, start, end);
+            }
+
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) keys[i];
+            }
+            return order;
+        }
+
+        private static long sortKey(double value, double range) {
+            return (long) ((value + range) / (2 * range) * Integer.MAX_VALUE);
+        }
+
+        int levelCount() {
+            return levelSizes.length;
+        }
+
+        /**
+         * The index just past the last child of a node, in the level below it.
+         */
+        int childEnd(int level, int node) {
+            return Math.min((node + 1) * NODE_SIZE, levelSizes[level - 1]);
+        }
+
+        double boxDistance(Target target, int level, int node) {
+            int box = (levelStarts[level] + node) * 4;
+            return target.distanceTo(boxes[box], boxes[box + 1], boxes[box + 2], boxes[box + 3]);
+        }
+
+        void search(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                    IntConsumer visitor) {
+            search(levelCount() - 1, 0, minLatitude, minLongitude, maxLatitude, maxLongitude, visitor);
+        }
+
+        private void search(int level, int node, double minLatitude, double minLongitude, double maxLatitude,
+                            double maxLongitude, IntConsumer visitor) {
+            int box = (levelStarts[level] + node) * 4;
+            if (boxes[box] > maxLatitude || boxes[box + 1] > maxLongitude
+                    || boxes[box + 2] < minLatitude || boxes[box + 3] < minLongitude) {
+                return;
+            }
+            int end = childEnd(level, node);
+            for (int child = node * NODE_SIZE; child < end; child++) {
+                if (level > 1) {
+                    search(level - 1, child, minLatitude, minLongitude, maxLatitude, maxLongitude, visitor);
+                } else if (latitudes[child] >= minLatitude && latitudes[child] <= maxLatitude
+                        && longitudes[child] >= minLongitude && longitudes[child] <= maxLongitude) {
+                    visitor.accept(ids[child]);
+                }
+            }
+        }
+
+        void searchRadius(Target target, double limit, double latitudeRange, IntConsumer visitor) {
+            searchRadius(levelCount() - 1, 0, target, limit, latitudeRange, visitor);
+        }
+
+        private void searchRadius(int level, int node, Target target, double limit, double latitudeRange,
+                                  IntConsumer visitor) {
+            int box = (levelStarts[level] + node) * 4;
+            if (boxes[box] > target.latitude + latitudeRange || boxes[box + 2] < target.latitude - latitudeRange
+                    || boxDistance(target, level, node) > limit) {
+                return;
+            }
+            int end = childEnd(level, node);
+            for (int child = node * NODE_SIZE; child < end; child++) {
+                if (level > 1) {
+                    searchRadius(level - 1, child, target, limit, latitudeRange, visitor);
+                } else if (Math.abs(latitudes[child] - target.latitude) <= latitudeRange
+                        && target.distanceTo(latitudes[child], longitudes[child]) <= limit) {
+                    visitor.accept(ids[child]);
+                }
+            }
+        }
+    }
+
+    /**
+     * A binary min-heap of nodes keyed on their distance from the target, kept in primitive arrays. A node is packed
+     * into a long as its tree, its level, and its index within the level.
+     */
+    private static class NodeQueue {
+        private double[] distances = new double[64];
+        private long[] nodes = new long[64];
+        private int size;
+
+        static long node(int tree, int level, int index) {
+            return (long) tree << 40 | (long) level << 32 | index;
+        }
+
+        static int tree(long node) {
+            return (int) (node >>> 40);
+        }
+
+        static int level(long node) {
+            return (int) (node >>> 32) & 0xff;
+        }
+
+        static int index(long node) {
+            return (int) node;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(double distance, long node) {
+            if (size == distances.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] <= distance) {
+                    break;
+                }
+                distances[i] = distances[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            nodes[i] = node;
+        }
+
+        long pop() {
+            long top = nodes[0];
+            size--;
+            double distance = distances[size];
+            long node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] < distances[child]) {
+                    child++;
+                }
+                if (distances[child] >= distance) {
+                    break;
+                }
+                distances[i] = distances[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            distances[i] = distance;
+            nodes[i] = node;
+            return top;
+        }
+    }
+
+    /**
+     * A growable list of ids.
+     */
+    private static class IdList implements IntConsumer {
+        private int[] ids = new int[16];
+        private int size;
+
+        @Override
+        public void accept(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer which copies everything written to it to two other writers, so output can be formatted once and sent to
+ * both a file and the console.
+ */
+public class TeeWriter extends Writer {
+    private final Writer first;
+    private final Writer second;
+
+    /**
+     * Creates a writer which writes to both of the given writers.
+     *
+     * @param first  the first writer.
+     * @param second the second writer.
+     */
+    public TeeWriter(Writer first, Writer second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        first.write(c);
+        second.write(c);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        first.write(buffer, offset, length);
+        second.write(buffer, offset, length);
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+        first.write(str, offset, length);
+        second.write(str, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        first.flush();
+        second.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            first.close();
+        } finally {
+            second.close();
+        }
+    }
+}
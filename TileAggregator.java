@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Sits in front of another point writer and, as each point passes through to it, counts the points falling in each
+ * Web Mercator tile at a chosen set of zoom levels and keeps the bounding box of every position, so both are known
+ * once the input ends without reading the output again.
+ * <p>
+ * Each zoom level's counts are kept in a primitive long keyed map whose key is the tile's quadkey, the bits of its x
+ * and y interleaved, so memory grows with the number of tiles holding points rather than the number of points. The
+ * quadkey at a lower zoom is the one at the highest zoom with its last digits dropped, so a position's tile is only
+ * worked out once. Positions are held in primitive arrays and projected by Reprojection a batch at a time. Each
+ * position of a geometry is counted as a point of its own.
+ * <p>
+ * Latitudes beyond MAX_MERCATOR_LATITUDE are counted in the top or bottom row of tiles. Counts stop at
+ * Integer.MAX_VALUE rather than wrapping around.
+ */
+public class TileAggregator implements PointWriter {
+    /**
+     * The most positions held before their tiles are counted.
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    /**
+     * The highest zoom level counts can be kept for.
+     */
+    public static final int MAX_ZOOM = 24;
+
+    /**
+     * Half the width of the Web Mercator plane, in metres.
+     */
+    private static final double HALF_WIDTH = 20037508.342789244;
+
+    private final PointWriter out;
+    private final GeoJsonStreamWriter bboxOut;
+    private final int[] zooms;
+    private final int maxZoom;
+    private final LongIntMap[] counts;
+
+    /**
+     * The positions waiting to be counted, as longitudes and latitudes until they are projected in place.
+     */
+    private final double[] x = new double[BATCH_SIZE];
+    private final double[] y = new double[BATCH_SIZE];
+    private int waiting;
+
+    private long positions;
+    private double west = Double.POSITIVE_INFINITY;
+    private double south = Double.POSITIVE_INFINITY;
+    private double east = Double.NEGATIVE_INFINITY;
+    private double north = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param out     where points are written to.
+     * @param zooms   the zoom levels to count tiles at, from 0 to MAX_ZOOM, which may be empty to only keep the
+     *                bounding box.
+     * @param bboxOut the collection to write the bounding box into once finished, or null to not write it.
+     * @throws IllegalArgumentException if a zoom level is out of range.
+     */
+    public TileAggregator(PointWriter out, int[] zooms, GeoJsonStreamWriter bboxOut) {
+        this.out = out;
+        this.bboxOut = bboxOut;
+        this.zooms = zooms.clone();
+        Arrays.sort(this.zooms);
+        int max = 0;
+        for (int zoom : this.zooms) {
+            if (zoom < 0 || zoom > MAX_ZOOM) {
+                throw new IllegalArgumentException("Zoom levels must be from 0 to " + MAX_ZOOM + ": " + zoom);
+            }
+            max = Math.max(max, zoom);
+        }
+        this.maxZoom = max;
+        this.counts = new LongIntMap[this.zooms.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongIntMap();
+        }
+    }
+
+    @Override
+    public void writePoint(double longitude, double latitude, String name) throws IOException {
+        add(longitude, latitude);
+        out.writePoint(longitude, latitude, name);
+    }
+
+    @Override
+    public void writePoint(double longitude, double latitude, String name, Attributes attributes) throws IOException {
+        add(longitude, latitude);
+        out.writePoint(longitude, latitude, name, attributes);
+    }
+
+    @Override
+    public void writeGeometry(PackedGeometry geometry, String name) throws IOException {
+        // counted before it is written, as a projecting writer moves the positions in place
+        int count = geometry.getPositionCount();
+        for (int i = 0; i < count; i++) {
+            add(geometry.getLongitude(i), geometry.getLatitude(i));
+        }
+        out.writeGeometry(geometry, name);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        countWaiting();
+        out.flush();
+    }
+
+    /**
+     * Counts the positions waiting, then writes the bounding box into the collection if there is one and any position
+     * was seen, and finishes the output.
+     */
+    @Override
+    public void finish() throws IOException {
+        countWaiting();
+        if (bboxOut != null && positions > 0) {
+            bboxOut.setBbox(west, south, east, north);
+        }
+        out.finish();
+    }
+
+    /**
+     * Writes the tile counts as tab separated rows of zoom, x, y, and count under a header row, a zoom level at a time
+     * from the lowest, with each level's tiles in quadkey order. Only tiles holding points are written.
+     *
+     * @param writer where the rows are written to.
+     * @throws IOException if the rows could not be written.
+     */
+    public void writeTiles(Writer writer) throws IOException {
+        countWaiting();
+        writer.write("zoom\tx\ty\tcount\n");
+        for (int i = 0; i < zooms.length; i++) {
+            LongIntMap tiles = counts[i];
+            long[] keys = new long[tiles.size()];
+            int[] next = new int[1];
+            tiles.forEach((key, value) -> keys[next[0]++] = key);
+            Arrays.sort(keys);
+            for (long key : keys) {
+                writer.write(Integer.toString(zooms[i]));
+                writer.write('\t');
+                writer.write(Integer.toString(compact(key)));
+                writer.write('\t');
+                writer.write(Integer.toString(compact(key >>> 1)));
+                writer.write('\t');
+                writer.write(Integer.toString(tiles.get(key, 0)));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * @return the number of positions counted.
+     */
+    public long getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the west, south, east, and north edges of every position counted, or null if there were none.
+     */
+    public double[] getBbox() {
+        return positions == 0 ? null : new double[]{west, south, east, north};
+    }
+
+    /**
+     * @param zoom one of the zoom levels counted.
+     * @return the number of tiles holding points at that zoom level.
+     * @throws IllegalArgumentException if tiles are not counted at that zoom level.
+     */
+    public int getTileCount(int zoom) {
+        int i = Arrays.binarySearch(zooms, zoom);
+        if (i < 0) {
+            throw new IllegalArgumentException("Tiles are not counted at zoom " + zoom);
+        }
+        return counts[i].size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder tiles = new StringBuilder();
+        for (int i = 0; i < zooms.length; i++) {
+            tiles.append(i == 0 ? "" : ", ").append(zooms[i]).append('=').append(counts[i].size());
+        }
+        return "TileAggregator{" +
+                "positions=" + positions +
+                ", bbox=" + Arrays.toString(getBbox()) +
+                ", tiles={" + tiles +
+                "}}";
+    }
+
+    private void add(double longitude, double latitude) {
+        if (waiting == BATCH_SIZE) {
+            countWaiting();
+        }
+        x[waiting] = longitude;
+        y[waiting] = latitude;
+        waiting++;
+    }
+
+    /**
+     * Widens the bounding box over the positions waiting, then projects them and counts each in its tile at every
+     * zoom level.
+     */
+    private void countWaiting() {
+        if (waiting == 0) {
+            return;
+        }
+        for (int i = 0; i < waiting; i++) {
+            west = Math.min(west, x[i]);
+            east = Math.max(east, x[i]);
+            south = Math.min(south, y[i]);
+            north = Math.max(north, y[i]);
+        }
+        positions += waiting;
+        if (zooms.length > 0) {
+            Reprojection.toWebMercator(x, y, waiting, x, y);
+            int last = (1 << maxZoom) - 1;
+            double scale = (1 << maxZoom) / (2 * HALF_WIDTH);
+            for (int i = 0; i < waiting; i++) {
+                int column = Math.max(0, Math.min(last, (int) Math.floor((x[i] + HALF_WIDTH) * scale)));
+                int row = Math.max(0, Math.min(last, (int) Math.floor((HALF_WIDTH - y[i]) * scale)));
+                long quadkey = spread(column) | spread(row) << 1;
+                for (int z = 0; z < zooms.length; z++) {
+                    counts[z].increment(quadkey >>> 2 * (maxZoom - zooms[z]));
+                }
+            }
+        }
+        waiting = 0;
+    }
+
+    /**
+     * Spreads the bits of a tile's x or y out to every other bit, ready to be interleaved into a quadkey.
+     */
+    private static long spread(int value) {
+        long bits = value & 0xFFFFFFFFL;
+        bits = (bits | bits << 16) & 0x0000FFFF0000FFFFL;
+        bits = (bits | bits << 8) & 0x00FF00FF00FF00FFL;
+        bits = (bits | bits << 4) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | bits << 2) & 0x3333333333333333L;
+        bits = (bits | bits << 1) & 0x5555555555555555L;
+        return bits;
+    }
+
+    /**
+     * Gathers every other bit of a quadkey, starting from the lowest, back into a tile's x or y.
+     */
+    private static int compact(long quadkey) {
+        long bits = quadkey & 0x5555555555555555L;
+        bits = (bits | bits >>> 1) & 0x3333333333333333L;
+        bits = (bits | bits >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | bits >>> 4) & 0x00FF00FF00FF00FFL;
+        bits = (bits | bits >>> 8) & 0x0000FFFF0000FFFFL;
+        bits = (bits | bits >>> 16) & 0x00000000FFFFFFFFL;
+        return (int) bits;
+    }
+}
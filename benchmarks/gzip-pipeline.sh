@@ -0,0 +1,50 @@
+#!/bin/sh
+# Compares converting a gzip file with the built in gzip support against piping it through zcat and gzip.
+#
+# Usage, from the project directory after mvn package:
+#   benchmarks/gzip-pipeline.sh [input.gz] [runs]
+#
+# Without an input, one million lines are made by repeating test_cases.txt. Both ways write one gzip file and send the
+# plain text the console gets to /dev/null, and each is run the given number of times, 5 by default. The wall clock
+# time of each run is printed in milliseconds, then the fastest of each.
+set -e
+
+project=$(cd "$(dirname "$0")/.." && pwd)
+classpath="$project/target/classes:$project/gson-2.9.0.jar"
+runs=${2:-5}
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+if [ -n "$1" ]; then
+    input=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+else
+    input="$work/input.txt.gz"
+    awk 'NR == FNR { lines[n++] = $0; next } END { for (i = 0; i < 1000000; i++) print lines[i % n] }' \
+        "$project/test_cases.txt" /dev/null | gzip > "$input"
+fi
+cd "$work"
+
+millis() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+baseline=
+pipelined=
+i=0
+while [ "$i" -lt "$runs" ]; do
+    start=$(millis)
+    zcat "$input" | java -cp "$classpath" CoordinateJSONConverter --stream 2>/dev/null | gzip > baseline.GeoJson.gz
+    took=$(($(millis) - start))
+    echo "zcat | java | gzip: $took ms"
+    [ -z "$baseline" ] || [ "$took" -lt "$baseline" ] && baseline=$took
+
+    start=$(millis)
+    java -cp "$classpath" CoordinateJSONConverter --stream --input "$input" --gzip > /dev/null 2>&1
+    took=$(($(millis) - start))
+    echo "--input .gz --gzip: $took ms"
+    [ -z "$pipelined" ] || [ "$took" -lt "$pipelined" ] && pipelined=$took
+    i=$((i + 1))
+done
+
+echo "fastest zcat | java | gzip: $baseline ms"
+echo "fastest --input .gz --gzip: $pipelined ms"
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading the binary output format for a large synthetic input. The sizes of the binary and
+ * GeoJSON forms are printed during setup, so decode speed in MB/s is the binary size divided by the time for decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BinaryBenchmark {
+    @Param("1000000")
+    public int lineCount;
+
+    private Object points;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Object converter = Bridge.NEW_CONVERTER.invoke();
+        points = (Object) Bridge.NEW_BUFFER.invokeExact();
+        int converted = 0;
+        for (String line : Samples.synthetic(lineCount, 42)) {
+            if ((boolean) Bridge.CONVERT_INTO.invokeExact(converter, (CharSequence) line, points)) {
+                converted++;
+            }
+        }
+        encoded = encode().toByteArray();
+
+        StringWriter json = new StringWriter();
+        Object out = (Object) Bridge.NEW_STREAM_WRITER.invokeExact(new GsonBuilder().setPrettyPrinting().create(),
+                (Writer) json);
+        Bridge.WRITE_TO.invokeExact(points, out);
+        Bridge.FINISH.invokeExact(out);
+        System.out.printf("%n%d points, binary: %d bytes, GeoJSON: %d bytes (%.1f%%)%n", converted, encoded.length,
+                json.getBuffer().length(), 100.0 * encoded.length / json.getBuffer().length());
+    }
+
+    /**
+     * Writing converted points in the binary form.
+     */
+    @Benchmark
+    public ByteArrayOutputStream encode() throws Throwable {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded == null ? 1 << 20 : encoded.length);
+        Object out = (Object) Bridge.NEW_BINARY_WRITER.invokeExact((OutputStream) bytes, 6);
+        Bridge.WRITE_TO.invokeExact(points, out);
+        Bridge.FINISH_POINTS.invokeExact(out);
+        return bytes;
+    }
+
+    /**
+     * Reading every point back from the binary form.
+     */
+    @Benchmark
+    public void decode(Blackhole blackhole) throws Throwable {
+        InputStream in = new ByteArrayInputStream(encoded);
+        Object reader = (Object) Bridge.NEW_BINARY_READER.invokeExact(in);
+        while ((boolean) Bridge.NEXT.invokeExact(reader)) {
+            blackhole.consume((double) Bridge.GET_LONGITUDE.invokeExact(reader));
+            blackhole.consume((double) Bridge.GET_LATITUDE.invokeExact(reader));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The converter lives in the default package, which can not be referenced from a named package, and JMH will not run
+ * benchmarks from the default package. The benchmarks reach the converter through these method handles instead. They
+ * are constants, so the JIT inlines through them and they add nothing measurable to the benchmarks.
+ */
+final class Bridge {
+    /** () -> CoordinateJSONConverter */
+    static final MethodHandle NEW_CONVERTER;
+    /** (CoordinateJSONConverter, CharSequence) -> double[] */
+    static final MethodHandle FACTORY;
+    /** (CoordinateJSONConverter, CharSequence) -> Feature */
+    static final MethodHandle CONVERT;
+    /** () -> FeatureCollection */
+    static final MethodHandle NEW_COLLECTION;
+    /** (FeatureCollection, Feature) -> void */
+    static final MethodHandle ADD_FEATURE;
+    /** (Gson, Writer) -> GeoJsonStreamWriter */
+    static final MethodHandle NEW_STREAM_WRITER;
+    /** GeoJsonSerializer.PRETTY */
+    static final Object PRETTY_SERIALIZER;
+    /** (GeoJsonSerializer, FeatureCollection) -> String */
+    static final MethodHandle TO_JSON;
+    /** (GeoJsonStreamWriter, Feature) -> void */
+    static final MethodHandle WRITE;
+    /** (GeoJsonStreamWriter) -> void */
+    static final MethodHandle FINISH;
+    /** () -> CoordinateBuffer */
+    static final MethodHandle NEW_BUFFER;
+    /** (CoordinateJSONConverter, CharSequence, CoordinateBuffer) -> boolean */
+    static final MethodHandle CONVERT_INTO;
+    /** (CoordinateBuffer, PointWriter) -> void */
+    static final MethodHandle WRITE_TO;
+    /** (PointWriter) -> void */
+    static final MethodHandle FINISH_POINTS;
+    /** (OutputStream, int) -> BinaryFeatureWriter */
+    static final MethodHandle NEW_BINARY_WRITER;
+    /** (InputStream) -> BinaryFeatureReader */
+    static final MethodHandle NEW_BINARY_READER;
+    /** (BinaryFeatureReader) -> boolean */
+    static final MethodHandle NEXT;
+    /** (BinaryFeatureReader) -> double */
+    static final MethodHandle GET_LONGITUDE;
+    /** (BinaryFeatureReader) -> double */
+    static final MethodHandle GET_LATITUDE;
+    /** (CoordinateBuffer, double, double, String) -> void */
+    static final MethodHandle ADD_POINT;
+    /** (CoordinateBuffer) -> SpatialIndex */
+    static final MethodHandle NEW_INDEX;
+    /** (SpatialIndex, double, double, double, double) -> int[] */
+    static final MethodHandle SEARCH;
+    /** (SpatialIndex, double, double, double) -> int[] */
+    static final MethodHandle SEARCH_RADIUS;
+    /** (SpatialIndex, double, double, int) -> int[] */
+    static final MethodHandle NEAREST;
+    /** () -> CoordinateParser */
+    static final MethodHandle NEW_PARSER;
+    /** (CoordinateParser, CharSequence, double[], int, int[], int) -> int */
+    static final MethodHandle PARSE;
+    /** (double[], double[], int, double[], double[]) -> void */
+    static final MethodHandle TO_WEB_MERCATOR;
+    /** (double[], double[], int, int, boolean, double[], double[]) -> void */
+    static final MethodHandle TO_UTM;
+    /** (double[], double[], int, double[], double[], double[]) -> void */
+    static final MethodHandle TO_ECEF;
+
+    static {
+        try {
+            Class<?> converter = Class.forName("CoordinateJSONConverter");
+            Class<?> feature = Class.forName("Feature");
+            Class<?> collection = Class.forName("FeatureCollection");
+            Class<?> streamWriter = Class.forName("GeoJsonStreamWriter");
+            Class<?> serializer = Class.forName("GeoJsonSerializer");
+            Class<?> buffer = Class.forName("CoordinateBuffer");
+            Class<?> pointWriter = Class.forName("PointWriter");
+            Class<?> binaryWriter = Class.forName("BinaryFeatureWriter");
+            Class<?> binaryReader = Class.forName("BinaryFeatureReader");
+            Class<?> index = Class.forName("SpatialIndex");
+            Class<?> reprojection = Class.forName("Reprojection");
+            Class<?> parser = Class.forName("CoordinateParser");
+            // the unnamed module is open to everything, so package-private and private members can be looked up
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(converter, MethodHandles.lookup());
+
+            NEW_CONVERTER = erase(lookup.findConstructor(converter, MethodType.methodType(void.class)));
+            FACTORY = erase(lookup.findVirtual(converter, "factory",
+                    MethodType.methodType(double[].class, CharSequence.class)));
+            CONVERT = erase(lookup.findVirtual(converter, "convert",
+                    MethodType.methodType(feature, CharSequence.class)));
+            NEW_COLLECTION = erase(lookup.findConstructor(collection, MethodType.methodType(void.class)));
+            ADD_FEATURE = erase(lookup.findVirtual(collection, "addFeature",
+                    MethodType.methodType(void.class, feature)));
+            NEW_STREAM_WRITER = erase(lookup.findConstructor(streamWriter,
+                    MethodType.methodType(void.class, Gson.class, Writer.class)));
+            PRETTY_SERIALIZER = serializer.getField("PRETTY").get(null);
+            TO_JSON = erase(lookup.findVirtual(serializer, "toJson", MethodType.methodType(String.class, collection)));
+            WRITE = erase(lookup.findVirtual(streamWriter, "write", MethodType.methodType(void.class, feature)));
+            FINISH = erase(lookup.findVirtual(streamWriter, "finish", MethodType.methodType(void.class)));
+            NEW_BUFFER = erase(lookup.findConstructor(buffer, MethodType.methodType(void.class)));
+            CONVERT_INTO = erase(lookup.findVirtual(converter, "convert",
+                    MethodType.methodType(boolean.class, CharSequence.class, buffer)));
+            WRITE_TO = erase(lookup.findVirtual(buffer, "writeTo", MethodType.methodType(void.class, pointWriter)));
+            FINISH_POINTS = erase(lookup.findVirtual(pointWriter, "finish", MethodType.methodType(void.class)));
+            NEW_BINARY_WRITER = erase(lookup.findConstructor(binaryWriter,
+                    MethodType.methodType(void.class, OutputStream.class, int.class)));
+            NEW_BINARY_READER = erase(lookup.findConstructor(binaryReader,
+                    MethodType.methodType(void.class, InputStream.class)));
+            NEXT = erase(lookup.findVirtual(binaryReader, "next", MethodType.methodType(boolean.class)));
+            GET_LONGITUDE = erase(lookup.findVirtual(binaryReader, "getLongitude",
+                    MethodType.methodType(double.class)));
+            GET_LATITUDE = erase(lookup.findVirtual(binaryReader, "getLatitude",
+                    MethodType.methodType(double.class)));
+            ADD_POINT = erase(lookup.findVirtual(buffer, "add",
+                    MethodType.methodType(void.class, double.class, double.class, String.class)));
+            NEW_INDEX = erase(lookup.findConstructor(index, MethodType.methodType(void.class, buffer)));
+            SEARCH = erase(lookup.findVirtual(index, "search",
+                    MethodType.methodType(int[].class, double.class, double.class, double.class, double.class)));
+            SEARCH_RADIUS = erase(lookup.findVirtual(index, "searchRadius",
+                    MethodType.methodType(int[].class, double.class, double.class, double.class)));
+            NEAREST = erase(lookup.findVirtual(index, "nearest",
+                    MethodType.methodType(int[].class, double.class, double.class, int.class)));
+            NEW_PARSER = erase(lookup.findConstructor(parser, MethodType.methodType(void.class)));
+            PARSE = erase(lookup.findVirtual(parser, "parse", MethodType.methodType(int.class, CharSequence.class,
+                    double[].class, int.class, int[].class, int.class)));
+            TO_WEB_MERCATOR = lookup.findStatic(reprojection, "toWebMercator", MethodType.methodType(void.class,
+                    double[].class, double[].class, int.class, double[].class, double[].class));
+            TO_UTM = lookup.findStatic(reprojection, "toUtm", MethodType.methodType(void.class, double[].class,
+                    double[].class, int.class, int.class, boolean.class, double[].class, double[].class));
+            TO_ECEF = lookup.findStatic(reprojection, "toEcef", MethodType.methodType(void.class, double[].class,
+                    double[].class, int.class, double[].class, double[].class, double[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Bridge() {
+    }
+
+    /**
+     * Replaces every default package type in a handle's signature with Object so it can be called with invokeExact.
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (type.parameterType(i).getPackageName().isEmpty() && !type.parameterType(i).isPrimitive()) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        Class<?> returnType = type.returnType();
+        if (!returnType.isPrimitive() && !returnType.isArray() && returnType.getPackageName().isEmpty()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+}
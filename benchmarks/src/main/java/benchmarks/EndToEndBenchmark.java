@@ -0,0 +1,96 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a large synthetic input which mixes every format family, both on its own and followed by gson
+ * serialization the way main does it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EndToEndBenchmark {
+    @Param("1000000")
+    public int lineCount;
+
+    private String[] lines;
+    private Gson gson;
+
+    @Setup
+    public void setUp() {
+        lines = Samples.synthetic(lineCount, 42);
+        gson = new GsonBuilder().setPrettyPrinting().create();
+    }
+
+    /**
+     * Conversion only.
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws Throwable {
+        Object converter = Bridge.NEW_CONVERTER.invoke();
+        for (String line : lines) {
+            blackhole.consume((Object) Bridge.CONVERT.invokeExact(converter, (CharSequence) line));
+        }
+    }
+
+    /**
+     * Conversion into one feature collection which is then serialized in one go by gson, as main used to by default.
+     */
+    @Benchmark
+    public String parseAndSerializeCollection() throws Throwable {
+        Object converter = Bridge.NEW_CONVERTER.invoke();
+        Object collection = Bridge.NEW_COLLECTION.invoke();
+        for (String line : lines) {
+            Object feature = (Object) Bridge.CONVERT.invokeExact(converter, (CharSequence) line);
+            Bridge.ADD_FEATURE.invokeExact(collection, feature);
+        }
+        return gson.toJson(collection);
+    }
+
+    /**
+     * The same, serialized by GeoJsonSerializer rather than gson, as main does now.
+     */
+    @Benchmark
+    public String parseAndSerializeCollectionWithoutReflection() throws Throwable {
+        Object converter = Bridge.NEW_CONVERTER.invoke();
+        Object collection = Bridge.NEW_COLLECTION.invoke();
+        for (String line : lines) {
+            Object feature = (Object) Bridge.CONVERT.invokeExact(converter, (CharSequence) line);
+            Bridge.ADD_FEATURE.invokeExact(collection, feature);
+        }
+        return (String) Bridge.TO_JSON.invokeExact(Bridge.PRETTY_SERIALIZER, collection);
+    }
+
+    /**
+     * Conversion with each feature serialized as soon as it is converted, as main does with --stream.
+     */
+    @Benchmark
+    public void parseAndSerializeStreaming() throws Throwable {
+        Object converter = Bridge.NEW_CONVERTER.invoke();
+        Object out = (Object) Bridge.NEW_STREAM_WRITER.invokeExact(gson, Writer.nullWriter());
+        for (String line : lines) {
+            Object feature = (Object) Bridge.CONVERT.invokeExact(converter, (CharSequence) line);
+            Bridge.WRITE.invokeExact(out, feature);
+        }
+        Bridge.FINISH.invokeExact(out);
+    }
+}
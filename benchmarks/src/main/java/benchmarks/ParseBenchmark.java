@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures factory, the per line conversion, separately for each input format family, along with CoordinateParser
+ * parsing the same lines into a reused array. Run with -prof gc to also report the allocation rate per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ParseBenchmark {
+    @Param({"DD", "DD_CARDINAL", "DDM", "DMS_SYMBOLS", "DMS_COLON", "PACKED_DMS", "LABELLED"})
+    public Samples.Family family;
+
+    private Object converter;
+    private Object parser;
+    private final double[] coordinates = new double[2];
+    private final int[] labels = new int[2];
+    private String[] lines;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        converter = Bridge.NEW_CONVERTER.invoke();
+        parser = Bridge.NEW_PARSER.invoke();
+        lines = family.lines;
+        for (String line : lines) {
+            if (Bridge.FACTORY.invoke(converter, line) == null) {
+                throw new IllegalStateException("Sample does not convert: " + line);
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] factory() throws Throwable {
+        String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return (double[]) Bridge.FACTORY.invokeExact(converter, (CharSequence) line);
+    }
+
+    @Benchmark
+    public int parser() throws Throwable {
+        String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return (int) Bridge.PARSE.invokeExact(parser, (CharSequence) line, coordinates, 0, labels, 0);
+    }
+}
@@ -0,0 +1,106 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures projecting random points to Web Mercator, UTM, and earth centred, earth fixed coordinates, in points per
+ * second. Each projection is measured over a whole batch, as ProjectingPointWriter uses it, and one point at a time,
+ * which leaves the passes nothing to vectorize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProjectionBenchmark {
+    /**
+     * The same as ProjectingPointWriter.BATCH_SIZE.
+     */
+    private static final int BATCH = 1024;
+
+    private final double[] longitudes = new double[BATCH];
+    private final double[] latitudes = new double[BATCH];
+    private final double[] x = new double[BATCH];
+    private final double[] y = new double[BATCH];
+    private final double[] z = new double[BATCH];
+    private final double[] longitude = new double[1];
+    private final double[] latitude = new double[1];
+
+    @Setup
+    public void setUp() {
+        // one UTM zone's worth of points in the northern hemisphere
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < BATCH; i++) {
+            longitudes[i] = random.nextDouble(-84, -78);
+            latitudes[i] = random.nextDouble(0, 80);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] webMercatorBatch() throws Throwable {
+        Bridge.TO_WEB_MERCATOR.invokeExact(longitudes, latitudes, BATCH, x, y);
+        return y;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] webMercatorScalar() throws Throwable {
+        for (int i = 0; i < BATCH; i++) {
+            longitude[0] = longitudes[i];
+            latitude[0] = latitudes[i];
+            Bridge.TO_WEB_MERCATOR.invokeExact(longitude, latitude, 1, x, y);
+        }
+        return y;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] utmBatch() throws Throwable {
+        Bridge.TO_UTM.invokeExact(longitudes, latitudes, BATCH, 17, false, x, y);
+        return y;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] utmScalar() throws Throwable {
+        for (int i = 0; i < BATCH; i++) {
+            longitude[0] = longitudes[i];
+            latitude[0] = latitudes[i];
+            Bridge.TO_UTM.invokeExact(longitude, latitude, 1, 17, false, x, y);
+        }
+        return y;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] ecefBatch() throws Throwable {
+        Bridge.TO_ECEF.invokeExact(longitudes, latitudes, BATCH, x, y, z);
+        return z;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] ecefScalar() throws Throwable {
+        for (int i = 0; i < BATCH; i++) {
+            longitude[0] = longitudes[i];
+            latitude[0] = latitudes[i];
+            Bridge.TO_ECEF.invokeExact(longitude, latitude, 1, x, y, z);
+        }
+        return z;
+    }
+}
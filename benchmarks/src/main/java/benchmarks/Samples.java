@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Example lines for each input format family listed in the README, and a generator for large synthetic inputs which
+ * mixes every family.
+ */
+public final class Samples {
+    /**
+     * The input format families which are benchmarked separately.
+     */
+    public enum Family {
+        DD("40.446195, -79.982195", "40.446195,-79.982195", "40.446195 -79.982195", "49.5000°,-123.5000°"),
+        DD_CARDINAL("40.446195N 79.982195W", "N40.446195 W79.982195", "53.21 N, 21.12 W", "40.446195S -79.982195E"),
+        DDM("40° 26.7717, -79° 58.93172", "49d30.0m,-123d30.0'", "77° 30.5' S, 164° 45.25' E",
+                "49°30.0', -123°30.0'"),
+        DMS_SYMBOLS("40°26′46″N 079°58′56″W", "40d 26′ 46″ N 079d 58′ 56″ W", "N40°26′46″ W079°58′56″",
+                "32° 18' 23.1\" N 122° 36' 52.5\" W"),
+        DMS_COLON("40:26:46.302N 079:58:55.903W", "N40:26:46.302 W079:58:55.903", "40:26:46N 079:42:55.903W",
+                "32:18:23.1S, 122:36:52.5E"),
+        PACKED_DMS("402646302N 0795855903W", "N402646302 W0795855903", "3218231S 12236525E",
+                "4530000N 079000000W"),
+        LABELLED("40° 26′ 46″ N 79° 58′ 56″ W Pittsburgh", "45.9 S, 170.5 E Dunedin",
+                "40.446195N 79.982195W Pittsburgh Pennsylvania", "40:26:46.302N 079:58:55.903W dms with cardinal check");
+
+        final String[] lines;
+
+        Family(String... lines) {
+            this.lines = lines;
+        }
+    }
+
+    private Samples() {
+    }
+
+    /**
+     * Generates random coordinates rendered in every format family in turn.
+     *
+     * @param count the number of lines.
+     * @param seed  the random seed, so runs are repeatable.
+     * @return the generated lines.
+     */
+    static String[] synthetic(int count, long seed) {
+        Random random = new Random(seed);
+        Family[] families = Family.values();
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            lines[i] = render(families[i % families.length], latitude, longitude);
+        }
+        return lines;
+    }
+
+    private static String render(Family family, double latitude, double longitude) {
+        char ns = latitude < 0 ? 'S' : 'N';
+        char ew = longitude < 0 ? 'W' : 'E';
+        double lat = Math.abs(latitude);
+        double lon = Math.abs(longitude);
+        switch (family) {
+            case DD:
+                return String.format(Locale.ROOT, "%.6f, %.6f", latitude, longitude);
+            case DD_CARDINAL:
+                return String.format(Locale.ROOT, "%.6f%c %.6f%c", lat, ns, lon, ew);
+            case DDM:
+                return String.format(Locale.ROOT, "%d° %.4f' %c, %d° %.4f' %c",
+                        (int) lat, minutes(lat), ns, (int) lon, minutes(lon), ew);
+            case DMS_SYMBOLS:
+                return String.format(Locale.ROOT, "%d°%d′%.2f″%c %03d°%d′%.2f″%c",
+                        (int) lat, (int) minutes(lat), seconds(lat), ns,
+                        (int) lon, (int) minutes(lon), seconds(lon), ew);
+            case DMS_COLON:
+                return String.format(Locale.ROOT, "%c%02d:%02d:%06.3f %c%03d:%02d:%06.3f",
+                        ns, (int) lat, (int) minutes(lat), seconds(lat),
+                        ew, (int) lon, (int) minutes(lon), seconds(lon));
+            case PACKED_DMS:
+                return String.format(Locale.ROOT, "%02d%02d%05d%c %03d%02d%05d%c",
+                        (int) lat, (int) minutes(lat), (int) (seconds(lat) * 1000), ns,
+                        (int) lon, (int) minutes(lon), (int) (seconds(lon) * 1000), ew);
+            default:
+                return String.format(Locale.ROOT, "%.6f %c, %.6f %c Station", lat, ns, lon, ew);
+        }
+    }
+
+    private static double minutes(double degrees) {
+        return (degrees - (int) degrees) * 60;
+    }
+
+    private static double seconds(double degrees) {
+        double minutes = minutes(degrees);
+        return Math.min((minutes - (int) minutes) * 60, 59.999);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures queries against a spatial index bulk loaded with random points. Each query is at a new random target, so
+ * the results reflect cache misses in a large index rather than one hot path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SpatialIndexBenchmark {
+    @Param("10000000")
+    public int pointCount;
+
+    private Object index;
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setUp() throws Throwable {
+        Object buffer = (Object) Bridge.NEW_BUFFER.invokeExact();
+        SplittableRandom points = new SplittableRandom(42);
+        for (int i = 0; i < pointCount; i++) {
+            Bridge.ADD_POINT.invokeExact(buffer, points.nextDouble(-85, 85), points.nextDouble(-180, 180),
+                    (String) null);
+        }
+        index = (Object) Bridge.NEW_INDEX.invokeExact(buffer);
+    }
+
+    /**
+     * Points inside a box about 5km across.
+     */
+    @Benchmark
+    public int[] boundingBox() throws Throwable {
+        double latitude = random.nextDouble(-80, 80);
+        double longitude = random.nextDouble(-179, 179);
+        return (int[]) Bridge.SEARCH.invokeExact(index, latitude, longitude, latitude + 0.05, longitude + 0.05);
+    }
+
+    /**
+     * Points within 5km.
+     */
+    @Benchmark
+    public int[] radius() throws Throwable {
+        return (int[]) Bridge.SEARCH_RADIUS.invokeExact(index, random.nextDouble(-80, 80),
+                random.nextDouble(-180, 180), 5000.0);
+    }
+
+    /**
+     * The 10 nearest points.
+     */
+    @Benchmark
+    public int[] nearest() throws Throwable {
+        return (int[]) Bridge.NEAREST.invokeExact(index, random.nextDouble(-80, 80), random.nextDouble(-180, 180),
+                10);
+    }
+}